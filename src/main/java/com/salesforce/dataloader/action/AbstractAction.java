@@ -38,6 +38,7 @@ import com.salesforce.dataloader.action.visitor.IVisitor;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.dao.AsyncDataWriter;
 import com.salesforce.dataloader.dao.DataAccessObject;
 import com.salesforce.dataloader.dao.DataWriter;
 import com.salesforce.dataloader.dao.csv.CSVFileWriter;
@@ -78,8 +79,8 @@ abstract class AbstractAction implements IAction {
         checkDao(getController().getDao());
         this.dao = getController().getDao();
         if (writeStatus()) {
-            this.successWriter = createSuccesWriter();
-            this.errorWriter = createErrorWriter();
+            this.successWriter = createAsyncWriter(createSuccesWriter());
+            this.errorWriter = createAsyncWriter(createErrorWriter());
         } else {
             this.successWriter = null;
             this.errorWriter = null;
@@ -169,11 +170,17 @@ abstract class AbstractAction implements IAction {
         }
     }
 
-    private void closeAll() {
+    private void closeAll() throws DataAccessObjectException {
         getDao().close();
         if (writeStatus()) {
-            getSuccessWriter().close();
-            getErrorWriter().close();
+            try {
+                // report a failure writing the queued status rows instead of only logging it on close
+                getSuccessWriter().finish();
+                getErrorWriter().finish();
+            } finally {
+                getSuccessWriter().close();
+                getErrorWriter().close();
+            }
         }
     }
 
@@ -249,6 +256,18 @@ abstract class AbstractAction implements IAction {
         return new CSVFileWriter(filename, getConfig(), AppUtil.COMMA);
     }
 
+    /**
+     * @return the writer wrapped to be written by a background thread if status rows are queued
+     */
+    private DataWriter createAsyncWriter(DataWriter writer) {
+        final int queueSize = getConfig().getStatusWriteQueueSize();
+        if (queueSize <= 0) {
+            return writer;
+        }
+        return new AsyncDataWriter(writer, queueSize, getConfig().getStatusFlushPolicy(),
+                getConfig().getStatusFlushIntervalMillis());
+    }
+
     private void openErrorWriter(List<String> headers) throws OperationException {
         headers = new LinkedList<String>(headers);
         Config config = this.controller.getConfig();
@@ -36,6 +36,7 @@ import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.*;
+import com.salesforce.dataloader.dao.parquet.ParquetDataWriter;
 import com.salesforce.dataloader.exception.*;
 import com.salesforce.dataloader.mapping.SOQLMapper;
 import com.salesforce.dataloader.util.AppUtil;
@@ -68,7 +69,9 @@ abstract class AbstractExtractAction extends AbstractAction {
     protected void checkDao(DataAccessObject dao) throws DataAccessObjectInitializationException {
         if (!(dao instanceof DataWriter)) {
             final String errMsg = getMessage("errorWrongDao", getConfig().getString(Config.DAO_TYPE),
-                    DataAccessObjectFactory.CSV_WRITE_TYPE + " or " + DataAccessObjectFactory.DATABASE_WRITE_TYPE,
+                    DataAccessObjectFactory.CSV_WRITE_TYPE + ", " + DataAccessObjectFactory.DATABASE_WRITE_TYPE + ", "
+                            + DataAccessObjectFactory.JSONL_WRITE_TYPE + " or "
+                            + DataAccessObjectFactory.PARQUET_WRITE_TYPE,
                     getConfig().getString(Config.OPERATION));
             getLogger().fatal(errMsg);
             throw new DataAccessObjectInitializationException(errMsg);
@@ -138,10 +141,16 @@ abstract class AbstractExtractAction extends AbstractAction {
     protected void initOperation() throws DataAccessObjectInitializationException, OperationException {
         // get columns that will be output from the query and open the outputs
         final List<String> daoColumns = getDaoColumns();
+        if (getDao() instanceof ParquetDataWriter) {
+            ((ParquetDataWriter)getDao()).setColumnFields(((SOQLMapper)getController().getMapper()).getDaoColumnFieldsForSoql());
+        }
         getDao().setColumnNames(daoColumns);
     }
 
     @Override
-    protected void flush() {}
+    protected void flush() throws DataAccessObjectException {
+        // report a failure writing the last rows instead of only logging it on close
+        getDao().finish();
+    }
 
 }
@@ -39,10 +39,13 @@ import com.salesforce.dataloader.exception.MappingInitializationException;
 import com.salesforce.dataloader.exception.OperationException;
 import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.mapping.LoadMapper;
-import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import com.salesforce.dataloader.util.DAORowUtil;
 import com.sforce.ws.ConnectionException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -50,7 +53,14 @@ import java.util.List;
  * @since 6.0
  */
 abstract class AbstractLoadAction extends AbstractAction {
-    
+
+    // columns added by readers of several files
+    private static final List<String> SOURCE_FILE_COLUMNS = Arrays.asList(Config.SOURCE_FILE_COLUMN_NAME,
+            Config.SOURCE_FILE_ROW_COLUMN_NAME);
+
+    // the columns read from the dao if it reads only the mapped columns
+    private List<String> statusColumns;
+
     protected AbstractLoadAction(Controller controller, ILoaderProgress monitor)
             throws DataAccessObjectInitializationException {
         super(controller, monitor);
@@ -63,7 +73,9 @@ abstract class AbstractLoadAction extends AbstractAction {
     protected void checkDao(DataAccessObject dao) throws DataAccessObjectInitializationException {
         if (!(dao instanceof DataReader)) {
             final String errMsg = getMessage("errorWrongDao", getConfig().getString(Config.DAO_TYPE),
-                    DataAccessObjectFactory.CSV_READ_TYPE + " or " + DataAccessObjectFactory.DATABASE_READ_TYPE,
+                    DataAccessObjectFactory.CSV_READ_TYPE + ", " + DataAccessObjectFactory.DATABASE_READ_TYPE + ", "
+                            + DataAccessObjectFactory.JSONL_READ_TYPE + " or "
+                            + DataAccessObjectFactory.PARQUET_READ_TYPE,
                     getConfig().getString(Config.OPERATION));
             getLogger().fatal(errMsg);
             throw new DataAccessObjectInitializationException(errMsg);
@@ -79,19 +91,10 @@ abstract class AbstractLoadAction extends AbstractAction {
 
         final int loadBatchSize = this.getConfig().getLoadBatchSize();
         final int daoRowNumBase = getDao().getCurrentRowNumber();
-        final List<Row> daoRowList = getDao().readRowList(loadBatchSize);
-        if (daoRowList == null || daoRowList.size() == 0) return false;
-        int daoRowCount = 0;
-
-        for (final Row daoRow : daoRowList) {
-            if (!DAORowUtil.isValidRow(daoRow)) {
-                getVisitor().setRowConversionStatus(daoRowNumBase + daoRowCount++, 
-                        false);
-                return false;
-            }
-            getVisitor().setRowConversionStatus(daoRowNumBase + daoRowCount++, 
-                                                    getVisitor().visit(daoRow));
-        }
+        final RowBatch daoRowBatch = getDao().readRowBatch(loadBatchSize);
+        if (daoRowBatch == null || daoRowBatch.isEmpty()) return false;
+        // the visitor maps and converts the whole batch at once, its columns are the same for all its rows
+        getVisitor().visit(daoRowBatch, daoRowNumBase);
         return true;
     }
 
@@ -103,7 +106,15 @@ abstract class AbstractLoadAction extends AbstractAction {
     @Override
     protected void initOperation() throws MappingInitializationException, DataAccessObjectException, OperationException {
         // ensure all field mappings are valid before data load
-        ((LoadMapper)this.getController().getMapper()).verifyMappingsAreValid();
+        LoadMapper mapper = (LoadMapper)this.getController().getMapper();
+        mapper.verifyMappingsAreValid();
+        if (getConfig().getBoolean(Config.DAO_READ_MAPPED_COLUMNS_ONLY)
+                && getDao().setColumnsToRead(mapper.getMappedColumns())) {
+            // the success and error files only get the columns that are read, and where they were read from
+            List<String> readColumns = new ArrayList<String>(mapper.getMappedColumns());
+            readColumns.addAll(SOURCE_FILE_COLUMNS);
+            statusColumns = new RowSchema(getDao().getColumnNames()).select(readColumns).getColumnNames();
+        }
         // start the Progress Monitor
         getMonitor().beginTask(getMessage("loading", getConfig().getString(Config.OPERATION)), getDao().getTotalRows());
         // set the starting row
@@ -112,7 +123,18 @@ abstract class AbstractLoadAction extends AbstractAction {
 
     @Override
     protected List<String> getStatusColumns() {
-        return getDao().getColumnNames();
+        if (getConfig().getBoolean(Config.STATUS_OUTPUT_INDEX_ONLY)) {
+            // the status files identify the source rows instead of repeating them
+            List<String> indexColumns = new ArrayList<String>();
+            indexColumns.add(Config.SOURCE_ROW_COLUMN_NAME);
+            for (String column : SOURCE_FILE_COLUMNS) {
+                if (getDao().getColumnNames().contains(column)) {
+                    indexColumns.add(column);
+                }
+            }
+            return indexColumns;
+        }
+        return statusColumns != null ? statusColumns : getDao().getColumnNames();
     }
 
     @Override
@@ -28,6 +28,7 @@ package com.salesforce.dataloader.action.progress;
 
 public interface ILoaderProgress {
 
+    // totalWork is negative if the amount of work is unknown, e.g. for rows read from a stream
     void beginTask(String name, int totalWork);
     void doneError(String message);
     void doneSuccess(String message);
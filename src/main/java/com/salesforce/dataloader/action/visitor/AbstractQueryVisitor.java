@@ -31,6 +31,7 @@ import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.dao.database.DatabaseWriter;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.ExtractException;
@@ -45,6 +46,7 @@ import com.sforce.ws.ConnectionException;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Superclass for all query visitors
@@ -58,6 +60,9 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
     private final String soql;
     private final List<Row> batchRows;
     private final List<String> batchIds;
+    // rows of the batch the database writer is executing in the background, see DatabaseWriter#finishBatch()
+    private final List<Row> pendingRows;
+    private final List<String> pendingIds;
     private final int batchSize;
 
     public AbstractQueryVisitor(Controller controller, ILoaderProgress monitor, DataWriter queryWriter,
@@ -67,6 +72,8 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
         this.soql = getConfig().getString(Config.EXTRACT_SOQL);
         this.batchRows = new LinkedList<Row>();
         this.batchIds = new LinkedList<String>();
+        this.pendingRows = new LinkedList<Row>();
+        this.pendingIds = new LinkedList<String>();
         this.batchSize = getWriteBatchSize();
     }
 
@@ -122,23 +129,25 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
         if (!this.batchRows.isEmpty()) {
             writeBatch();
         }
+        writePendingBatch();
     }
 
     private void writeBatch() throws DataAccessObjectException {
         if (getProgressMonitor().isCanceled()) return;
+        writePendingBatch();
         try {
-            if (getQueryWriter().writeRowList(this.batchRows)) {
-                writeSuccesses();
+            final boolean written = getQueryWriter().writeRowList(this.batchRows);
+            if (isPipelineBatches()) {
+                // the rows are executed in the background, their statuses are written once they are done
+                this.pendingRows.addAll(this.batchRows);
+                this.pendingIds.addAll(this.batchIds);
             } else {
-                writeErrors(Messages.getMessage(getClass(), "statusErrorNotWritten",
-                        getConfig().getString(Config.DAO_NAME)));
+                writeStatuses(this.batchRows, this.batchIds, written);
             }
-            getProgressMonitor().worked(this.batchRows.size());
-            getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
         } catch (final DataAccessObjectInitializationException ex) {
             throw ex;
         } catch (final DataAccessObjectException ex) {
-            writeErrors(Messages.getMessage(getClass(), "statusErrorNotWrittenException",
+            writeErrors(this.batchRows, Messages.getMessage(getClass(), "statusErrorNotWrittenException",
                     getConfig().getString(Config.DAO_NAME), ex.getMessage()));
         } finally {
             this.batchRows.clear();
@@ -146,16 +155,70 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
         }
     }
 
-    private void writeSuccesses() throws DataAccessObjectException {
+    /**
+     * Writes the statuses of the batch the database writer was executing in the background, once it is done.
+     */
+    private void writePendingBatch() throws DataAccessObjectException {
+        if (this.pendingRows.isEmpty()) return;
+        try {
+            writeStatuses(this.pendingRows, this.pendingIds, ((DatabaseWriter)getQueryWriter()).finishBatch());
+        } catch (final DataAccessObjectInitializationException ex) {
+            throw ex;
+        } catch (final DataAccessObjectException ex) {
+            writeErrors(this.pendingRows, Messages.getMessage(getClass(), "statusErrorNotWrittenException",
+                    getConfig().getString(Config.DAO_NAME), ex.getMessage()));
+        } finally {
+            this.pendingRows.clear();
+            this.pendingIds.clear();
+        }
+    }
+
+    private boolean isPipelineBatches() {
+        return getQueryWriter() instanceof DatabaseWriter && ((DatabaseWriter)getQueryWriter()).isPipelineBatches();
+    }
+
+    private void writeStatuses(List<Row> rows, List<String> ids, boolean written) throws DataAccessObjectException {
+        if (written) {
+            writeSuccesses(rows, ids);
+        } else if (getQueryWriter() instanceof DatabaseWriter
+                && !((DatabaseWriter)getQueryWriter()).getRowErrors().isEmpty()) {
+            // only the rows that failed were not written
+            writeResults(rows, ids, ((DatabaseWriter)getQueryWriter()).getRowErrors());
+        } else {
+            writeErrors(rows, Messages.getMessage(getClass(), "statusErrorNotWritten",
+                    getConfig().getString(Config.DAO_NAME)));
+        }
+        endStatusBatch();
+        getProgressMonitor().worked(rows.size());
+        getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
+    }
+
+    private void writeSuccesses(List<Row> rows, List<String> ids) throws DataAccessObjectException {
+        final String msg = Messages.getMessage(getClass(), "statusItemQueried");
+        final Iterator<String> idIterator = ids.iterator();
+        for (final Row row : rows) {
+            writeSuccess(row, idIterator.next(), msg);
+        }
+    }
+
+    private void writeResults(List<Row> rows, List<String> ids, Map<Integer, String> rowErrors)
+            throws DataAccessObjectException {
         final String msg = Messages.getMessage(getClass(), "statusItemQueried");
-        final Iterator<String> ids = this.batchIds.iterator();
-        for (final Row row : this.batchRows) {
-            writeSuccess(row, ids.next(), msg);
+        final Iterator<String> idIterator = ids.iterator();
+        int rowIndex = 0;
+        for (final Row row : rows) {
+            final String id = idIterator.next();
+            final String errorMessage = rowErrors.get(rowIndex++);
+            if (errorMessage == null) {
+                writeSuccess(row, id, msg);
+            } else {
+                writeError(row, errorMessage);
+            }
         }
     }
 
-    private void writeErrors(String errorMessage) throws DataAccessObjectException {
-        for (final Row row : this.batchRows) {
+    private void writeErrors(List<Row> rows, String errorMessage) throws DataAccessObjectException {
+        for (final Row row : rows) {
             writeError(row, errorMessage);
         }
     }
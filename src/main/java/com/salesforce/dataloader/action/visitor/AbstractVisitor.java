@@ -29,6 +29,7 @@ package com.salesforce.dataloader.action.visitor;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.dao.AsyncDataWriter;
 import com.salesforce.dataloader.dao.DataWriter;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.mapping.Mapper;
@@ -145,6 +146,23 @@ public abstract class AbstractVisitor implements IVisitor {
         this.errors++;
     }
 
+    /**
+     * Called once the results of a batch have been written, waits for the status rows to reach the success and
+     * error files if they are written by a background thread that flushes them per batch.
+     */
+    protected void endStatusBatch() throws DataAccessObjectException {
+        if (writeStatus()) {
+            endBatch(this.successWriter);
+            endBatch(this.errorWriter);
+        }
+    }
+
+    private static void endBatch(DataWriter writer) throws DataAccessObjectException {
+        if (writer instanceof AsyncDataWriter) {
+            ((AsyncDataWriter)writer).endBatch();
+        }
+    }
+
     protected LoadRateCalculator getRateCalculator() {
         return this.rateCalculator;
     }
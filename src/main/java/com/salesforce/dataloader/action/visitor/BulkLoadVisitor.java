@@ -64,6 +64,7 @@ import com.salesforce.dataloader.model.NACalendarValue;
 import com.salesforce.dataloader.model.NADateOnlyCalendarValue;
 import com.salesforce.dataloader.model.NATextValue;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
 import com.salesforce.dataloader.util.DAORowUtil;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.AsyncExceptionCode;
@@ -414,7 +415,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         	return;
         }
         DataReader dataReader = null;
-        if (!controller.getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)) {
+        if (!isCachingDaoRows()) {
             dataReader = resetDAO();
         }
         // create a map of batch infos by batch id. Each batchinfo has the final processing state of the batch
@@ -428,6 +429,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
             processResults(dataReader, 
                     batchInfoMap.get(clientBatchInfo.batchId), clientBatchInfo, uploadedRowCount);
             uploadedRowCount += clientBatchInfo.numRows;
+            endStatusBatch();
         }
     }
     
@@ -455,13 +457,23 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         
         final int totalRowsInDAOInCurrentBatch = lastDAORowForCurrentBatch - this.firstDAORowForCurrentBatch + 1;
         List<Row> rows;
-        if (controller.getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)) {
+        if (isCachingDaoRows()) {
             rows = new ArrayList<Row>();
             for (int i=0; i<totalRowsInDAOInCurrentBatch; i++) {
                 rows.add(i, this.daoRowList.get(i + this.firstDAORowForCurrentBatch));
             }
         } else {
             rows = dataReader.readRowList(totalRowsInDAOInCurrentBatch);
+            int skippedRowsCount = 0;
+            try {
+                skippedRowsCount = controller.getConfig().getInt(Config.LOAD_ROW_TO_START_AT);
+            } catch (ParameterLoadException e) {
+                // @ignored
+            }
+            // the rows read again have lost their source row number
+            for (int i = 0; i < rows.size(); i++) {
+                setSourceRowIndex(rows.get(i), skippedRowsCount + this.firstDAORowForCurrentBatch + i);
+            }
         }
         if (batch.getState() == BatchStateEnum.Completed || batch.getNumberRecordsProcessed() > 0) {
             try {
@@ -615,6 +627,18 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         }
     }
 
+    @Override
+    protected void convertBulkAPINulls(RowBatch batch) {
+        for (int column = 0; column < batch.getSchema().getColumnCount(); column++) {
+            final Object[] values = batch.getColumn(column);
+            for (int row = 0; row < batch.size(); row++) {
+                if (NATextValue.isNA(values[row])) {
+                    values[row] = NATextValue.getInstance();
+                }
+            }
+        }
+    }
+
     @Override
     protected void conversionFailed(Row row, String errMsg) throws DataAccessObjectException,
             OperationException {
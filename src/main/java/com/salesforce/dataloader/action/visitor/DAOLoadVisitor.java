@@ -30,6 +30,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import com.salesforce.dataloader.util.DAORowUtil;
 
 import org.apache.commons.beanutils.*;
@@ -77,6 +79,8 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     protected List<Row> daoRowList = new ArrayList<Row>();
     protected ArrayList<Integer> batchRowToDAORowList = new ArrayList<Integer>();
     private int processedDAORowCounter = 0;
+    private final boolean indexOnlyStatus;
+    private boolean cacheDaoRows;
     private static final Logger logger = LogManager.getLogger(DAOLoadVisitor.class);
     // following regex pattern is based on info from:
     // - https://www.regular-expressions.info/lookaround.html
@@ -98,6 +102,7 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         dynaClass = SforceDynaBean.getDynaBeanInstance(dynaProps);
 
         this.batchSize = getConfig().getLoadBatchSize();
+        this.indexOnlyStatus = getConfig().getBoolean(Config.STATUS_OUTPUT_INDEX_ONLY);
         rowConversionFailureMap = new HashMap<Integer, Boolean>();
         String newRichTextRegex = getConfig().getString(Config.RICH_TEXT_FIELD_REGEX);
         if (newRichTextRegex != null && !newRichTextRegex.isBlank()) {
@@ -112,6 +117,18 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         }
     }
     
+    /**
+     * Adds the number of the row in the data source to the row for status files that only identify the rows,
+     * 1 for the first row after the header.
+     *
+     * @param dataSourceRow index of the row in the data source, counting the rows skipped at the start
+     */
+    public void setSourceRowIndex(Row row, int dataSourceRow) {
+        if (this.indexOnlyStatus) {
+            row.put(Config.SOURCE_ROW_COLUMN_NAME, dataSourceRow + 1);
+        }
+    }
+
     protected boolean isRowConversionSuccessful(int dataSourceRow) {
         Boolean conversionFailure = this.rowConversionFailureMap.get(dataSourceRow);
         if (conversionFailure != null && conversionFailure.booleanValue()) {
@@ -123,13 +140,95 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     @Override
     public boolean visit(Row row) throws OperationException, DataAccessObjectException,
     ConnectionException {
-        if (controller.getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)
-            || !controller.getConfig().getBoolean(Config.BULK_API_ENABLED)) {
+        // the result are sforce fields mapped to data
+        return visit(row, getMapper().mapData(row));
+    }
+
+    /**
+     * Maps a batch of rows read from the data source to sforce fields.
+     */
+    public RowBatch mapData(RowBatch daoRowBatch) {
+        return getMapper().mapData(daoRowBatch);
+    }
+
+    /**
+     * Maps and converts a batch of rows read from the data source like {@link #visit(Row, Row)} does for one
+     * row. The columns converted to sforce fields and the fields whose values are reformatted are resolved once
+     * for the batch. A row is only copied out of the batch when it is kept for the results or written to the
+     * error file.
+     *
+     * @param firstDataSourceRow index in the data source of the first row of the batch, counting the rows
+     *        skipped at the start
+     */
+    public void visit(RowBatch daoRowBatch, int firstDataSourceRow) throws OperationException,
+    DataAccessObjectException, ConnectionException {
+        final RowBatch sforceDataBatch = mapData(daoRowBatch);
+        convertBulkAPINulls(sforceDataBatch);
+        final RowSchema sforceSchema = sforceDataBatch.getSchema();
+        final int[] propertyColumns = SforceDynaBean.getPropertyColumns(dynaClass, sforceSchema);
+        final boolean[] formattedColumns = new boolean[propertyColumns.length];
+        for (int i = 0; i < propertyColumns.length; i++) {
+            formattedColumns[i] = isFormattedField(sforceSchema.getColumnName(propertyColumns[i]));
+        }
+        final boolean keepDaoRows = isCachingDaoRows()
+                || !controller.getConfig().getBoolean(Config.BULK_API_ENABLED);
+
+        for (int row = 0; row < daoRowBatch.size(); row++) {
+            final int dataSourceRow = firstDataSourceRow + row;
+            Row daoRow = null;
+            if (keepDaoRows) {
+                daoRow = getDaoRow(daoRowBatch, row, dataSourceRow);
+                this.daoRowList.add(daoRow);
+            }
+            try {
+                DynaBean dynaBean = SforceDynaBean.convertToDynaBean(dynaClass, sforceDataBatch, row,
+                        propertyColumns);
+                for (int i = 0; i < propertyColumns.length; i++) {
+                    if (formattedColumns[i]) {
+                        String fName = sforceSchema.getColumnName(propertyColumns[i]);
+                        Object value = dynaBean.get(fName);
+                        if (value != null) {
+                            dynaBean.set(fName, this.getFieldValue(fName, value));
+                        }
+                    }
+                }
+                dynaArray.add(dynaBean);
+                this.batchRowToDAORowList.add(this.processedDAORowCounter);
+            } catch (ConversionException conve) {
+                String errMsg = Messages.getMessage("Visitor", "conversionErrorMsg", conve.getMessage());
+                getLogger().error(errMsg, conve);
+
+                conversionFailed(daoRow != null ? daoRow : getDaoRow(daoRowBatch, row, dataSourceRow), errMsg);
+                // this row cannot be added since conversion has failed
+                setRowConversionStatus(dataSourceRow, false);
+                continue;
+            } finally {
+                this.processedDAORowCounter++;
+            }
+
+            // load the batch
+            if (dynaArray.size() >= this.batchSize || maxBatchBytesReached(dynaArray)) {
+                loadBatch();
+            }
+        }
+    }
+
+    private Row getDaoRow(RowBatch daoRowBatch, int row, int dataSourceRow) {
+        Row daoRow = daoRowBatch.getRow(row);
+        setSourceRowIndex(daoRow, dataSourceRow);
+        return daoRow;
+    }
+
+    /**
+     * @param row row read from the data source
+     * @param sforceDataRow the row mapped to sforce fields
+     */
+    public boolean visit(Row row, Row sforceDataRow) throws OperationException, DataAccessObjectException,
+    ConnectionException {
+        if (isCachingDaoRows() || !controller.getConfig().getBoolean(Config.BULK_API_ENABLED)) {
             // either batch mode or cache bulk data uploaded from DAO
             this.daoRowList.add(row);
         }
-        // the result are sforce fields mapped to data
-        Row sforceDataRow = getMapper().mapData(row);
         try {
             convertBulkAPINulls(sforceDataRow);
             DynaBean dynaBean = SforceDynaBean.convertToDynaBean(dynaClass, sforceDataRow);
@@ -184,6 +283,8 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
 
     protected void convertBulkAPINulls(Row row) {}
 
+    protected void convertBulkAPINulls(RowBatch batch) {}
+
     public void flushRemaining() throws OperationException, DataAccessObjectException {
         // check if there are any entities left
         if (dynaArray.size() > 0) {
@@ -223,10 +324,24 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         return true;
     }
 
+    /**
+     * @return true if the rows read from the data source are kept for the results of bulk batches, because
+     *         {@link Config#PROCESS_BULK_CACHE_DATA_FROM_DAO} is set or the data source can only be read once
+     */
+    protected boolean isCachingDaoRows() {
+        return this.cacheDaoRows;
+    }
+
     private void initLoadRateCalculator() {
+        this.cacheDaoRows = getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO);
         try {
             DataReader dao = (DataReader)getController().getDao();
-            getRateCalculator().start(dao.getTotalRows());
+            int totalRows = dao.getTotalRows();
+            if (totalRows == DataReader.UNKNOWN_TOTAL_ROWS) {
+                // the data source cannot be reopened to match the rows to the results of the bulk batches
+                this.cacheDaoRows = true;
+            }
+            getRateCalculator().start(totalRows);
         } catch (Exception e) {
             logger.error("Unable to get total rows to upload from CSV or database");
             getRateCalculator().start(0);
@@ -279,6 +394,16 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         return fieldValue;
     }
     
+    /**
+     * @return true if {@link #getFieldValue(String, Object)} may change the values of the field
+     */
+    private boolean isFormattedField(String fieldName) {
+        getHtmlFormattedAndPhoneSforceFieldList();
+        return (htmlFormattedSforceFieldList != null && htmlFormattedSforceFieldList.contains(fieldName)
+                && getController().getConfig().getBoolean(Config.LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT))
+                || (phoneSforceFieldList != null && phoneSforceFieldList.contains(fieldName));
+    }
+
     private Object getHtmlFormattedFieldValue(String fieldName, Object fieldValue) {
         getHtmlFormattedAndPhoneSforceFieldList();
         if (htmlFormattedSforceFieldList == null 
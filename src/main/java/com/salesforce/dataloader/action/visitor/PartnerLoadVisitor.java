@@ -105,6 +105,7 @@ public abstract class PartnerLoadVisitor extends DAOLoadVisitor {
         }
 
         writeOutputToWriter(results);
+        endStatusBatch();
 
         // update Monitor
         getProgressMonitor().worked(results.length);
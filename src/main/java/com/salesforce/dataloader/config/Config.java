@@ -27,6 +27,7 @@
 package com.salesforce.dataloader.config;
 
 import com.salesforce.dataloader.action.OperationInfo;
+import com.salesforce.dataloader.dao.AsyncDataWriter;
 import com.salesforce.dataloader.exception.ConfigInitializationException;
 import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.exception.ProcessInitializationException;
@@ -134,10 +135,12 @@ public class Config {
     public static final int DEFAULT_TIMEOUT_SECS = 540;
     public static final int DEFAULT_LOAD_BATCH_SIZE = 200;
     public static final int DEFAULT_DAO_WRITE_BATCH_SIZE = 500;
+    public static final long DEFAULT_STATUS_FLUSH_INTERVAL_MILLIS = 1000;
     public static final int DEFAULT_DAO_READ_BATCH_SIZE = 200;
     public static final int MAX_LOAD_BATCH_SIZE = 200;
     public static final int MAX_DAO_READ_BATCH_SIZE = 200;
     public static final int MAX_DAO_WRITE_BATCH_SIZE = 2000;
+    public static final long DEFAULT_PARQUET_ROW_GROUP_SIZE = 64L * 1024 * 1024;
     public static final int MAX_BULK_API_BATCH_BYTES = 10000000;
     public static final int MAX_BULK_API_BATCH_SIZE = 10000;
     public static final int DEFAULT_BULK_API_BATCH_SIZE = 2000;
@@ -171,6 +174,9 @@ public class Config {
     public static final String ID_COLUMN_NAME = "ID"; //$NON-NLS-1$
     public static final String ERROR_COLUMN_NAME = "ERROR"; //$NON-NLS-1$
     public static final String STATUS_COLUMN_NAME = "STATUS"; //$NON-NLS-1$
+    public static final String SOURCE_ROW_COLUMN_NAME = "SOURCE_ROW"; //$NON-NLS-1$
+    public static final String SOURCE_FILE_COLUMN_NAME = "SOURCE_FILE"; //$NON-NLS-1$
+    public static final String SOURCE_FILE_ROW_COLUMN_NAME = "SOURCE_FILE_ROW"; //$NON-NLS-1$
 
     /**
      * The mapping from preference name to preference value (represented as strings).
@@ -294,13 +300,34 @@ public class Config {
     public static final String ENCRYPTION_KEY_FILE = "process.encryptionKeyFile"; //$NON-NLS-1$
     public static final String PROCESS_THREAD_NAME = "process.thread.name";
     public static final String PROCESS_KEEP_ACCOUNT_TEAM = "process.keepAccountTeam";
+    public static final String STATUS_WRITE_QUEUE_SIZE = "process.statusWriteQueueSize";
+    public static final String STATUS_OUTPUT_INDEX_ONLY = "process.statusOutputIndexOnly";
+    public static final String STATUS_FLUSH = "process.statusFlush";
+    public static final String STATUS_FLUSH_INTERVAL_MILLIS = "process.statusFlushIntervalMillis";
 
     // data access configuration (e.g., for CSV file, database, etc).
     public static final String DAO_TYPE = "dataAccess.type"; //$NON-NLS-1$
     public static final String DAO_NAME = "dataAccess.name"; //$NON-NLS-1$
+    // csv data access name reading standard input or writing standard output, e.g. in a pipeline
+    public static final String DAO_NAME_STANDARD_STREAM = "-"; //$NON-NLS-1$
     public static final String DAO_READ_BATCH_SIZE = "dataAccess.readBatchSize";
     public static final String DAO_WRITE_BATCH_SIZE = "dataAccess.writeBatchSize";
     public static final String DAO_SKIP_TOTAL_COUNT = "dataAccess.skipTotalCount";
+    public static final String DAO_CSV_PARALLEL_READ = "dataAccess.csvParallelRead";
+    public static final String DAO_CSV_PARALLEL_READ_THREADS = "dataAccess.csvParallelReadThreads";
+    public static final String DAO_CSV_RECORD_INDEX = "dataAccess.csvRecordIndex";
+    public static final String DAO_CSV_BYTE_TOKENIZER = "dataAccess.csvByteTokenizer";
+    public static final String DAO_READ_AHEAD_BATCHES = "dataAccess.readAheadBatches";
+    public static final String DAO_READ_MAPPED_COLUMNS_ONLY = "dataAccess.readMappedColumnsOnly";
+    public static final String DAO_READ_PARALLEL_FILES = "dataAccess.readParallelFiles";
+    public static final String DAO_WRITE_COMPRESSION = "dataAccess.writeCompression";
+    public static final String DAO_WRITE_MAX_ROWS_PER_FILE = "dataAccess.writeMaxRowsPerFile";
+    public static final String DAO_WRITE_MAX_BYTES_PER_FILE = "dataAccess.writeMaxBytesPerFile";
+    public static final String DAO_WRITE_PARALLEL_FILES = "dataAccess.writeParallelFiles";
+    public static final String DAO_PARQUET_COMPRESSION = "dataAccess.parquetCompression";
+    public static final String DAO_PARQUET_ROW_GROUP_SIZE = "dataAccess.parquetRowGroupSize";
+    public static final String DAO_PARQUET_READ_THREADS = "dataAccess.parquetReadThreads";
+    public static final String DAO_JSONL_PARALLEL_READ_THREADS = "dataAccess.jsonlParallelReadThreads";
 
     /*
      * TODO: when batching is introduced to the DataAccess, these parameters will become useful
@@ -530,11 +557,26 @@ public class Config {
         setDefaultValue(INSERT_NULLS, false);
         setDefaultValue(ENABLE_EXTRACT_STATUS_OUTPUT, false);
         setDefaultValue(ENABLE_LAST_RUN_OUTPUT, true);
+        setDefaultValue(STATUS_WRITE_QUEUE_SIZE, 0);
+        setDefaultValue(STATUS_OUTPUT_INDEX_ONLY, false);
+        setDefaultValue(STATUS_FLUSH, AsyncDataWriter.FlushPolicy.PERIODIC.name());
+        setDefaultValue(STATUS_FLUSH_INTERVAL_MILLIS, DEFAULT_STATUS_FLUSH_INTERVAL_MILLIS);
         setDefaultValue(RESET_URL_ON_LOGIN, true);
         setDefaultValue(EXTRACT_REQUEST_SIZE, DEFAULT_EXTRACT_REQUEST_SIZE);
         setDefaultValue(SORT_EXTRACT_FIELDS, true);
         setDefaultValue(DAO_WRITE_BATCH_SIZE, DEFAULT_DAO_WRITE_BATCH_SIZE);
         setDefaultValue(DAO_READ_BATCH_SIZE, DEFAULT_DAO_READ_BATCH_SIZE);
+        setDefaultValue(DAO_CSV_PARALLEL_READ, false);
+        setDefaultValue(DAO_CSV_RECORD_INDEX, false);
+        setDefaultValue(DAO_CSV_BYTE_TOKENIZER, true);
+        setDefaultValue(DAO_READ_AHEAD_BATCHES, 0);
+        setDefaultValue(DAO_READ_MAPPED_COLUMNS_ONLY, false);
+        setDefaultValue(DAO_WRITE_COMPRESSION, "none");
+        setDefaultValue(DAO_WRITE_MAX_ROWS_PER_FILE, 0);
+        setDefaultValue(DAO_WRITE_MAX_BYTES_PER_FILE, 0);
+        setDefaultValue(DAO_PARQUET_COMPRESSION, "snappy");
+        setDefaultValue(DAO_JSONL_PARALLEL_READ_THREADS, 0);
+        setDefaultValue(DAO_PARQUET_ROW_GROUP_SIZE, DEFAULT_PARQUET_ROW_GROUP_SIZE);
         setDefaultValue(TRUNCATE_FIELDS, true);
         // TODO: When we're ready, make Bulk API turned on by default.
         setDefaultValue(BULK_API_ENABLED, useBulkApiByDefault());
@@ -1337,6 +1379,150 @@ public class Config {
         return bs > maxBatchSize ? maxBatchSize : bs > 0 ? bs : getDefaultBatchSize(bulkApi);
     }
 
+    /**
+     * @return number of threads parsing a CSV file when {@link #DAO_CSV_PARALLEL_READ} is set, one per
+     *         available processor unless configured otherwise
+     */
+    public int getCsvParallelReadThreads() {
+        int threads = -1;
+        try {
+            threads = getInt(DAO_CSV_PARALLEL_READ_THREADS);
+        } catch (ParameterLoadException e) {
+        }
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return number of batches read ahead of the load by a background thread, 0 if rows are read when they
+     *         are needed
+     */
+    public int getReadAheadBatches() {
+        try {
+            return Math.max(getInt(DAO_READ_AHEAD_BATCHES), 0);
+        } catch (ParameterLoadException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return maximum number of rows written to a CSV extract file before rolling over to the next part file,
+     *         0 for no limit
+     */
+    public long getWriteMaxRowsPerFile() {
+        try {
+            return Math.max(getLong(DAO_WRITE_MAX_ROWS_PER_FILE), 0);
+        } catch (ParameterLoadException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return approximate number of uncompressed bytes written to a CSV extract file before rolling over to the
+     *         next part file, 0 for no limit
+     */
+    public long getWriteMaxBytesPerFile() {
+        try {
+            return Math.max(getLong(DAO_WRITE_MAX_BYTES_PER_FILE), 0);
+        } catch (ParameterLoadException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return number of files read at the same time when {@link #DAO_NAME} is a directory or a glob pattern,
+     *         one per available processor unless configured otherwise
+     */
+    public int getReadParallelFiles() {
+        int files = -1;
+        try {
+            files = getInt(DAO_READ_PARALLEL_FILES);
+        } catch (ParameterLoadException e) {
+        }
+        return files > 0 ? files : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return number of part files of a CSV extract written at the same time, one per available processor
+     *         unless configured otherwise
+     */
+    public int getWriteParallelFiles() {
+        int files = -1;
+        try {
+            files = getInt(DAO_WRITE_PARALLEL_FILES);
+        } catch (ParameterLoadException e) {
+        }
+        return files > 0 ? files : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return number of threads parsing the lines of a JSON lines file, 0 if they are parsed by the thread
+     *         reading them
+     */
+    public int getJsonLinesParallelReadThreads() {
+        try {
+            return Math.max(getInt(DAO_JSONL_PARALLEL_READ_THREADS), 0);
+        } catch (ParameterLoadException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return number of threads reading the row groups of a parquet file, one per available processor unless
+     *         configured otherwise. A row group per thread is held in memory.
+     */
+    public int getParquetReadThreads() {
+        int threads = -1;
+        try {
+            threads = getInt(DAO_PARQUET_READ_THREADS);
+        } catch (ParameterLoadException e) {
+        }
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return number of uncompressed bytes buffered in memory for a row group of a parquet extract before it is
+     *         written to the file
+     */
+    public long getParquetRowGroupSize() {
+        long size = -1;
+        try {
+            size = getLong(DAO_PARQUET_ROW_GROUP_SIZE);
+        } catch (ParameterLoadException e) {
+        }
+        return size > 0 ? size : DEFAULT_PARQUET_ROW_GROUP_SIZE;
+    }
+
+    /**
+     * @return number of rows queued for the success and error files to be written by background threads, 0
+     *         if the rows are written by the thread processing the results
+     */
+    public int getStatusWriteQueueSize() {
+        try {
+            return Math.max(getInt(STATUS_WRITE_QUEUE_SIZE), 0);
+        } catch (ParameterLoadException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return when the rows queued for the success and error files are flushed to the files
+     */
+    public AsyncDataWriter.FlushPolicy getStatusFlushPolicy() {
+        return AsyncDataWriter.FlushPolicy.fromString(getString(STATUS_FLUSH), AsyncDataWriter.FlushPolicy.PERIODIC);
+    }
+
+    /**
+     * @return interval between flushes of the success and error files for the periodic flush policy
+     */
+    public long getStatusFlushIntervalMillis() {
+        try {
+            long interval = getLong(STATUS_FLUSH_INTERVAL_MILLIS);
+            return interval > 0 ? interval : DEFAULT_STATUS_FLUSH_INTERVAL_MILLIS;
+        } catch (ParameterLoadException e) {
+            return DEFAULT_STATUS_FLUSH_INTERVAL_MILLIS;
+        }
+    }
+
     public int getDefaultBatchSize(boolean bulkApi) {
         return bulkApi ? DEFAULT_BULK_API_BATCH_SIZE : DEFAULT_LOAD_BATCH_SIZE;
     }
@@ -48,6 +48,8 @@ public class LastRun extends Properties {
     // last run statistics
     public static final String LAST_LOAD_BATCH_ROW = "process.lastLoadBatchRow"; //$NON-NLS-1$
     public static final String LAST_RUN_DATE = "process.lastRunDate"; //$NON-NLS-1$
+    // rows read from each partition of a partitioned database query, see PartitionedDatabaseReader
+    public static final String LAST_LOAD_PARTITION_ROWS = "process.lastLoadPartitionRows"; //$NON-NLS-1$
 
     private static Map<String,String> paramNames = new HashMap<String,String>();
 
@@ -66,6 +68,7 @@ public class LastRun extends Properties {
 
         paramNames.put(LAST_RUN_DATE,"");
         paramNames.put(LAST_LOAD_BATCH_ROW,"");
+        paramNames.put(LAST_LOAD_PARTITION_ROWS,"");
     }
 
     public String getFullPath() {
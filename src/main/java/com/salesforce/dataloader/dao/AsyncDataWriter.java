@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+
+/**
+ * Writes rows to another {@link DataWriter} on a background thread, so encoding and writing the rows does not
+ * hold up the caller. Rows are put in a ring buffer of fixed size, which the background thread empties in runs
+ * of all the rows queued; the caller only waits while the buffer is full.
+ * <p>
+ * When the written rows are flushed to the file of a {@link Flushable} writer depends on the
+ * {@link FlushPolicy}. An exception writing a row is thrown to the caller by the next call to write rows,
+ * {@link #endBatch()} or {@link #finish()}, and the rows queued after the failed one are dropped.
+ */
+public class AsyncDataWriter implements DataWriter {
+
+    /**
+     * When the rows written are flushed to the file.
+     */
+    public enum FlushPolicy {
+        /** {@link AsyncDataWriter#endBatch()} waits until the rows queued are written and flushed */
+        BATCH,
+        /** the rows written are flushed at a fixed interval */
+        PERIODIC,
+        /** the rows are flushed when the writer is closed */
+        CLOSE;
+
+        /**
+         * @return the policy with the given name ignoring case, or the default policy for an unknown name
+         */
+        public static FlushPolicy fromString(String name, FlushPolicy defaultPolicy) {
+            for (FlushPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            return defaultPolicy;
+        }
+    }
+
+    private static final Logger logger = LogManager.getLogger(AsyncDataWriter.class);
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final DataWriter writer;
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalNanos;
+    private final Row[] ring;
+    private final int mask;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition rowsQueued = lock.newCondition();
+    private final Condition rowsWritten = lock.newCondition();
+    // rows are numbered in the order queued, the ring holds the rows from head up to tail
+    private long head;
+    private long tail;
+    // the rows before flushRequested are flushed once written, the rows before flushed have been flushed
+    private long flushRequested;
+    private long flushed;
+    private long lastFlushNanos;
+    private boolean stopping;
+    private DataAccessObjectException failure;
+    private Thread writerThread;
+    private int currentRowNumber;
+
+    /**
+     * @param writer writer to write the rows to, only used by the background thread while it is running
+     * @param capacity maximum number of rows queued, rounded up to a power of two
+     * @param flushPolicy when the rows written are flushed
+     * @param flushIntervalMillis interval between flushes for {@link FlushPolicy#PERIODIC}
+     */
+    public AsyncDataWriter(DataWriter writer, int capacity, FlushPolicy flushPolicy, long flushIntervalMillis) {
+        this.writer = writer;
+        this.flushPolicy = flushPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushIntervalMillis, 1));
+        int size = Integer.highestOneBit(Math.min(Math.max(capacity, 2), MAX_CAPACITY) - 1) << 1;
+        this.ring = new Row[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the writer the rows are written to
+     */
+    public DataWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        stopWriter();
+        head = tail = flushRequested = flushed = 0;
+        failure = null;
+        currentRowNumber = 0;
+        writer.open();
+    }
+
+    /**
+     * Writes the rows queued and closes the writer. An exception writing the rows is logged, call
+     * {@link #finish()} first to handle it.
+     */
+    @Override
+    public void close() {
+        try {
+            finish();
+        } catch (DataAccessObjectException e) {
+            logger.error("Unable to write the queued rows", e);
+        }
+        writer.close();
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        writer.checkConnection();
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return writer.getColumnNames();
+    }
+
+    /**
+     * @return number of rows queued since the writer was opened
+     */
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    @Override
+    public void setColumnNames(List<String> columnNames) throws DataAccessObjectInitializationException {
+        try {
+            finish();
+        } catch (DataAccessObjectInitializationException e) {
+            throw e;
+        } catch (DataAccessObjectException e) {
+            throw new DataAccessObjectInitializationException(e.getMessage(), e);
+        }
+        writer.setColumnNames(columnNames);
+    }
+
+    /**
+     * Queues a copy of the row, the caller may change the row once it is queued, e.g. to add its status.
+     */
+    @Override
+    public boolean writeRow(Row inputRow) throws DataAccessObjectException {
+        lock.lock();
+        try {
+            put(copy(inputRow));
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Queues copies of the rows, the caller may change the rows once they are queued.
+     */
+    @Override
+    public boolean writeRowList(List<Row> inputRowList) throws DataAccessObjectException {
+        lock.lock();
+        try {
+            for (Row row : inputRowList) {
+                put(copy(row));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean writeRowBatch(RowBatch inputBatch) throws DataAccessObjectException {
+        // the caller may reuse the batch, the rows are copies
+        List<Row> rows = inputBatch.toRowList();
+        lock.lock();
+        try {
+            for (Row row : rows) {
+                put(row);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private static Row copy(Row row) {
+        return row == null ? null : row.copy();
+    }
+
+    /**
+     * Ends a batch of rows. With {@link FlushPolicy#BATCH} waits until the rows queued are written and flushed.
+     *
+     * @throws DataAccessObjectException if writing a row failed
+     */
+    public void endBatch() throws DataAccessObjectException {
+        lock.lock();
+        try {
+            if (flushPolicy == FlushPolicy.BATCH && writerThread != null) {
+                long end = tail;
+                flushRequested = Math.max(flushRequested, end);
+                rowsQueued.signal();
+                while (failure == null && flushed < end) {
+                    rowsWritten.await();
+                }
+            }
+            checkFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the rows queued are written and flushed, and stops the background thread.
+     *
+     * @throws DataAccessObjectException if writing a row failed
+     */
+    @Override
+    public void finish() throws DataAccessObjectException {
+        stopWriter();
+        lock.lock();
+        try {
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a row, waiting while the ring buffer is full. Must be called holding the lock.
+     */
+    private void put(Row row) throws DataAccessObjectException {
+        checkFailure();
+        if (writerThread == null) {
+            startWriter();
+        }
+        try {
+            while (failure == null && tail - head == ring.length) {
+                rowsWritten.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException(e);
+        }
+        checkFailure();
+        ring[(int)tail & mask] = row;
+        tail++;
+        currentRowNumber++;
+        rowsQueued.signal();
+    }
+
+    private void checkFailure() throws DataAccessObjectException {
+        if (failure != null) {
+            throw new DataAccessObjectException(failure.getMessage(), failure);
+        }
+    }
+
+    private void startWriter() {
+        stopping = false;
+        lastFlushNanos = System.nanoTime();
+        writerThread = new Thread(this::writeQueuedRows, "DataWriter " + writer.getClass().getSimpleName());
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void stopWriter() {
+        Thread thread;
+        lock.lock();
+        try {
+            thread = writerThread;
+            if (thread == null) {
+                return;
+            }
+            stopping = true;
+            rowsQueued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for the queued rows to be written", e);
+            thread.interrupt();
+        }
+        lock.lock();
+        try {
+            writerThread = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs on the background thread until stopped or writing fails. The writer is called without holding the
+     * lock, the caller does not touch the ring slots from head up to tail.
+     */
+    private void writeQueuedRows() {
+        lock.lock();
+        try {
+            while (true) {
+                if (isFlushDue()) {
+                    long end = head;
+                    DataAccessObjectException error = null;
+                    lock.unlock();
+                    try {
+                        ((Flushable)writer).flush();
+                    } catch (IOException | RuntimeException e) {
+                        error = new DataAccessObjectException(e.getMessage(), e);
+                    } finally {
+                        lock.lock();
+                    }
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+                    flushed = end;
+                    lastFlushNanos = System.nanoTime();
+                    rowsWritten.signalAll();
+                } else if (head < tail) {
+                    long start = head;
+                    long end = tail;
+                    DataAccessObjectException error = null;
+                    lock.unlock();
+                    try {
+                        for (long i = start; i < end; i++) {
+                            int slot = (int)i & mask;
+                            Row row = ring[slot];
+                            ring[slot] = null;
+                            writer.writeRow(row);
+                        }
+                    } catch (DataAccessObjectException e) {
+                        error = e;
+                    } catch (RuntimeException e) {
+                        error = new DataAccessObjectException(e.getMessage(), e);
+                    } finally {
+                        lock.lock();
+                    }
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+                    head = end;
+                    if (!(writer instanceof Flushable)) {
+                        flushed = end;
+                    }
+                    rowsWritten.signalAll();
+                } else if (stopping) {
+                    return;
+                } else if (flushPolicy == FlushPolicy.PERIODIC && flushed < head) {
+                    rowsQueued.awaitNanos(lastFlushNanos + flushIntervalNanos - System.nanoTime());
+                } else {
+                    rowsQueued.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            fail(new DataAccessObjectException(e));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the rows written have to be flushed before writing more rows. Must be called holding
+     *         the lock.
+     */
+    private boolean isFlushDue() {
+        if (flushed == head) {
+            return false;
+        }
+        if (head == tail && stopping) {
+            return true;
+        }
+        if (flushRequested > flushed && head >= flushRequested) {
+            return true;
+        }
+        return flushPolicy == FlushPolicy.PERIODIC && System.nanoTime() - lastFlushNanos >= flushIntervalNanos;
+    }
+
+    /**
+     * Records a failure and drops the queued rows. Must be called holding the lock.
+     */
+    private void fail(DataAccessObjectException error) {
+        failure = error;
+        Arrays.fill(ring, null);
+        head = tail;
+        rowsWritten.signalAll();
+        logger.error("Unable to write the queued rows", error);
+    }
+}
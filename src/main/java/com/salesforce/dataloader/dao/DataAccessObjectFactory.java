@@ -25,6 +25,10 @@
  */
 package com.salesforce.dataloader.dao;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -32,8 +36,13 @@ import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.dao.csv.CSVFileReader;
 import com.salesforce.dataloader.dao.csv.CSVFileWriter;
+import com.salesforce.dataloader.dao.csv.CSVRollingFileWriter;
 import com.salesforce.dataloader.dao.database.DatabaseReader;
 import com.salesforce.dataloader.dao.database.DatabaseWriter;
+import com.salesforce.dataloader.dao.json.JsonLinesFileReader;
+import com.salesforce.dataloader.dao.json.JsonLinesFileWriter;
+import com.salesforce.dataloader.dao.parquet.ParquetDataReader;
+import com.salesforce.dataloader.dao.parquet.ParquetDataWriter;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.UnsupportedDataAccessObjectException;
 
@@ -44,6 +53,10 @@ public class DataAccessObjectFactory {
     static public final String CSV_WRITE_TYPE = "csvWrite";
     static public final String DATABASE_READ_TYPE = "databaseRead";
     static public final String DATABASE_WRITE_TYPE = "databaseWrite";
+    static public final String JSONL_READ_TYPE = "jsonlRead";
+    static public final String JSONL_WRITE_TYPE = "jsonlWrite";
+    static public final String PARQUET_READ_TYPE = "parquetRead";
+    static public final String PARQUET_WRITE_TYPE = "parquetWrite";
 
     public DataAccessObject getDaoInstance(String daoType, Config config)
             throws DataAccessObjectInitializationException {
@@ -51,19 +64,66 @@ public class DataAccessObjectFactory {
 
         logger.info(Messages.getFormattedString("DataAccessObjectFactory.creatingDao", new String[] {config.getString(Config.DAO_NAME), daoType}));
 
-        if (CSV_READ_TYPE.equalsIgnoreCase(daoType)) {
-            dao = new CSVFileReader(config, false);
+        if (isFileReadType(daoType)) {
+            dao = getFileReader(daoType, config);
         } else if (CSV_WRITE_TYPE.equalsIgnoreCase(daoType)) {
-            dao = new CSVFileWriter(config.getString(Config.DAO_NAME), config, config.getString(Config.CSV_DELIMITER_FOR_QUERY_RESULTS));
+            if (CSVRollingFileWriter.isEnabled(config)
+                    && !Config.DAO_NAME_STANDARD_STREAM.equals(config.getString(Config.DAO_NAME))) {
+                dao = new CSVRollingFileWriter(config.getString(Config.DAO_NAME), config, config.getString(Config.CSV_DELIMITER_FOR_QUERY_RESULTS));
+            } else {
+                dao = new CSVFileWriter(config.getString(Config.DAO_NAME), config, config.getString(Config.CSV_DELIMITER_FOR_QUERY_RESULTS));
+            }
         } else if (DATABASE_READ_TYPE.equalsIgnoreCase(daoType)) {
-            dao = new DatabaseReader(config);
+            dao = DatabaseReader.getReader(config);
         } else if (DATABASE_WRITE_TYPE.equalsIgnoreCase(daoType)) {
             dao = new DatabaseWriter(config);
+        } else if (JSONL_WRITE_TYPE.equalsIgnoreCase(daoType)) {
+            dao = new JsonLinesFileWriter(config);
+        } else if (PARQUET_WRITE_TYPE.equalsIgnoreCase(daoType)) {
+            dao = new ParquetDataWriter(config);
         } else {
             String errMsg = Messages.getFormattedString("DataAccessObjectFactory.daoTypeNotSupported", daoType);
             logger.error(errMsg);
             throw new UnsupportedDataAccessObjectException(errMsg);
         }
+        int readAheadBatches = config.getReadAheadBatches();
+        if (dao instanceof DataReader && readAheadBatches > 0) {
+            logger.info(Messages.getFormattedString("DataAccessObjectFactory.readAhead", String.valueOf(readAheadBatches)));
+            dao = new PrefetchingDataReader((DataReader)dao, config.getLoadBatchSize(), readAheadBatches);
+        }
         return dao;
     }
+
+    private static boolean isFileReadType(String daoType) {
+        return CSV_READ_TYPE.equalsIgnoreCase(daoType) || JSONL_READ_TYPE.equalsIgnoreCase(daoType)
+                || PARQUET_READ_TYPE.equalsIgnoreCase(daoType);
+    }
+
+    /**
+     * @return reader of the file, or of all files in the directory or matching the glob pattern
+     */
+    private static DataReader getFileReader(String daoType, Config config)
+            throws DataAccessObjectInitializationException {
+        List<File> files = MultiFileDataReader.findFiles(config.getString(Config.DAO_NAME));
+        if (files == null) {
+            return getFileReader(daoType, new File(config.getString(Config.DAO_NAME)), config);
+        }
+        List<DataReader> readers = new ArrayList<DataReader>(files.size());
+        for (File file : files) {
+            readers.add(getFileReader(daoType, file, config));
+        }
+        int parallelFiles = config.getReadParallelFiles();
+        logger.info(Messages.getFormattedString("DataAccessObjectFactory.multipleFiles",
+                new String[] {String.valueOf(files.size()), config.getString(Config.DAO_NAME)}));
+        return new MultiFileDataReader(files, readers, parallelFiles, config.getLoadBatchSize());
+    }
+
+    private static DataReader getFileReader(String daoType, File file, Config config) {
+        if (JSONL_READ_TYPE.equalsIgnoreCase(daoType)) {
+            return new JsonLinesFileReader(file, config);
+        } else if (PARQUET_READ_TYPE.equalsIgnoreCase(daoType)) {
+            return new ParquetDataReader(file.getPath(), config);
+        }
+        return new CSVFileReader(file, config, false, false);
+    }
 }
@@ -26,11 +26,13 @@
 
 package com.salesforce.dataloader.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
 
 /**
  * Interface to be implemented for data readers -- data access objects that are used for reading rows of data.
@@ -40,6 +42,12 @@ import com.salesforce.dataloader.model.Row;
  */
 public interface DataReader extends DataAccessObject {
 
+    /**
+     * Total number of rows of a data source that can only be read once, such as standard input, so its rows
+     * cannot be counted before they are read
+     */
+    int UNKNOWN_TOTAL_ROWS = -1;
+
     /**
      * Get a row of data from a data source
      *
@@ -58,8 +66,37 @@ public interface DataReader extends DataAccessObject {
     List<Row> readRowList(int maxRows) throws DataAccessObjectException;
 
     /**
-     * @return Total number of rows that will be read by the current Data Access Object
+     * Get a batch of rows of data from a data source, stored by column
+     *
+     * @param maxRows Maximum number of rows to read in one call
+     * @return a {@link RowBatch} of up to maxRows rows, empty if there are no more rows
+     * @throws DataAccessObjectException
+     */
+    RowBatch readRowBatch(int maxRows) throws DataAccessObjectException;
+
+    /**
+     * @return Total number of rows that will be read by the current Data Access Object, or
+     *         {@link #UNKNOWN_TOTAL_ROWS} if the data source can only be read once
      * @throws DataAccessObjectException
      */
     int getTotalRows() throws DataAccessObjectException;
+
+    /**
+     * Position the reader so that the next row read is the row with the given number, without reading the rows
+     * before it where possible. {@link #getCurrentRowNumber()} returns the new position afterwards.
+     *
+     * @param rowNumber Number of rows from the start of the data to skip
+     * @return false if the reader cannot seek, in which case its position is unchanged
+     * @throws DataAccessObjectException
+     */
+    boolean seekToRow(int rowNumber) throws DataAccessObjectException;
+
+    /**
+     * Limit the rows read to the given columns, so the values of the other columns are not converted at all.
+     * {@link #getColumnNames()} still returns all columns of the data source.
+     *
+     * @param columnNames Names of the columns to read, ignoring case, or null to read all columns
+     * @return false if the reader always reads all columns
+     */
+    boolean setColumnsToRead(Collection<String> columnNames);
 }
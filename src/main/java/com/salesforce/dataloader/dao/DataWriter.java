@@ -32,6 +32,7 @@ import java.util.Map;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
 
 /**
  * Interface to be implemented for data writers -- data access objects that are used for writing rows of data.
@@ -62,4 +63,20 @@ public interface DataWriter extends DataAccessObject {
      * @throws DataAccessObjectException
      */
     boolean writeRowList(List<Row> inputRowList) throws DataAccessObjectException;
+
+    /**
+     * @param inputBatch rows to write, stored by column
+     * @return true if all rows were written
+     * @throws DataAccessObjectException
+     */
+    boolean writeRowBatch(RowBatch inputBatch) throws DataAccessObjectException;
+
+    /**
+     * Writes out the rows the writer still holds, e.g. buffered or not committed yet, reporting a failure instead of
+     * only logging it as {@link #close()} does. Does nothing for writers that write each row as it is passed in.
+     *
+     * @throws DataAccessObjectException
+     */
+    default void finish() throws DataAccessObjectException {
+    }
 }
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Reads the files of a directory or a glob pattern as one data source, in the order of their names. All files
+ * must have the same columns, in any order. The next files are read ahead on background threads by a
+ * {@link PrefetchingDataReader} each while the rows of the current file are handed out, and each file is closed
+ * once its rows have been read.
+ * <p>
+ * Row numbers count the rows of all files. Each row gets two more columns, {@link Config#SOURCE_FILE_COLUMN_NAME}
+ * and {@link Config#SOURCE_FILE_ROW_COLUMN_NAME}, with the name of its file and its row number in the file, so
+ * the success and error files tell where the rows came from.
+ */
+public class MultiFileDataReader implements DataReader {
+
+    private static final Logger logger = LogManager.getLogger(MultiFileDataReader.class);
+    private static final List<String> SOURCE_COLUMNS = Arrays.asList(Config.SOURCE_FILE_COLUMN_NAME,
+            Config.SOURCE_FILE_ROW_COLUMN_NAME);
+    // batches read ahead for each of the next files
+    private static final int PENDING_BATCHES_PER_FILE = 2;
+
+    private final List<File> files;
+    // reader of each file, reading ahead when more than one file is read at a time
+    private final List<DataReader> sources;
+    private final int parallelFiles;
+    private List<String> columnNames;
+    private int[] fileRowCounts;
+    private boolean[] started;
+    private int currentFile;
+    private int currentRowNumber;
+    // schema of the batches last read and of the same batches with the source columns
+    private RowSchema lastReadSchema;
+    private RowSchema lastSchema;
+
+    /**
+     * @param files files read, in order
+     * @param readers reader of each of the files
+     * @param parallelFiles number of files read at the same time
+     * @param batchSize number of rows read per batch from the files read ahead
+     */
+    public MultiFileDataReader(List<File> files, List<DataReader> readers, int parallelFiles, int batchSize) {
+        this.files = new ArrayList<File>(files);
+        this.parallelFiles = Math.max(parallelFiles, 1);
+        this.sources = new ArrayList<DataReader>(readers.size());
+        for (DataReader reader : readers) {
+            sources.add(this.parallelFiles > 1 ? new PrefetchingDataReader(reader, batchSize, PENDING_BATCHES_PER_FILE)
+                    : reader);
+        }
+        this.started = new boolean[readers.size()];
+    }
+
+    /**
+     * @param name value of {@link Config#DAO_NAME}
+     * @return the files in the directory, or matching the glob pattern in the last element of the path, sorted
+     *         by name; null if the name is an existing file, e.g. Report [1].csv, or neither a directory nor a
+     *         pattern
+     */
+    public static List<File> findFiles(String name) throws DataAccessObjectInitializationException {
+        File file = new File(name);
+        PathMatcher matcher;
+        File directory;
+        if (file.isFile()) {
+            return null;
+        } else if (file.isDirectory()) {
+            directory = file;
+            matcher = null;
+        } else if (isGlob(file.getName())) {
+            directory = file.getAbsoluteFile().getParentFile();
+            matcher = directory.toPath().getFileSystem().getPathMatcher("glob:" + file.getName());
+        } else {
+            return null;
+        }
+        List<File> found = new ArrayList<File>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath())) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry) && !entry.getFileName().toString().startsWith(".")
+                        && (matcher == null || matcher.matches(entry.getFileName()))) {
+                    found.add(entry.toFile());
+                }
+            }
+        } catch (IOException e) {
+            String errMsg = Messages.getFormattedString("MultiFileDataReader.errorListing", name);
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+        if (found.isEmpty()) {
+            String errMsg = Messages.getFormattedString("MultiFileDataReader.errorNoFiles", name);
+            logger.error(errMsg);
+            throw new DataAccessObjectInitializationException(errMsg);
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    private static boolean isGlob(String name) {
+        for (char c : new char[] {'*', '?', '[', '{'}) {
+            if (name.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<File> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        open();
+        close();
+    }
+
+    /**
+     * Checks that all files have the columns of the first file. The files are opened one at a time.
+     */
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        close();
+        RowSchema firstSchema = null;
+        for (int i = 0; i < sources.size(); i++) {
+            DataReader source = sources.get(i);
+            source.open();
+            List<String> fileColumns = source.getColumnNames();
+            source.close();
+            if (firstSchema == null) {
+                firstSchema = new RowSchema(fileColumns);
+                columnNames = new ArrayList<String>(fileColumns);
+                columnNames.addAll(SOURCE_COLUMNS);
+            } else if (!hasColumns(new RowSchema(fileColumns), firstSchema)) {
+                String errMsg = Messages.getFormattedString("MultiFileDataReader.errorColumns",
+                        new String[] {files.get(i).getName(), files.get(0).getName()});
+                logger.error(errMsg);
+                throw new DataAccessObjectInitializationException(errMsg);
+            }
+        }
+        logger.info(Messages.getFormattedString("MultiFileDataReader.reading",
+                new String[] {String.valueOf(files.size()), String.valueOf(parallelFiles)}));
+        currentFile = 0;
+        currentRowNumber = 0;
+    }
+
+    private static boolean hasColumns(RowSchema schema, RowSchema expected) {
+        if (schema.getColumnCount() != expected.getColumnCount()) {
+            return false;
+        }
+        for (String column : schema.getColumnNames()) {
+            if (expected.indexOf(column) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < sources.size(); i++) {
+            if (started[i]) {
+                sources.get(i).close();
+                started[i] = false;
+            }
+        }
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    @Override
+    public Row readRow() throws DataAccessObjectException {
+        RowBatch batch = readRowBatch(1);
+        return batch.isEmpty() ? null : batch.getRow(0);
+    }
+
+    @Override
+    public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    /**
+     * @return rows of one file, fewer than maxRows at the end of a file
+     */
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (columnNames == null) {
+            open();
+        }
+        while (currentFile < sources.size()) {
+            startReadingAhead();
+            DataReader source = sources.get(currentFile);
+            int fileRowNumber = source.getCurrentRowNumber();
+            RowBatch batch = source.readRowBatch(maxRows);
+            if (!batch.isEmpty()) {
+                currentRowNumber += batch.size();
+                return withSourceColumns(batch, fileRowNumber);
+            }
+            source.close();
+            started[currentFile] = false;
+            currentFile++;
+        }
+        return new RowBatch(new RowSchema(columnNames), 0);
+    }
+
+    /**
+     * Starts reading the files that are read at the same time as the current file.
+     */
+    private void startReadingAhead() throws DataAccessObjectException {
+        for (int i = currentFile; i < Math.min(currentFile + parallelFiles, sources.size()); i++) {
+            if (!started[i]) {
+                startFile(i);
+                if (sources.get(i) instanceof PrefetchingDataReader) {
+                    ((PrefetchingDataReader)sources.get(i)).readAhead();
+                }
+            }
+        }
+    }
+
+    private void startFile(int file) throws DataAccessObjectException {
+        sources.get(file).open();
+        started[file] = true;
+    }
+
+    private RowBatch withSourceColumns(RowBatch batch, int fileRowNumber) {
+        if (batch.getSchema() != lastReadSchema) {
+            List<String> names = new ArrayList<String>(batch.getSchema().getColumnNames());
+            names.addAll(SOURCE_COLUMNS);
+            lastSchema = new RowSchema(names);
+            lastReadSchema = batch.getSchema();
+        }
+        Object[] fileNames = new Object[batch.size()];
+        Object[] fileRows = new Object[batch.size()];
+        String fileName = files.get(currentFile).getName();
+        for (int i = 0; i < fileNames.length; i++) {
+            fileNames[i] = fileName;
+            fileRows[i] = fileRowNumber + i + 1;
+        }
+        return batch.withColumns(lastSchema, fileNames, fileRows);
+    }
+
+    /**
+     * Counts the rows of the files not counted yet. The files that are not being read are closed again.
+     */
+    @Override
+    public int getTotalRows() throws DataAccessObjectException {
+        if (columnNames == null) {
+            open();
+        }
+        if (fileRowCounts == null) {
+            fileRowCounts = new int[sources.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                fileRowCounts[i] = sources.get(i).getTotalRows();
+                if (!started[i]) {
+                    sources.get(i).close();
+                }
+            }
+        }
+        long totalRows = 0;
+        for (int rows : fileRowCounts) {
+            totalRows += rows;
+        }
+        return (int)Math.min(totalRows, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Moves to the file of the row, seeking to the row in it if its reader can.
+     */
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        // past the last row is the end of the last file
+        rowNumber = Math.min(rowNumber, getTotalRows());
+        close();
+        currentFile = 0;
+        int fileRowNumber = rowNumber;
+        while (currentFile < sources.size() && fileRowNumber >= fileRowCounts[currentFile]) {
+            fileRowNumber -= fileRowCounts[currentFile++];
+        }
+        currentRowNumber = rowNumber - fileRowNumber;
+        if (fileRowNumber > 0) {
+            DataReader source = sources.get(currentFile);
+            startFile(currentFile);
+            if (!source.seekToRow(fileRowNumber)) {
+                while (source.getCurrentRowNumber() < fileRowNumber) {
+                    int rows = Math.min(1000, fileRowNumber - source.getCurrentRowNumber());
+                    if (source.readRowBatch(rows).isEmpty()) {
+                        break;
+                    }
+                }
+            }
+            currentRowNumber += source.getCurrentRowNumber();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnNames) {
+        boolean isSupported = true;
+        for (DataReader source : sources) {
+            isSupported &= source.setColumnsToRead(columnNames);
+        }
+        return isSupported;
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Reads batches of rows from another {@link DataReader} on a background thread, so reading the data source
+ * overlaps with processing the rows already read. At most a fixed number of batches is read ahead of the
+ * caller; the background thread waits while they are all pending.
+ * <p>
+ * An exception reading a batch is thrown to the caller once the batches read before it have been returned.
+ * Calls that reposition the reader, such as {@link #open()} or {@link #seekToRow(int)}, stop reading ahead
+ * and discard the pending batches first.
+ */
+public class PrefetchingDataReader implements DataReader {
+
+    private static final Logger logger = LogManager.getLogger(PrefetchingDataReader.class);
+
+    private final DataReader reader;
+    private final int batchSize;
+    private final int maxPendingBatches;
+
+    // RowBatch or DataAccessObjectException, an empty batch is queued at the end of the data
+    private BlockingQueue<Object> pendingBatches;
+    private Thread prefetchThread;
+    private volatile boolean stopping;
+    private RowBatch currentBatch;
+    private int currentIndex;
+    private RowBatch endBatch;
+    private int currentRowNumber;
+
+    /**
+     * @param reader reader to read ahead from, only used by the background thread while it is running
+     * @param batchSize number of rows to read per batch unless the caller asks for batches of another size
+     * @param maxPendingBatches maximum number of batches read ahead of the caller
+     */
+    public PrefetchingDataReader(DataReader reader, int batchSize, int maxPendingBatches) {
+        this.reader = reader;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxPendingBatches = Math.max(maxPendingBatches, 1);
+    }
+
+    /**
+     * @return the reader being read ahead from
+     */
+    public DataReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Starts reading ahead without waiting for the first read, e.g. while the caller is still busy with another
+     * data source.
+     */
+    public void readAhead() {
+        if (prefetchThread == null && currentBatch == null && endBatch == null) {
+            startPrefetch(batchSize);
+        }
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        stopPrefetch();
+        reader.open();
+        currentRowNumber = reader.getCurrentRowNumber();
+    }
+
+    @Override
+    public void close() {
+        stopPrefetch();
+        reader.close();
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        stopPrefetch();
+        reader.checkConnection();
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return reader.getColumnNames();
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    @Override
+    public int getTotalRows() throws DataAccessObjectException {
+        restorePosition();
+        int totalRows = reader.getTotalRows();
+        // counting may have reopened the reader
+        currentRowNumber = reader.getCurrentRowNumber();
+        return totalRows;
+    }
+
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        restorePosition();
+        boolean seeked = reader.seekToRow(rowNumber);
+        currentRowNumber = reader.getCurrentRowNumber();
+        return seeked;
+    }
+
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnNames) {
+        // the batches read ahead have the previous columns
+        try {
+            restorePosition();
+        } catch (DataAccessObjectException e) {
+            logger.warn("Unable to discard the rows read ahead, reading all columns", e);
+            return false;
+        }
+        return reader.setColumnsToRead(columnNames);
+    }
+
+    @Override
+    public Row readRow() throws DataAccessObjectException {
+        if (!nextBatch(batchSize)) {
+            return null;
+        }
+        currentRowNumber++;
+        return currentBatch.getRow(currentIndex++);
+    }
+
+    @Override
+    public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (!nextBatch(maxRows)) {
+            return endBatch;
+        }
+        RowBatch batch = currentBatch;
+        int rows = Math.min(maxRows, batch.size() - currentIndex);
+        if (currentIndex > 0 || rows < batch.size()) {
+            // the batch was read with another size, hand out part of it
+            batch = new RowBatch(currentBatch.getSchema(), rows);
+            for (int i = 0; i < rows; i++) {
+                int row = batch.addRow();
+                for (int column = 0; column < batch.getSchema().getColumnCount(); column++) {
+                    batch.setValue(row, column, currentBatch.getValue(currentIndex + i, column));
+                }
+            }
+        }
+        currentIndex += rows;
+        currentRowNumber += rows;
+        return batch;
+    }
+
+    /**
+     * Makes the next batch with unread rows current, starting to read ahead if necessary.
+     *
+     * @return false at the end of the data
+     */
+    private boolean nextBatch(int readSize) throws DataAccessObjectException {
+        while (currentBatch == null || currentIndex >= currentBatch.size()) {
+            currentBatch = null;
+            if (endBatch != null) {
+                return false;
+            }
+            if (prefetchThread == null) {
+                startPrefetch(readSize);
+            }
+            Object next;
+            try {
+                next = pendingBatches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessObjectException(e);
+            }
+            if (next instanceof DataAccessObjectException) {
+                stopPrefetch();
+                throw (DataAccessObjectException)next;
+            }
+            RowBatch batch = (RowBatch)next;
+            if (batch.isEmpty()) {
+                endBatch = batch;
+                return false;
+            }
+            currentBatch = batch;
+            currentIndex = 0;
+        }
+        return true;
+    }
+
+    private void startPrefetch(final int readSize) {
+        final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(maxPendingBatches);
+        pendingBatches = queue;
+        stopping = false;
+        prefetchThread = new Thread(() -> prefetch(queue, readSize), "DataReader prefetch");
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+    }
+
+    private void prefetch(BlockingQueue<Object> queue, int readSize) {
+        try {
+            while (!stopping) {
+                Object next;
+                try {
+                    next = reader.readRowBatch(readSize);
+                } catch (DataAccessObjectException e) {
+                    next = e;
+                } catch (RuntimeException e) {
+                    next = new DataAccessObjectException(e.getMessage(), e);
+                }
+                queue.put(next);
+                if (!(next instanceof RowBatch) || ((RowBatch)next).isEmpty()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops reading ahead and discards the batches not handed out yet. The background thread is not interrupted,
+     * since that closes the file channel or aborts the database fetch it may be reading from; it finishes the batch it
+     * is reading and stops.
+     */
+    private void stopPrefetch() {
+        if (prefetchThread != null) {
+            stopping = true;
+            try {
+                while (prefetchThread.isAlive()) {
+                    // makes room for the batch being read, so the thread does not wait for the caller
+                    pendingBatches.clear();
+                    prefetchThread.join(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while stopping to read ahead", e);
+            }
+            prefetchThread = null;
+            pendingBatches = null;
+        }
+        currentBatch = null;
+        endBatch = null;
+    }
+
+    /**
+     * Stops reading ahead and moves the reader back to the first row not handed out yet.
+     */
+    private void restorePosition() throws DataAccessObjectException {
+        stopPrefetch();
+        if (reader.getCurrentRowNumber() != currentRowNumber && !reader.seekToRow(currentRowNumber)) {
+            reader.close();
+            reader.open();
+            while (reader.getCurrentRowNumber() < currentRowNumber) {
+                int rows = Math.min(batchSize, currentRowNumber - reader.getCurrentRowNumber());
+                if (reader.readRowBatch(rows).isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a block gzip (BGZF) file, inflating its members on a fork-join pool. Every member of such a
+ * file stores its compressed size in a "BC" extra field of its header, so the members can be split off
+ * without inflating them. The members are read from the file in order, and only a bounded number of them is
+ * inflated ahead of the reader.
+ */
+class BlockGzipInputStream extends InputStream {
+
+    private static final int HEADER_SIZE = 18;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FEXTRA = 4;
+    private static final int MAX_BLOCK_SIZE = 65536;
+
+    private final FileChannel channel;
+    private final long size;
+    private final ForkJoinPool pool;
+    private final int maxPendingBlocks;
+    private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+    private long nextBlockStart;
+    private byte[] currentBlock = new byte[0];
+    private int currentPosition;
+
+    BlockGzipInputStream(File file, int parallelism) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxPendingBlocks = parallelism * 2;
+    }
+
+    /**
+     * @return true if the file starts with a gzip member that has a BGZF block size
+     */
+    static boolean isBlockGzip(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // read the whole header
+            }
+            return !header.hasRemaining() && getBlockSize(header) > 0;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return currentBlock[currentPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, currentBlock.length - currentPosition);
+        System.arraycopy(currentBlock, currentPosition, b, off, n);
+        currentPosition += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        pendingBlocks.clear();
+        channel.close();
+    }
+
+    /**
+     * @return false at the end of the file
+     */
+    private boolean fill() throws IOException {
+        while (currentPosition >= currentBlock.length) {
+            submitBlocks();
+            Future<byte[]> next = pendingBlocks.poll();
+            if (next == null) {
+                return false;
+            }
+            currentBlock = await(next);
+            currentPosition = 0;
+        }
+        return true;
+    }
+
+    private void submitBlocks() throws IOException {
+        while (pendingBlocks.size() < maxPendingBlocks && nextBlockStart < size) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, nextBlockStart);
+            int blockSize = getBlockSize(header);
+            if (blockSize <= 0) {
+                throw new ZipException("Not a block gzip member at offset " + nextBlockStart);
+            }
+            final byte[] block = new byte[blockSize];
+            readFully(ByteBuffer.wrap(block), nextBlockStart);
+            pendingBlocks.add(pool.submit(() -> inflate(block)));
+            nextBlockStart += blockSize;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of block gzip file at offset " + position);
+            }
+        }
+    }
+
+    /**
+     * @return the size of the whole member from its BGZF extra field, or -1 if the header has none
+     */
+    private static int getBlockSize(ByteBuffer header) {
+        boolean bgzf = (header.get(0) & 0xFF) == 0x1F && (header.get(1) & 0xFF) == 0x8B && header.get(2) == 8
+                && (header.get(3) & 0xFF) == FEXTRA && header.getShort(10) == 6
+                && header.get(12) == 'B' && header.get(13) == 'C' && header.getShort(14) == 2;
+        return bgzf ? (header.getShort(16) & 0xFFFF) + 1 : -1;
+    }
+
+    private static byte[] inflate(byte[] block) throws IOException {
+        ByteBuffer trailer = ByteBuffer.wrap(block, block.length - TRAILER_SIZE, TRAILER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int expectedCrc = trailer.getInt();
+        int inflatedSize = trailer.getInt();
+        if (inflatedSize < 0 || inflatedSize > MAX_BLOCK_SIZE) {
+            throw new ZipException("Invalid block gzip member size " + Integer.toUnsignedString(inflatedSize));
+        }
+        byte[] inflated = new byte[inflatedSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, HEADER_SIZE, block.length - HEADER_SIZE - TRAILER_SIZE);
+            int n = 0;
+            while (n < inflatedSize && !inflater.finished()) {
+                int inflatedBytes = inflater.inflate(inflated, n, inflatedSize - n);
+                if (inflatedBytes == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflatedBytes;
+            }
+            if (n != inflatedSize) {
+                throw new ZipException("Truncated block gzip member");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(inflated);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new ZipException("Corrupt block gzip member, CRC mismatch");
+        }
+        return inflated;
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException ioe = new InterruptedIOException(e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
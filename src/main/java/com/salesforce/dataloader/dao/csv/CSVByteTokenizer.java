@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Splits CSV records directly from the bytes of the input, following the same dialect as
+ * {@link com.sforce.async.CSVReader}: values may be quoted, a quote inside a quoted value is written twice,
+ * line breaks inside a quoted value are read as LF, and blank records are skipped.
+ * <p>
+ * Field bytes are collected in a buffer that is reused for every record, and a field is only decoded to a
+ * String when it is read from the record. Only usable for charsets accepted by
+ * {@link CSVRecordScanner#supports(Charset)} and separators accepted by {@link #supports(char[])}.
+ */
+class CSVByteTokenizer {
+
+    // the limits enforced by com.sforce.async.CSVReader
+    static final int MAX_COLUMNS_PER_RECORD = 5000;
+    static final int MAX_FIELD_CHARS = 131072;
+    static final int MAX_RECORD_CHARS = 400000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final InputStream input;
+    private final Charset charset;
+    private final boolean utf8;
+    private final boolean[] separators = new boolean[128];
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private int lineNumber = 1;
+
+    // unescaped values of the current record, field i ends at fieldEnds[i]
+    private byte[] values = new byte[4096];
+    private int valuesLength;
+    private int[] fieldEnds = new int[64];
+    private String[] fields = new String[64];
+    private int fieldCount;
+    private final Record record = new Record();
+
+    /**
+     * @param skipBOM true if the input is at the start of the file, where a UTF-8 byte order mark is skipped
+     */
+    CSVByteTokenizer(InputStream input, Charset charset, char[] csvDelimiters, boolean skipBOM) throws IOException {
+        this.input = input;
+        this.charset = charset;
+        this.utf8 = StandardCharsets.UTF_8.equals(charset);
+        for (char delimiter : csvDelimiters) {
+            if (delimiter < separators.length) {
+                separators[delimiter] = true;
+            }
+        }
+        if (utf8 && skipBOM && ensure(UTF8_BOM.length)
+                && buffer[0] == UTF8_BOM[0] && buffer[1] == UTF8_BOM[1] && buffer[2] == UTF8_BOM[2]) {
+            position = UTF8_BOM.length;
+        }
+    }
+
+    /**
+     * Separators have to be single ASCII bytes that cannot be confused with quotes or line breaks.
+     */
+    static boolean supports(char[] csvDelimiters) {
+        for (char delimiter : csvDelimiters) {
+            if (delimiter >= 0x80 || delimiter == QUOTE || delimiter == LF || delimiter == CR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the next non-blank record, or null at the end of the input. The returned list is reused for
+     *         the following record, so its values have to be read before calling this method again.
+     */
+    List<String> nextRecord() throws IOException {
+        while (readRecord()) {
+            if (fieldCount > 1 || valuesLength > 0) {
+                if (valuesLength > MAX_RECORD_CHARS) {
+                    int recordChars = charCount(0, valuesLength);
+                    if (recordChars > MAX_RECORD_CHARS) {
+                        throw parseError("Exceeded max length for one record: " + recordChars
+                                + ". Max length for one record should be less than or equal to " + MAX_RECORD_CHARS);
+                    }
+                }
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private boolean readRecord() throws IOException {
+        valuesLength = 0;
+        fieldCount = 0;
+        if (!ensure(1)) {
+            return false;
+        }
+        while (true) {
+            if (ensure(1) && buffer[position] == QUOTE) {
+                position++;
+                readQuotedValue();
+            } else {
+                readValue();
+            }
+            endField();
+            if (!ensure(1)) {
+                return true;
+            }
+            byte b = buffer[position++];
+            if (b == LF) {
+                lineNumber++;
+                return true;
+            }
+            if (b == CR) {
+                lineNumber++;
+                if (ensure(1) && buffer[position] == LF) {
+                    position++;
+                }
+                return true;
+            }
+            // a separator, the next field follows
+        }
+    }
+
+    /**
+     * Reads an unquoted value up to the next separator, line break or the end of the input.
+     */
+    private void readValue() throws IOException {
+        while (ensure(1)) {
+            int start = position;
+            int end = start;
+            while (end < limit) {
+                byte b = buffer[end];
+                if (b == LF || b == CR || b == QUOTE || (b >= 0 && separators[b])) {
+                    break;
+                }
+                end++;
+            }
+            append(start, end - start);
+            position = end;
+            if (end < limit) {
+                // a value starting with a quote is read as a quoted value, so this quote follows text
+                if (buffer[end] == QUOTE) {
+                    throw parseError("Found unescaped quote. A value with quote should be within a quote");
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a quoted value after its opening quote, up to and including its closing quote.
+     */
+    private void readQuotedValue() throws IOException {
+        while (true) {
+            if (!ensure(1)) {
+                throw parseError("EOF reached before closing an opened quote");
+            }
+            int start = position;
+            int end = start;
+            while (end < limit && buffer[end] != QUOTE && buffer[end] != CR) {
+                if (buffer[end] == LF) {
+                    lineNumber++;
+                }
+                end++;
+            }
+            append(start, end - start);
+            position = end;
+            if (end == limit) {
+                continue;
+            }
+            position++;
+            if (buffer[end] == CR) {
+                // line breaks inside values are read as LF
+                lineNumber++;
+                appendByte(LF);
+                if (ensure(1) && buffer[position] == LF) {
+                    position++;
+                }
+            } else if (ensure(1) && buffer[position] == QUOTE) {
+                appendByte(QUOTE);
+                position++;
+            } else {
+                if (ensure(1)) {
+                    byte b = buffer[position];
+                    if (b != LF && b != CR && !(b >= 0 && separators[b])) {
+                        throw parseError("Not expecting more text after end quote");
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void endField() throws IOException {
+        if (fieldCount == fieldEnds.length) {
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fields = Arrays.copyOf(fields, fieldCount * 2);
+        }
+        int fieldStart = fieldCount == 0 ? 0 : fieldEnds[fieldCount - 1];
+        if (valuesLength - fieldStart > MAX_FIELD_CHARS) {
+            int fieldChars = charCount(fieldStart, valuesLength - fieldStart);
+            if (fieldChars > MAX_FIELD_CHARS) {
+                throw parseError("Exceeded max field size: " + fieldChars);
+            }
+        }
+        fieldEnds[fieldCount] = valuesLength;
+        fields[fieldCount] = null;
+        fieldCount++;
+        if (fieldCount > MAX_COLUMNS_PER_RECORD) {
+            throw parseError("Exceeded max number of columns per record : " + MAX_COLUMNS_PER_RECORD);
+        }
+    }
+
+    private String getField(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of a record with " + fieldCount + " fields");
+        }
+        String field = fields[index];
+        if (field == null) {
+            int start = index == 0 ? 0 : fieldEnds[index - 1];
+            int length = fieldEnds[index] - start;
+            if (length == 0) {
+                // an empty value is read as null, like com.sforce.async.CSVReader does
+                return null;
+            }
+            field = new String(values, start, length, charset);
+            fields[index] = field;
+        }
+        return field;
+    }
+
+    /**
+     * @return the number of chars the bytes decode to
+     */
+    private int charCount(int start, int length) {
+        if (!utf8) {
+            return length;
+        }
+        int chars = 0;
+        for (int i = start; i < start + length; i++) {
+            int b = values[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                // a 4 byte sequence decodes to a surrogate pair
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    private void append(int start, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (valuesLength + length > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, valuesLength + length));
+        }
+        System.arraycopy(buffer, start, values, valuesLength, length);
+        valuesLength += length;
+    }
+
+    private void appendByte(byte b) {
+        if (valuesLength == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[valuesLength++] = b;
+    }
+
+    /**
+     * Makes at least the given number of bytes available at the buffer position, unless the input ends first.
+     *
+     * @return false if fewer bytes are left in the input
+     */
+    private boolean ensure(int count) throws IOException {
+        if (limit - position >= count) {
+            return true;
+        }
+        if (endOfInput) {
+            return false;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < count) {
+            int read = input.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private IOException parseError(String message) {
+        return new IOException(message + " (line " + lineNumber + ")");
+    }
+
+    /**
+     * The current record, decoding each field the first time it is read.
+     */
+    private class Record extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return getField(index);
+        }
+
+        @Override
+        public int size() {
+            return fieldCount;
+        }
+    }
+}
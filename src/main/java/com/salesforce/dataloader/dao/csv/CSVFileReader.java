@@ -30,14 +30,21 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -49,12 +56,16 @@ import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.DataAccessRowException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import com.salesforce.dataloader.util.AppUtil;
 import com.salesforce.dataloader.util.DAORowUtil;
 import com.sforce.async.CSVReader;
 
 /**
- * Wrapper around {@link CSVReader} that allows to read CSV files
+ * Wrapper around {@link CSVReader} that allows to read CSV files. The file named
+ * {@link Config#DAO_NAME_STANDARD_STREAM} is standard input, which is read once: its rows are neither counted
+ * nor indexed, and only the header read when checking the connection is kept for the next open.
  *
  * @author Federico Recio
  */
@@ -63,11 +74,22 @@ public class CSVFileReader implements DataReader {
     private static final Logger LOGGER = LogManager.getLogger(CSVFileReader.class);
     private final Object lock = new Object();
     private File file;
-    private FileInputStream input;
+    private final boolean isStandardInput;
+    private boolean isStandardInputRead;
+    private InputStream input;
+    private CSVInputCompression compression = CSVInputCompression.NONE;
     private int totalRows;
     private CSVReader csvReader;
+    private CSVByteTokenizer byteTokenizer;
+    private CSVParallelRecordReader parallelReader;
+    private CSVRecordIndex recordIndex;
     private int currentRowNumber;
     private List<String> headerRow;
+    private RowSchema rowSchema;
+    private Collection<String> columnsToRead;
+    // positions in a record of the columns read, and their slots in rowSchema
+    private int[] recordColumns;
+    private int[] schemaSlots;
     private boolean isOpen;
     private char[] csvDelimiters;
     private Config config;
@@ -91,6 +113,7 @@ public class CSVFileReader implements DataReader {
     //    isQueryOperationsResult value is ignored if ignoreDelimiterConfig is 'true'. 
     public CSVFileReader(File file, Config config, boolean ignoreDelimiterConfig, boolean isQueryOperationResult) {
         this.file = file;
+        this.isStandardInput = Config.DAO_NAME_STANDARD_STREAM.equals(file.getPath());
         this.config = config;
         StringBuilder separator = new StringBuilder();
         if (ignoreDelimiterConfig) {
@@ -134,6 +157,11 @@ public class CSVFileReader implements DataReader {
         if (isOpen) {
             close();
         }
+        if (isStandardInput && input != null && headerRow != null) {
+            // only the header has been read from standard input
+            isOpen = true;
+            return;
+        }
         currentRowNumber = 0;
 
         initalizeInput(csvDelimiters);
@@ -146,29 +174,46 @@ public class CSVFileReader implements DataReader {
      */
     @Override
     public void close() {
+        if (isStandardInput && input != null && currentRowNumber == 0) {
+            // standard input cannot be opened again, keep the header for the next open
+            isOpen = false;
+            return;
+        }
         try {
             IOUtils.closeQuietly(input);
+            IOUtils.closeQuietly(parallelReader);
         } finally {
             input = null;
             csvReader = null;
+            byteTokenizer = null;
+            parallelReader = null;
             isOpen = false;
         }
     }
     
     @Override
     public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
-        List<Row> outputRows = new ArrayList<Row>();
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        RowBatch batch = new RowBatch(rowSchema, maxRows);
         for (int i = 0; i < maxRows; i++) {
-            Row outputRow = readRow();
-            if (outputRow != null) {
-                // if row has been returned, add it to the output
-                outputRows.add(outputRow);
-            } else {
+            List<String> record = readRecord();
+            if (record == null) {
                 // if encountered null, the reading is over
                 break;
             }
+            int batchRow = batch.addRow();
+            for (int column = 0; column < recordColumns.length; column++) {
+                batch.setValue(batchRow, schemaSlots[column], getValue(record, recordColumns[column]));
+            }
         }
-        return outputRows;
+        return batch;
     }
 
     /**
@@ -180,11 +225,27 @@ public class CSVFileReader implements DataReader {
         if (!isOpen) {
             open();
         }
+        List<String> record = readRecord();
+        if (record == null) {
+            return null;
+        }
+        Row row = new Row(rowSchema);
+        for (int i = 0; i < recordColumns.length; i++) {
+            row.put(rowSchema.getColumnName(schemaSlots[i]), getValue(record, recordColumns[i]));
+        }
+        return row;
+    }
 
+    /**
+     * Reads the next record and checks it has a value for every column of the header.
+     *
+     * @return null at the end of the file
+     */
+    private List<String> readRecord() throws DataAccessObjectException {
         List<String> record;
         synchronized (lock) {
             try {
-                record = csvReader.nextRecord();
+                record = nextRecord();
             } catch (IOException e) {
                 throw new DataAccessObjectException(e);
             }
@@ -203,18 +264,53 @@ public class CSVFileReader implements DataReader {
                     String.valueOf(currentRowNumber), String.valueOf(record.size()), String.valueOf(headerRow.size())});
             throw new DataAccessRowException(errMsg);
         }
+        currentRowNumber++;
+        return record;
+    }
 
-        Row row = new Row(record.size());
+    private static String getValue(List<String> record, int column) {
+        String value = record.get(column);
+        return value == null ? "" : value;
+    }
 
-        for (int i = 0; i < headerRow.size(); i++) {
-            String value = record.get(i);
-            if (value == null) {
-                value = "";
+    /**
+     * Only the values of the given columns are decoded from the records when the file is read with the byte
+     * tokenizer; they are still parsed by {@link CSVReader} otherwise.
+     */
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnNames) {
+        this.columnsToRead = columnNames == null ? null : new ArrayList<String>(columnNames);
+        if (headerRow != null) {
+            initializeReadColumns();
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the record positions of the columns read once for all records. If the header repeats a column,
+     * its last value is read, like for a row that puts the values of all columns.
+     */
+    private void initializeReadColumns() {
+        rowSchema = new RowSchema(headerRow).select(columnsToRead);
+        int[] columns = new int[headerRow.size()];
+        int[] slots = new int[headerRow.size()];
+        int count = 0;
+        for (int column = 0; column < headerRow.size(); column++) {
+            int slot = rowSchema.indexOf(headerRow.get(column));
+            if (slot >= 0) {
+                columns[count] = column;
+                slots[count++] = slot;
             }
-            row.put(headerRow.get(i), value);
         }
-        currentRowNumber++;
-        return row;
+        recordColumns = Arrays.copyOf(columns, count);
+        schemaSlots = Arrays.copyOf(slots, count);
+        if (parallelReader != null) {
+            parallelReader.setColumnsToRead(columnsToRead == null ? null : recordColumns);
+        }
+        if (columnsToRead != null) {
+            LOGGER.info(Messages.getFormattedString("CSVFileDAO.readingColumns", new String[] {
+                    String.valueOf(rowSchema.getColumnCount()), String.valueOf(headerRow.size()), file.getName() }));
+        }
     }
 
     /**
@@ -226,19 +322,61 @@ public class CSVFileReader implements DataReader {
     }
 
     /*
-     * Returns the number of rows in the file. <i>Side effect:</i> Moves the row pointer to the first row
+     * Returns the number of rows in the file. The rows are counted from the raw bytes when the file's encoding
+     * allows it. Otherwise all rows are read. <i>Side effect:</i> in that case moves the row pointer to the first row
      */
     @Override
     public int getTotalRows() throws DataAccessObjectException {
+        if (isStandardInput) {
+            return UNKNOWN_TOTAL_ROWS;
+        }
         if (totalRows == 0) {
             if (!isOpen) {
                 open();
             }
-            totalRows = DAORowUtil.calculateTotalRows(this);
+            CSVRecordIndex index = getRecordIndex();
+            totalRows = index != null ? index.getTotalRows() : DAORowUtil.calculateTotalRows(this);
         }
         return totalRows;
     }
 
+    /**
+     * Moves to the row using the record index of the file, so the rows before it are neither parsed nor
+     * decoded.
+     */
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        CSVRecordIndex index = getRecordIndex();
+        if (index == null) {
+            return false;
+        }
+        int row = Math.min(rowNumber, index.getTotalRows());
+        synchronized (lock) {
+            try {
+                long offset = getRowOffset(index, row);
+                if (parallelReader != null) {
+                    parallelReader.seek(offset);
+                } else {
+                    IOUtils.closeQuietly(input);
+                    csvReader = null;
+                    byteTokenizer = null;
+                    input = openInput(offset);
+                    initializeRecordReader(config.getCsvEncoding(false), offset == 0);
+                }
+            } catch (IOException e) {
+                close();
+                throw new DataAccessObjectException(e);
+            }
+            currentRowNumber = row;
+        }
+        LOGGER.info(Messages.getFormattedString("CSVFileDAO.positionedAtRow", new String[] {
+                file.getName(), String.valueOf(row) }));
+        return true;
+    }
+
     /**
      * @return Current record number that has been read
      */
@@ -250,12 +388,15 @@ public class CSVFileReader implements DataReader {
     private void readHeaderRow() throws DataAccessObjectInitializationException {
         try {
             synchronized (lock) {
-                headerRow = csvReader.nextRecord();
+                List<String> record = nextRecord();
+                // the byte tokenizer reuses its record
+                headerRow = record == null ? null : new ArrayList<String>(record);
             }
             if (headerRow == null) {
                 LOGGER.error(Messages.getString("CSVFileDAO.errorHeaderRow"));
                 throw new DataAccessObjectInitializationException(Messages.getString("CSVFileDAO.errorHeaderRow"));
             }
+            initializeReadColumns();
             LOGGER.debug(Messages.getFormattedString(
                     "CSVFileDAO.debugMessageHeaderRowSize", headerRow.size()));
 
@@ -268,37 +409,35 @@ public class CSVFileReader implements DataReader {
             // if there's a problem getting header row, the stream needs to be closed
             if (headerRow == null) {
                 IOUtils.closeQuietly(input);
+                IOUtils.closeQuietly(parallelReader);
             }
         }
     }
 
+    private List<String> nextRecord() throws IOException {
+        if (parallelReader != null) {
+            return parallelReader.nextRecord();
+        }
+        return byteTokenizer != null ? byteTokenizer.nextRecord() : csvReader.nextRecord();
+    }
+
     private void initalizeInput(char[] csvDelimiters) throws DataAccessObjectInitializationException {
 
         try {
-            input = new FileInputStream(file);
             String encoding = this.config.getCsvEncoding(false);
-            if (StandardCharsets.UTF_8.name().equals(encoding)
-                || StandardCharsets.UTF_16BE.name().equals(encoding)
-                || StandardCharsets.UTF_16LE.name().equals(encoding)
-                || "UTF-32LE".equals(encoding)
-                || "UTF-32BE".equals(encoding)) {
-                BOMInputStream bomInputStream = 
-                        BOMInputStream.builder()
-                                        .setFile(file)
-                                        .setByteOrderMarks(ByteOrderMark.UTF_8,
-                                                            ByteOrderMark.UTF_16LE,
-                                                            ByteOrderMark.UTF_16BE,
-                                                            ByteOrderMark.UTF_32LE,
-                                                            ByteOrderMark.UTF_32BE)
-                                        .setInclude(false)
-                                        .get();
-                csvReader = new CSVReader(bomInputStream, encoding, csvDelimiters);
-            } else {
-                csvReader = new CSVReader(input, encoding, csvDelimiters);
-                LOGGER.debug(this.getClass().getName(), "encoding used to read from CSV file is " + encoding);
+            if (isStandardInput) {
+                initializeStandardInput(encoding);
+                return;
+            }
+            compression = CSVInputCompression.detect(file);
+            if (compression != CSVInputCompression.NONE) {
+                LOGGER.info("Decompressing " + compression + " file " + file.getName() + " while reading it");
+            } else if (config.getBoolean(Config.DAO_CSV_PARALLEL_READ)
+                    && initializeParallelInput(encoding, csvDelimiters)) {
+                return;
             }
-            csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
-            csvReader.setMaxCharsInFile(Integer.MAX_VALUE);
+            input = openInput(0);
+            initializeRecordReader(encoding, true);
         } catch (FileNotFoundException e) {
             String errMsg = Messages.getFormattedString("CSVFileDAO.errorOpen", file.getAbsolutePath());
             LOGGER.error(errMsg, e);
@@ -310,9 +449,171 @@ public class CSVFileReader implements DataReader {
         } catch (IOException e) {
             throw new DataAccessObjectInitializationException(e);
         } finally {
-            if (csvReader == null) {
+            if (csvReader == null && byteTokenizer == null) {
                 IOUtils.closeQuietly(input);
             }
         }
     }
+
+    private void initializeStandardInput(String encoding) throws IOException, DataAccessObjectInitializationException {
+        if (isStandardInputRead) {
+            String errMsg = Messages.getString("CSVFileDAO.errorStandardInputReopened");
+            LOGGER.error(errMsg);
+            throw new DataAccessObjectInitializationException(errMsg);
+        }
+        isStandardInputRead = true;
+        // the loader does not own standard input
+        input = CloseShieldInputStream.wrap(System.in);
+        initializeRecordReader(encoding, true);
+    }
+
+    /**
+     * @return the content of the file from the given offset, decompressed if the file is compressed
+     */
+    private InputStream openInput(long offset) throws IOException {
+        if (compression == CSVInputCompression.NONE) {
+            FileInputStream in = new FileInputStream(file);
+            in.getChannel().position(offset);
+            return in;
+        }
+        // a compressed file is inflated in parallel if it is read in parallel
+        int parallelism = config.getBoolean(Config.DAO_CSV_PARALLEL_READ) ? config.getCsvParallelReadThreads() : 1;
+        InputStream in = compression.open(file, parallelism);
+        try {
+            IOUtils.skipFully(in, offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(in);
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Sets up the parser of the records in {@link #input}.
+     *
+     * @param atStart true if the input is at the start of the file, where a byte order mark is skipped
+     */
+    private void initializeRecordReader(String encoding, boolean atStart) throws IOException {
+        Charset tokenizerCharset = getByteTokenizerCharset();
+        if (tokenizerCharset != null) {
+            byteTokenizer = new CSVByteTokenizer(input, tokenizerCharset, csvDelimiters, atStart);
+            return;
+        }
+        if (atStart && (StandardCharsets.UTF_8.name().equals(encoding)
+            || StandardCharsets.UTF_16BE.name().equals(encoding)
+            || StandardCharsets.UTF_16LE.name().equals(encoding)
+            || "UTF-32LE".equals(encoding)
+            || "UTF-32BE".equals(encoding))) {
+            BOMInputStream bomInputStream = 
+                    BOMInputStream.builder()
+                                    .setInputStream(input)
+                                    .setByteOrderMarks(ByteOrderMark.UTF_8,
+                                                        ByteOrderMark.UTF_16LE,
+                                                        ByteOrderMark.UTF_16BE,
+                                                        ByteOrderMark.UTF_32LE,
+                                                        ByteOrderMark.UTF_32BE)
+                                    .setInclude(false)
+                                    .get();
+            csvReader = new CSVReader(bomInputStream, encoding, csvDelimiters);
+        } else {
+            csvReader = new CSVReader(input, encoding, csvDelimiters);
+            LOGGER.debug(this.getClass().getName(), "encoding used to read from CSV file is " + encoding);
+        }
+        csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
+        csvReader.setMaxCharsInFile(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the offset of the row in the content of the file, the end of the content past the last row
+     */
+    private long getRowOffset(CSVRecordIndex index, int row) throws IOException {
+        if (compression == CSVInputCompression.NONE) {
+            return row < index.getTotalRows() ? index.getRowOffset(file, row) : file.length();
+        }
+        try (InputStream in = compression.open(file, 1)) {
+            if (row < index.getTotalRows()) {
+                return index.getRowOffset(in, row);
+            }
+            long length = 0;
+            for (long skipped = in.skip(Long.MAX_VALUE); skipped > 0; skipped = in.skip(Long.MAX_VALUE)) {
+                length += skipped;
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Sets up the memory-mapped, multi-threaded reader if the file's charset allows it.
+     *
+     * @return false if the charset requires the file to be read sequentially
+     */
+    private boolean initializeParallelInput(String encoding, char[] csvDelimiters) throws IOException {
+        Charset charset = getByteScannableCharset(encoding);
+        if (charset == null) {
+            LOGGER.info("Reading " + file.getName() + " sequentially, the encoding " + encoding
+                    + " does not support parallel reads");
+            return false;
+        }
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.getAbsolutePath());
+        }
+        int threads = config.getCsvParallelReadThreads();
+        parallelReader = new CSVParallelRecordReader(file, charset, csvDelimiters, threads);
+        LOGGER.debug("Reading " + file.getName() + " with " + threads + " parser threads");
+        return true;
+    }
+
+    /**
+     * @return the charset to decode the file with if its records can be split from the raw bytes by
+     *         {@link CSVByteTokenizer}, null if {@link CSVReader} has to read it
+     */
+    private Charset getByteTokenizerCharset() {
+        if (!config.getBoolean(Config.DAO_CSV_BYTE_TOKENIZER) || !CSVByteTokenizer.supports(csvDelimiters)) {
+            return null;
+        }
+        return getByteScannableCharset(config.getCsvEncoding(false));
+    }
+
+    /**
+     * @return the record index of the file, loaded from or saved to its index file if
+     *         {@link Config#DAO_CSV_RECORD_INDEX} is set. null if the file cannot be scanned.
+     */
+    private CSVRecordIndex getRecordIndex() {
+        if (recordIndex == null && !isStandardInput && getByteScannableCharset(config.getCsvEncoding(false)) != null) {
+            boolean persistIndex = config.getBoolean(Config.DAO_CSV_RECORD_INDEX);
+            if (persistIndex) {
+                recordIndex = CSVRecordIndex.load(file);
+            }
+            if (recordIndex == null) {
+                try {
+                    if (compression == CSVInputCompression.NONE) {
+                        recordIndex = CSVRecordIndex.scan(file);
+                    } else {
+                        try (InputStream in = compression.open(file, 1)) {
+                            recordIndex = CSVRecordIndex.scan(file, in);
+                        }
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to scan " + file.getAbsolutePath() + " for rows: " + e.getMessage());
+                    return null;
+                }
+                if (persistIndex) {
+                    recordIndex.save(file);
+                }
+            }
+        }
+        return recordIndex;
+    }
+
+    /**
+     * @return the charset to decode the file with if records can be found by scanning its bytes, null otherwise
+     */
+    private static Charset getByteScannableCharset(String encoding) {
+        try {
+            Charset charset = Charset.forName(encoding);
+            return CSVRecordScanner.supports(charset) ? charset : null;
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
 }
@@ -26,14 +26,17 @@
 
 package com.salesforce.dataloader.dao.csv;
 
-import java.io.BufferedWriter;
+import java.io.FileDescriptor;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
+import java.io.Flushable;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -43,23 +46,31 @@ import com.salesforce.dataloader.dao.DataWriter;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import com.salesforce.dataloader.util.AppUtil;
 
 /**
- * Writes csv files.
+ * Writes csv files. The columns of the rows written are looked up once per row schema, and the records are
+ * encoded by {@link CSVRecordWriter} in large batches. The file named {@link Config#DAO_NAME_STANDARD_STREAM}
+ * is standard output; the console log is kept out of it when that name is given on the command line, see
+ * {@link com.salesforce.dataloader.util.LoggingUtil#initializeLog(java.util.Map)}.
  *
  * @author Lexi Viripaeff
  * @since 6.0
  */
-public class CSVFileWriter implements DataWriter {
+public class CSVFileWriter implements DataWriter, Flushable {
 
     //logger
     private static Logger logger = LogManager.getLogger(CSVFileWriter.class);
 
     private final String fileName;
-    private BufferedWriter fileOut;
+    private CSVRecordWriter fileOut;
     private List<String> columnNames = new ArrayList<String>();
     private int currentRowNumber = 0;
+    // slots of the columns in the schema of the last row written, -1 for columns not in the schema
+    private RowSchema columnSlotsSchema;
+    private int[] columnSlots;
 
     /**
      * <code>open</code> is true if the writer file is open, false otherwise.
@@ -76,10 +87,16 @@ public class CSVFileWriter implements DataWriter {
      */
     private final boolean capitalizedHeadings;
     private final char columnDelimiter;
+    private final CSVOutputCompression compression;
         
     public CSVFileWriter(String fileName, Config config, String columnDelimiterStr) {
+        this(fileName, config, columnDelimiterStr, CSVOutputCompression.NONE);
+    }
+
+    CSVFileWriter(String fileName, Config config, String columnDelimiterStr, CSVOutputCompression compression) {
 
         this.fileName = fileName;
+        this.compression = compression;
         this.capitalizedHeadings = true;
         encoding = config.getCsvEncoding(true);
         logger.debug(this.getClass().getName(), "encoding used to write to CSV file is " + encoding);
@@ -107,20 +124,25 @@ public class CSVFileWriter implements DataWriter {
     @Override
     public void open() throws DataAccessObjectInitializationException {
         try {
-            if (this.encoding != null) {
-                fileOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.fileName), this.encoding));
-            } else {
-                fileOut = new BufferedWriter(new FileWriter(this.fileName));
-            }
+            Charset charset = this.encoding != null ? Charset.forName(this.encoding) : Charset.defaultCharset();
+            fileOut = new CSVRecordWriter(openChannel(), charset, this.columnDelimiter, false);
             currentRowNumber = 0;
             setOpen(true);
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             String errMsg = Messages.getFormattedString("CSVWriter.errorOpening", this.fileName);
             logger.error(errMsg, e);
             throw new DataAccessObjectInitializationException(errMsg, e);
         }
     }
 
+    private WritableByteChannel openChannel() throws IOException {
+        if (Config.DAO_NAME_STANDARD_STREAM.equals(this.fileName)) {
+            // the record writer buffers the records, and unlike System.out the stream fails on a closed pipe
+            return Channels.newChannel(CloseShieldOutputStream.wrap(new FileOutputStream(FileDescriptor.out)));
+        }
+        return compression.open(this.fileName);
+    }
+
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.csv.Writer#close()
@@ -140,16 +162,24 @@ public class CSVFileWriter implements DataWriter {
         }
     }
     
+    /**
+     * Writes the records buffered so far to the file.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (fileOut != null) {
+            fileOut.flush();
+        }
+    }
+
     public String getFileName() {
     	return this.fileName;
     }
 
     private void writeHeaderRow() throws DataAccessObjectInitializationException {
-        CSVColumnVisitor visitor = new CSVColumnVisitor(fileOut, false, this.columnDelimiter);
         try {
-            visitHeaderColumns(this.columnNames, visitor);
-            fileOut.newLine();
-            visitor.newRow();
+            writeHeaderColumns(this.columnNames);
+            fileOut.endRecord();
         } catch (IOException e) {
             String errMsg = Messages.getString("CSVWriter.errorWriting");
             logger.error(errMsg, e);
@@ -163,11 +193,9 @@ public class CSVFileWriter implements DataWriter {
      */
     @Override
     public boolean writeRow(Row row) throws DataAccessObjectException {
-        CSVColumnVisitor visitor = new CSVColumnVisitor(fileOut, false, this.columnDelimiter);
         try {
-            visitColumns(columnNames, row, visitor);
-            fileOut.newLine();
-            visitor.newRow();
+            writeColumns(row);
+            fileOut.endRecord();
             currentRowNumber++;
             return true; // success unless there's an exception
         } catch (IOException e) {
@@ -190,7 +218,33 @@ public class CSVFileWriter implements DataWriter {
         return success;
     }
 
-    private void visitHeaderColumns(List<String> columnNames, CSVColumnVisitor visitor) throws IOException {
+    /**
+     * Writes the rows looking up the writer's columns in the batch once, columns the batch does not have are
+     * written as blanks.
+     */
+    @Override
+    public boolean writeRowBatch(RowBatch batch) throws DataAccessObjectException {
+        int[] columns = new int[columnNames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = batch.getSchema().indexOf(columnNames.get(i));
+        }
+        try {
+            for (int row = 0; row < batch.size(); row++) {
+                for (int column : columns) {
+                    Object colVal = column >= 0 ? batch.getValue(row, column) : null;
+                    fileOut.writeValue(colVal != null ? colVal.toString() : null);
+                }
+                fileOut.endRecord();
+                currentRowNumber++;
+            }
+            return true; // success unless there's an exception
+        } catch (IOException e) {
+            logger.error(Messages.getString("CSVWriter.errorWriting"), e); //$NON-NLS-1$
+            throw new DataAccessObjectException(Messages.getString("CSVWriter.errorWriting"), e); //$NON-NLS-1$
+        }
+    }
+
+    private void writeHeaderColumns(List<String> columnNames) throws IOException {
         for (String colName : columnNames) {
             String outColName;
             if(colName != null) {
@@ -202,14 +256,25 @@ public class CSVFileWriter implements DataWriter {
             } else {
                 outColName = "";
             }
-            visitor.visit(outColName);
+            fileOut.writeValue(outColName);
         }
     }
 
-    static private void visitColumns(List<String> columnNames, Row row, CSVColumnVisitor visitor) throws IOException {
-        for (String colName : columnNames) {
-            Object colVal = row.get(colName);
-            visitor.visit(colVal != null ? colVal.toString() : "");
+    private void writeColumns(Row row) throws IOException {
+        RowSchema schema = row.getSchema();
+        if (schema != null && schema != columnSlotsSchema) {
+            // rows read from the same source share their schema
+            columnSlots = new int[columnNames.size()];
+            for (int i = 0; i < columnSlots.length; i++) {
+                columnSlots[i] = schema.indexOf(columnNames.get(i));
+            }
+            columnSlotsSchema = schema;
+        }
+        for (int i = 0; i < columnNames.size(); i++) {
+            // columns outside the schema, e.g. the status columns of a success file, are looked up by name
+            Object colVal = schema != null && columnSlots[i] >= 0 ? row.getValue(columnSlots[i])
+                    : row.get(columnNames.get(i));
+            fileOut.writeValue(colVal != null ? colVal.toString() : null);
         }
     }
 
@@ -231,6 +296,7 @@ public class CSVFileWriter implements DataWriter {
         }
         // save column names
         this.columnNames = columnNames;
+        this.columnSlotsSchema = null;
 
         writeHeaderRow();
     }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Compression of a CSV input file, detected from its first bytes or, for files too short to tell, its
+ * extension. Compressed files are decompressed as a stream while they are read.
+ */
+enum CSVInputCompression {
+    NONE,
+    GZIP,
+    ZSTD;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD};
+
+    static CSVInputCompression detect(File file) throws IOException {
+        byte[] start = new byte[ZSTD_MAGIC.length];
+        int length;
+        try (InputStream in = new FileInputStream(file)) {
+            length = IOUtils.read(in, start);
+        }
+        if (startsWith(start, length, GZIP_MAGIC)) {
+            return GZIP;
+        }
+        if (startsWith(start, length, ZSTD_MAGIC)) {
+            return ZSTD;
+        }
+        if (length < ZSTD_MAGIC.length) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+                return GZIP;
+            }
+            if (name.endsWith(".zst") || name.endsWith(".zstd")) {
+                return ZSTD;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param parallelism number of threads inflating a block gzip file, 1 to inflate it on the reading thread
+     * @return the decompressed content of the file
+     */
+    InputStream open(File file, int parallelism) throws IOException {
+        if (this == GZIP && parallelism > 1 && BlockGzipInputStream.isBlockGzip(file)) {
+            return new BlockGzipInputStream(file, parallelism);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            switch (this) {
+            case GZIP:
+                // reads all members of a multi-member file
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD:
+                return new ZstdInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+            default:
+                return in;
+            }
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(in);
+            throw e;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
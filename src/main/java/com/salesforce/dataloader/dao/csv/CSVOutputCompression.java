@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Compression of a CSV output file. The records are compressed as a stream while they are written.
+ */
+enum CSVOutputCompression {
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String suffix;
+
+    private CSVOutputCompression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * @param name "gzip" or "zstd" ignoring case, anything else for no compression
+     */
+    static CSVOutputCompression forName(String name) {
+        if (name != null) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "gz":
+                return GZIP;
+            case "zstd":
+            case "zst":
+                return ZSTD;
+            default:
+                break;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return file name suffix of the compression, empty for none
+     */
+    String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * @return true if the file name ends with a suffix of this compression
+     */
+    boolean hasSuffix(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        switch (this) {
+        case GZIP:
+            return name.endsWith(".gz") || name.endsWith(".gzip");
+        case ZSTD:
+            return name.endsWith(".zst") || name.endsWith(".zstd");
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return channel writing the compressed bytes to the file, closing it finishes the compressed stream
+     */
+    WritableByteChannel open(String fileName) throws IOException {
+        FileOutputStream out = new FileOutputStream(fileName);
+        if (this == NONE) {
+            return out.getChannel();
+        }
+        try {
+            OutputStream compressed = this == GZIP ? new GZIPOutputStream(out, BUFFER_SIZE) : new ZstdOutputStream(out);
+            return Channels.newChannel(compressed);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(out);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.sforce.async.CSVReader;
+
+/**
+ * Reads a CSV file by memory-mapping it and parsing chunks of it on a fork-join pool. Chunks are cut at
+ * record boundaries found by {@link CSVRecordScanner}, each chunk is parsed with its own
+ * {@link CSVByteTokenizer}, or {@link CSVReader} for separators the tokenizer does not support, and the records are handed out in file order. Only a bounded number of chunks is parsed ahead of the
+ * caller.
+ * <p>
+ * Only usable for charsets accepted by {@link CSVRecordScanner#supports(Charset)}.
+ */
+class CSVParallelRecordReader implements Closeable {
+
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel channel;
+    private final long size;
+    private final Charset charset;
+    private final char[] csvDelimiters;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final ForkJoinPool pool;
+    private final CSVRecordScanner scanner = new CSVRecordScanner();
+    private final ArrayDeque<Future<Chunk>> pendingChunks = new ArrayDeque<Future<Chunk>>();
+    private long nextChunkStart;
+    private Chunk currentChunk;
+    private int currentIndex;
+    private volatile int[] columnsToRead;
+
+    CSVParallelRecordReader(File file, Charset charset, char[] csvDelimiters, int parallelism) throws IOException {
+        this(file, charset, csvDelimiters, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    CSVParallelRecordReader(File file, Charset charset, char[] csvDelimiters, int parallelism, int chunkSize)
+            throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.charset = charset;
+        this.csvDelimiters = csvDelimiters.clone();
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = parallelism + 1;
+        this.pool = new ForkJoinPool(parallelism);
+        this.nextChunkStart = StandardCharsets.UTF_8.equals(charset) ? skipBOM() : 0;
+    }
+
+    /**
+     * @return the next record in file order, or null at the end of the file
+     */
+    List<String> nextRecord() throws IOException {
+        while (true) {
+            if (currentChunk != null) {
+                if (currentIndex < currentChunk.records.size()) {
+                    // let the chunk's records be collected as they are handed out
+                    return currentChunk.records.set(currentIndex++, null);
+                }
+                if (currentChunk.error != null) {
+                    throw currentChunk.error;
+                }
+                currentChunk = null;
+            }
+            submitChunks();
+            Future<Chunk> next = pendingChunks.poll();
+            if (next == null) {
+                return null;
+            }
+            currentChunk = await(next);
+            currentIndex = 0;
+        }
+    }
+
+    /**
+     * Limits the values taken from the records of the chunks parsed from now on to the given columns; the other
+     * values of a record are null.
+     *
+     * @param columns record positions of the columns to read, or null to read all columns
+     */
+    void setColumnsToRead(int[] columns) {
+        this.columnsToRead = columns == null ? null : columns.clone();
+    }
+
+    /**
+     * Continues reading at the given byte offset, which has to be the start of a record.
+     */
+    void seek(long offset) {
+        for (Future<Chunk> pendingChunk : pendingChunks) {
+            pendingChunk.cancel(false);
+        }
+        pendingChunks.clear();
+        currentChunk = null;
+        nextChunkStart = offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        pendingChunks.clear();
+        currentChunk = null;
+        channel.close();
+    }
+
+    private long skipBOM() throws IOException {
+        if (size < UTF8_BOM.length) {
+            return 0;
+        }
+        ByteBuffer start = ByteBuffer.allocate(UTF8_BOM.length);
+        channel.read(start, 0);
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (start.get(i) != UTF8_BOM[i]) {
+                return 0;
+            }
+        }
+        return UTF8_BOM.length;
+    }
+
+    private void submitChunks() throws IOException {
+        while (pendingChunks.size() < maxPendingChunks && nextChunkStart < size) {
+            final long start = nextChunkStart;
+            final long end = findChunkEnd(start);
+            pendingChunks.add(pool.submit(() -> parseChunk(start, end)));
+            nextChunkStart = end;
+        }
+    }
+
+    /**
+     * @return offset of the first record boundary at least chunkSize bytes past the start, or the end of the
+     *         file
+     */
+    private long findChunkEnd(long start) throws IOException {
+        long target = start + chunkSize;
+        if (target >= size) {
+            return size;
+        }
+        scanner.reset();
+        long windowStart = start;
+        while (windowStart < size) {
+            int windowLength = (int) Math.min(chunkSize, size - windowStart);
+            MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, windowLength);
+            while (scanner.nextRecordEnd(window)) {
+                long recordEnd = windowStart + window.position();
+                if (recordEnd >= target) {
+                    return recordEnd;
+                }
+            }
+            windowStart += windowLength;
+            if (windowStart - start >= Integer.MAX_VALUE) {
+                // an unterminated quote; let the parser of this chunk report it
+                return start + Integer.MAX_VALUE;
+            }
+        }
+        return size;
+    }
+
+    private Chunk parseChunk(long start, long end) {
+        Chunk chunk = new Chunk();
+        try {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, end - start);
+            if (CSVByteTokenizer.supports(csvDelimiters)) {
+                CSVByteTokenizer tokenizer = new CSVByteTokenizer(new ByteBufferInputStream(buffer), charset,
+                        csvDelimiters, false);
+                int[] columns = columnsToRead;
+                for (List<String> record = tokenizer.nextRecord(); record != null; record = tokenizer.nextRecord()) {
+                    // the tokenizer reuses its record, only the columns read are decoded
+                    chunk.records.add(columns == null ? new ArrayList<String>(record) : copyColumns(record, columns));
+                }
+                return chunk;
+            }
+            CSVReader csvReader = new CSVReader(new InputStreamReader(new ByteBufferInputStream(buffer), charset),
+                    csvDelimiters.clone());
+            csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
+            csvReader.setMaxCharsInFile(Integer.MAX_VALUE);
+            for (List<String> record = csvReader.nextRecord(); record != null; record = csvReader.nextRecord()) {
+                chunk.records.add(record);
+            }
+        } catch (IOException e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
+
+    private static List<String> copyColumns(List<String> record, int[] columns) {
+        String[] values = new String[record.size()];
+        for (int column : columns) {
+            if (column < values.length) {
+                values[column] = record.get(column);
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException ioe = new InterruptedIOException(e.getMessage());
+            ioe.initCause(e);
+            throw ioe;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static class Chunk {
+        private final ArrayList<List<String>> records = new ArrayList<List<String>>();
+        private IOException error;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
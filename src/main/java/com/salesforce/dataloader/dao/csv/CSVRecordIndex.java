@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Number of data rows in a CSV file and the byte offsets at which every {@link #CHECKPOINT_INTERVAL}th data
+ * row starts. Built by scanning the raw bytes with {@link CSVRecordScanner}, so no record is decoded.
+ * <p>
+ * For a compressed file the offsets are positions in its decompressed content.
+ * <p>
+ * The index can be saved next to the CSV file. A saved index is only used while the size and the last
+ * modified time of the CSV file are the ones it was built from.
+ */
+class CSVRecordIndex {
+
+    static final int CHECKPOINT_INTERVAL = 1024;
+    static final String FILE_EXTENSION = ".index";
+
+    private static final Logger LOGGER = LogManager.getLogger(CSVRecordIndex.class);
+    private static final int MAGIC = 0x444c4958; // "DLIX"
+    private static final int VERSION = 1;
+    private static final int SCAN_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int STREAM_CHUNK_SIZE = 1024 * 1024;
+
+    private final long fileSize;
+    private final long lastModified;
+    private final int totalRows;
+    private final long[] checkpoints;
+
+    private CSVRecordIndex(long fileSize, long lastModified, int totalRows, long[] checkpoints) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.totalRows = totalRows;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * @return number of data rows, not counting the header row and blank lines
+     */
+    int getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * @return number of checkpoints; checkpoint i is the offset of data row i * {@link #CHECKPOINT_INTERVAL}
+     */
+    int getCheckpointCount() {
+        return checkpoints.length;
+    }
+
+    long getCheckpoint(int i) {
+        return checkpoints[i];
+    }
+
+    /**
+     * Finds where a data row starts by scanning forward from the closest checkpoint before it, so at most
+     * {@link #CHECKPOINT_INTERVAL} records are scanned.
+     *
+     * @param rowNumber a data row number less than {@link #getTotalRows()}
+     * @return byte offset from which parsing yields the row as the next record
+     */
+    long getRowOffset(File file, int rowNumber) throws IOException {
+        int checkpoint = rowNumber / CHECKPOINT_INTERVAL;
+        long offset = checkpoints[checkpoint];
+        int recordsToSkip = rowNumber - checkpoint * CHECKPOINT_INTERVAL;
+        if (recordsToSkip == 0) {
+            return offset;
+        }
+        CSVRecordScanner scanner = new CSVRecordScanner();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long windowStart = offset; windowStart < size; windowStart += SCAN_WINDOW_SIZE) {
+                int windowLength = (int) Math.min(SCAN_WINDOW_SIZE, size - windowStart);
+                MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, windowLength);
+                while (scanner.nextRecordEnd(window)) {
+                    if (!scanner.isLastRecordBlank() && --recordsToSkip == 0) {
+                        return windowStart + window.position();
+                    }
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Same as {@link #getRowOffset(File, int)} for content that can only be read as a stream.
+     *
+     * @param data content of the file from its start
+     */
+    long getRowOffset(InputStream data, int rowNumber) throws IOException {
+        int checkpoint = rowNumber / CHECKPOINT_INTERVAL;
+        long offset = checkpoints[checkpoint];
+        int recordsToSkip = rowNumber - checkpoint * CHECKPOINT_INTERVAL;
+        if (recordsToSkip == 0) {
+            return offset;
+        }
+        IOUtils.skipFully(data, offset);
+        CSVRecordScanner scanner = new CSVRecordScanner();
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        long chunkStart = offset;
+        for (int n = IOUtils.read(data, chunk); n > 0; n = IOUtils.read(data, chunk)) {
+            ByteBuffer window = ByteBuffer.wrap(chunk, 0, n);
+            while (scanner.nextRecordEnd(window)) {
+                if (!scanner.isLastRecordBlank() && --recordsToSkip == 0) {
+                    return chunkStart + window.position();
+                }
+            }
+            chunkStart += n;
+        }
+        return chunkStart;
+    }
+
+    /**
+     * Scans the whole file for record boundaries.
+     */
+    static CSVRecordIndex scan(File file) throws IOException {
+        long lastModified = file.lastModified();
+        CSVRecordScanner scanner = new CSVRecordScanner();
+        Builder builder = new Builder();
+        long size;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+            long recordStart = 0;
+            for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW_SIZE) {
+                int windowLength = (int) Math.min(SCAN_WINDOW_SIZE, size - windowStart);
+                MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, windowLength);
+                while (scanner.nextRecordEnd(window)) {
+                    if (!scanner.isLastRecordBlank()) {
+                        builder.addRecord(recordStart);
+                    }
+                    recordStart = windowStart + window.position();
+                }
+            }
+            // the last record has no line break
+            if (scanner.hasPendingRecord()) {
+                builder.addRecord(recordStart);
+            }
+        }
+        return builder.build(size, lastModified);
+    }
+
+    /**
+     * Scans content that can only be read as a stream, e.g. the decompressed content of the file.
+     *
+     * @param data content of the file from its start
+     */
+    static CSVRecordIndex scan(File file, InputStream data) throws IOException {
+        long lastModified = file.lastModified();
+        long size = file.length();
+        CSVRecordScanner scanner = new CSVRecordScanner();
+        Builder builder = new Builder();
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        long chunkStart = 0;
+        long recordStart = 0;
+        for (int n = IOUtils.read(data, chunk); n > 0; n = IOUtils.read(data, chunk)) {
+            ByteBuffer window = ByteBuffer.wrap(chunk, 0, n);
+            while (scanner.nextRecordEnd(window)) {
+                if (!scanner.isLastRecordBlank()) {
+                    builder.addRecord(recordStart);
+                }
+                recordStart = chunkStart + window.position();
+            }
+            chunkStart += n;
+        }
+        // the last record has no line break
+        if (scanner.hasPendingRecord()) {
+            builder.addRecord(recordStart);
+        }
+        return builder.build(size, lastModified);
+    }
+
+    /**
+     * @return the index saved for the file, or null if there is none or it is out of date
+     */
+    static CSVRecordIndex load(File file) {
+        File indexFile = getIndexFile(file);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            if (fileSize != file.length() || lastModified != file.lastModified()
+                    || in.readInt() != CHECKPOINT_INTERVAL) {
+                LOGGER.debug("Ignoring out of date record index " + indexFile.getAbsolutePath());
+                return null;
+            }
+            int totalRows = in.readInt();
+            long[] checkpoints = new long[in.readInt()];
+            for (int i = 0; i < checkpoints.length; i++) {
+                checkpoints[i] = in.readLong();
+            }
+            return new CSVRecordIndex(fileSize, lastModified, totalRows, checkpoints);
+        } catch (IOException | NegativeArraySizeException e) {
+            LOGGER.warn("Unable to read record index " + indexFile.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the index next to the file it was built from. Failures are logged and otherwise ignored, the index
+     * is rebuilt when it is not found.
+     */
+    void save(File file) {
+        File indexFile = getIndexFile(file);
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fileSize);
+                out.writeLong(lastModified);
+                out.writeInt(CHECKPOINT_INTERVAL);
+                out.writeInt(totalRows);
+                out.writeInt(checkpoints.length);
+                for (long checkpoint : checkpoints) {
+                    out.writeLong(checkpoint);
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save record index " + indexFile.getAbsolutePath() + ": " + e.getMessage());
+            tempFile.delete();
+        }
+    }
+
+    static File getIndexFile(File file) {
+        return new File(file.getPath() + FILE_EXTENSION);
+    }
+
+    private static class Builder {
+        private long records;
+        private long[] checkpoints = new long[16];
+        private int checkpointCount;
+
+        void addRecord(long recordStart) {
+            // the first record is the header row
+            if (records > 0 && (records - 1) % CHECKPOINT_INTERVAL == 0) {
+                if (checkpointCount == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                }
+                checkpoints[checkpointCount++] = recordStart;
+            }
+            records++;
+        }
+
+        CSVRecordIndex build(long fileSize, long lastModified) {
+            long dataRows = Math.max(0, records - 1);
+            return new CSVRecordIndex(fileSize, lastModified, (int) Math.min(dataRows, Integer.MAX_VALUE),
+                    Arrays.copyOf(checkpoints, checkpointCount));
+        }
+    }
+}
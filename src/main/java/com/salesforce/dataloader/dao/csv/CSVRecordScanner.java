@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds CSV record boundaries in raw bytes without decoding them. Only the quote state is tracked, so a
+ * record separator inside a quoted value does not end the record. Blank records are reported the same way
+ * {@link com.sforce.async.CSVReader} skips them: an empty line, or a line holding nothing but an empty
+ * quoted value.
+ * <p>
+ * A lone CR ends a record. The LF of a CRLF pair is then seen as an empty record, which is blank.
+ */
+class CSVRecordScanner {
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private boolean inQuotes;
+    private int recordBytes;
+    private int quoteBytes;
+    private boolean lastRecordBlank;
+
+    /**
+     * Start scanning at the beginning of a record.
+     */
+    void reset() {
+        inQuotes = false;
+        recordBytes = 0;
+        quoteBytes = 0;
+        lastRecordBlank = false;
+    }
+
+    /**
+     * Consumes bytes from the buffer up to and including the next record separator.
+     *
+     * @return true if a record ended; the buffer is then positioned right after its separator. false if the
+     *         buffer was exhausted first, in which case the scan state carries over to the next buffer.
+     */
+    boolean nextRecordEnd(ByteBuffer buf) {
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            if (b == QUOTE) {
+                inQuotes = !inQuotes;
+                quoteBytes++;
+            } else if (!inQuotes && (b == LF || b == CR)) {
+                lastRecordBlank = isBlank();
+                recordBytes = 0;
+                quoteBytes = 0;
+                return true;
+            }
+            if (recordBytes < Integer.MAX_VALUE) {
+                recordBytes++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the record ended by the last successful {@link #nextRecordEnd(ByteBuffer)} is blank
+     */
+    boolean isLastRecordBlank() {
+        return lastRecordBlank;
+    }
+
+    /**
+     * @return true if bytes of a non-blank record were consumed without reaching its separator, i.e. the
+     *         input ends with a record that has no trailing line break
+     */
+    boolean hasPendingRecord() {
+        return !isBlank();
+    }
+
+    private boolean isBlank() {
+        return recordBytes == 0 || (recordBytes == 2 && quoteBytes == 2);
+    }
+
+    /**
+     * Byte scanning is only valid for charsets that encode the quote and line break characters as their
+     * ASCII byte values and never reuse those byte values inside other characters: UTF-8 and the single
+     * byte charsets that are ASCII compatible.
+     */
+    static boolean supports(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return true;
+        }
+        CharsetEncoder encoder = charset.newEncoder();
+        if (encoder.maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        try {
+            ByteBuffer encoded = encoder.encode(CharBuffer.wrap("\"\n\r"));
+            return encoded.remaining() == 3
+                    && encoded.get(0) == QUOTE && encoded.get(1) == LF && encoded.get(2) == CR;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes CSV records to a channel. Values are collected in a large char buffer that is encoded in one pass
+ * when it is full, and the encoded bytes are written to the channel in large blocks. A value is only quoted
+ * if it contains the delimiter, a quote or a line break, which a single scan of the value finds.
+ * <p>
+ * Characters the charset cannot encode are replaced, like {@link java.io.OutputStreamWriter} does.
+ */
+class CSVRecordWriter implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final char QUOTE = '"';
+    private static final char EQUAL = '=';
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private final char delimiter;
+    private final boolean escapeFormulaValue;
+    private boolean firstValue = true;
+
+    CSVRecordWriter(WritableByteChannel channel, Charset charset, char delimiter, boolean escapeFormulaValue) {
+        this(channel, charset, delimiter, escapeFormulaValue, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param escapeFormulaValue true to write a value starting with '=' with a leading apostrophe, so
+     *            spreadsheets do not evaluate it
+     * @param bufferSize number of chars encoded at once
+     */
+    CSVRecordWriter(WritableByteChannel channel, Charset charset, char delimiter, boolean escapeFormulaValue,
+            int bufferSize) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(bufferSize);
+        this.bytes = ByteBuffer.allocateDirect((int) Math.ceil(bufferSize * encoder.maxBytesPerChar()));
+        this.delimiter = delimiter;
+        this.escapeFormulaValue = escapeFormulaValue;
+    }
+
+    /**
+     * Writes the next value of the current record, null is written as a blank value.
+     */
+    void writeValue(String value) throws IOException {
+        if (!firstValue) {
+            put(delimiter);
+        }
+        firstValue = false;
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int firstSpecial = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE || c == delimiter || c == '\n' || c == '\r') {
+                firstSpecial = i;
+                break;
+            }
+        }
+        boolean quoted = firstSpecial < length;
+        if (quoted) {
+            put(QUOTE);
+        }
+        if (escapeFormulaValue && length > 0 && value.charAt(0) == EQUAL) {
+            put('\'');
+        }
+        // only quotes are left to escape after the first special character
+        int start = 0;
+        for (int i = firstSpecial; i < length; i++) {
+            if (value.charAt(i) == QUOTE) {
+                put(value, start, i + 1);
+                put(QUOTE);
+                start = i + 1;
+            }
+        }
+        put(value, start, length);
+        if (quoted) {
+            put(QUOTE);
+        }
+    }
+
+    /**
+     * Ends the current record with a line separator.
+     */
+    void endRecord() throws IOException {
+        put(LINE_SEPARATOR, 0, LINE_SEPARATOR.length());
+        firstValue = true;
+    }
+
+    /**
+     * Writes the buffered records to the channel.
+     */
+    void flush() throws IOException {
+        encode(false);
+        writeBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+    }
+
+    private void put(String s, int start, int end) throws IOException {
+        while (start < end) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int n = Math.min(end - start, chars.remaining());
+            chars.put(s, start, start + n);
+            start += n;
+        }
+    }
+
+    /**
+     * Encodes the buffered chars, keeping a trailing high surrogate until the rest of its pair is buffered.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, endOfInput).isOverflow()) {
+            writeBytes();
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
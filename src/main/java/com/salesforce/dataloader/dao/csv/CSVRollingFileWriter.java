@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dao.AsyncDataWriter;
+import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+
+/**
+ * Writes a csv extract compressed with gzip or zstd, rolled over into part files, or both.
+ * <p>
+ * Without a row or byte limit per file the rows are written to a single file with the configured name, with the
+ * suffix of the compression added unless it has one: <code>extract.csv</code> is written to
+ * <code>extract.csv.gz</code>. With a limit, a new part file is started once the current one has reached it:
+ * <code>extract.csv.gz</code> is written to <code>extract-00001.csv.gz</code>, <code>extract-00002.csv.gz</code>
+ * and so on, each with the header row. Each part file is encoded and compressed by its own {@link AsyncDataWriter} thread, so a part
+ * still being compressed is written in parallel with the next ones. Closing the writer lists the parts and
+ * their row counts in <code>extract.manifest.csv</code>.
+ */
+public class CSVRollingFileWriter implements DataWriter {
+
+    private static final Logger logger = LogManager.getLogger(CSVRollingFileWriter.class);
+    private static final int PART_QUEUE_SIZE = 4096;
+    private static final String MANIFEST_SUFFIX = ".manifest.csv";
+
+    // name of the file written without a limit per file
+    private final String singleFileName;
+    private final Config config;
+    private final String columnDelimiter;
+    private final CSVOutputCompression compression;
+    private final long maxRowsPerFile;
+    private final long maxBytesPerFile;
+    private final int maxOpenParts;
+    private final String partPrefix;
+    private final String partSuffix;
+
+    private List<String> columnNames = new ArrayList<String>();
+    private DataWriter currentPart;
+    private long currentPartRows;
+    private long currentPartBytes;
+    private int currentRowNumber;
+    // parts not closed yet, oldest first
+    private final LinkedList<AsyncDataWriter> openParts = new LinkedList<AsyncDataWriter>();
+    private final List<String> partNames = new ArrayList<String>();
+    private final List<Long> partRows = new ArrayList<Long>();
+    private boolean finished;
+
+    /**
+     * @return true if csv extracts are compressed or rolled over into part files
+     */
+    public static boolean isEnabled(Config config) {
+        CSVOutputCompression compression = CSVOutputCompression.forName(config.getString(Config.DAO_WRITE_COMPRESSION));
+        return compression != CSVOutputCompression.NONE || config.getWriteMaxRowsPerFile() > 0
+                || config.getWriteMaxBytesPerFile() > 0;
+    }
+
+    public CSVRollingFileWriter(String fileName, Config config, String columnDelimiter) {
+        this.config = config;
+        this.columnDelimiter = columnDelimiter;
+        this.compression = CSVOutputCompression.forName(config.getString(Config.DAO_WRITE_COMPRESSION));
+        this.maxRowsPerFile = config.getWriteMaxRowsPerFile();
+        this.maxBytesPerFile = config.getWriteMaxBytesPerFile();
+        this.maxOpenParts = config.getWriteParallelFiles();
+
+        this.singleFileName = compression.hasSuffix(fileName) ? fileName : fileName + compression.getSuffix();
+
+        String name = fileName;
+        String compressionSuffix = compression.getSuffix();
+        if (compression.hasSuffix(name)) {
+            compressionSuffix = name.substring(name.lastIndexOf('.'));
+            name = name.substring(0, name.length() - compressionSuffix.length());
+        }
+        String extension = FilenameUtils.getExtension(name);
+        this.partPrefix = FilenameUtils.removeExtension(name);
+        this.partSuffix = (extension.isEmpty() ? "" : "." + extension) + compressionSuffix;
+    }
+
+    private boolean isRolling() {
+        return maxRowsPerFile > 0 || maxBytesPerFile > 0;
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        new CSVFileWriter(isRolling() ? getPartName(1) : singleFileName, config, columnDelimiter, compression)
+                .checkConnection();
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        close();
+        openParts.clear();
+        partNames.clear();
+        partRows.clear();
+        currentRowNumber = 0;
+        finished = false;
+        if (isRolling()) {
+            startPart();
+        } else {
+            currentPart = new CSVFileWriter(singleFileName, config, columnDelimiter, compression);
+            currentPart.open();
+        }
+    }
+
+    /**
+     * Writes the rows not written yet and the manifest, and closes the part files. An exception writing the
+     * parts is logged, call {@link #finish()} first to handle it.
+     */
+    @Override
+    public void close() {
+        if (isRolling()) {
+            try {
+                finish();
+            } catch (DataAccessObjectException e) {
+                logger.error(Messages.getString("CSVWriter.errorWriting"), e); //$NON-NLS-1$
+            }
+        } else if (currentPart != null) {
+            currentPart.close();
+        }
+        currentPart = null;
+    }
+
+    /**
+     * Waits until the rows of all part files are written, closes them and writes the manifest.
+     *
+     * @throws DataAccessObjectException if writing a part file or the manifest failed
+     */
+    @Override
+    public void finish() throws DataAccessObjectException {
+        if (!isRolling() || finished || currentPart == null) {
+            return;
+        }
+        partRows.set(partRows.size() - 1, currentPartRows);
+        DataAccessObjectException failure = null;
+        while (!openParts.isEmpty()) {
+            AsyncDataWriter part = openParts.removeFirst();
+            try {
+                part.finish();
+            } catch (DataAccessObjectException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            part.close();
+        }
+        finished = true;
+        if (failure != null) {
+            // without a manifest the parts are not mistaken for a complete extract
+            throw failure;
+        }
+        writeManifest();
+    }
+
+    @Override
+    public void setColumnNames(List<String> columnNames) throws DataAccessObjectInitializationException {
+        this.columnNames = columnNames;
+        // each part file keeps its own copy, closing a CSVFileWriter clears its column names
+        currentPart.setColumnNames(new ArrayList<String>(columnNames));
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    @Override
+    public boolean writeRow(Row inputRow) throws DataAccessObjectException {
+        if (isRolling()) {
+            if (isPartFull()) {
+                rollOver();
+            }
+            if (maxBytesPerFile > 0) {
+                currentPartBytes += estimateSize(inputRow);
+            }
+            currentPartRows++;
+        }
+        currentPart.writeRow(inputRow);
+        currentRowNumber++;
+        return true;
+    }
+
+    @Override
+    public boolean writeRowList(List<Row> inputRowList) throws DataAccessObjectException {
+        for (Row row : inputRowList) {
+            writeRow(row);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean writeRowBatch(RowBatch inputBatch) throws DataAccessObjectException {
+        if (isRolling()) {
+            return writeRowList(inputBatch.toRowList());
+        }
+        currentPart.writeRowBatch(inputBatch);
+        currentRowNumber += inputBatch.size();
+        return true;
+    }
+
+    private boolean isPartFull() {
+        return currentPartRows > 0 && (maxRowsPerFile > 0 && currentPartRows >= maxRowsPerFile
+                || maxBytesPerFile > 0 && currentPartBytes >= maxBytesPerFile);
+    }
+
+    /**
+     * @return number of characters of the csv record of the row, not counting quotes
+     */
+    private long estimateSize(Row row) {
+        long size = columnNames.size();
+        for (String column : columnNames) {
+            Object value = row.get(column);
+            if (value != null) {
+                size += value.toString().length();
+            }
+        }
+        return size;
+    }
+
+    private void rollOver() throws DataAccessObjectException {
+        partRows.set(partRows.size() - 1, currentPartRows);
+        if (openParts.size() >= maxOpenParts) {
+            // the oldest part has most likely been written by now
+            AsyncDataWriter oldest = openParts.removeFirst();
+            oldest.finish();
+            oldest.close();
+        }
+        startPart();
+        if (!columnNames.isEmpty()) {
+            currentPart.setColumnNames(new ArrayList<String>(columnNames));
+        }
+    }
+
+    private void startPart() throws DataAccessObjectInitializationException {
+        String partName = getPartName(partNames.size() + 1);
+        AsyncDataWriter part = new AsyncDataWriter(new CSVFileWriter(partName, config, columnDelimiter, compression),
+                PART_QUEUE_SIZE, AsyncDataWriter.FlushPolicy.CLOSE, 0);
+        part.open();
+        openParts.add(part);
+        partNames.add(partName);
+        partRows.add(0L);
+        currentPart = part;
+        currentPartRows = 0;
+        currentPartBytes = 0;
+    }
+
+    String getPartName(int part) {
+        return partPrefix + "-" + String.format("%05d", part) + partSuffix;
+    }
+
+    String getManifestName() {
+        return partPrefix + MANIFEST_SUFFIX;
+    }
+
+    private void writeManifest() throws DataAccessObjectException {
+        String manifestName = getManifestName();
+        try (CSVRecordWriter manifest = new CSVRecordWriter(CSVOutputCompression.NONE.open(manifestName),
+                StandardCharsets.UTF_8, ',', false)) {
+            manifest.writeValue("FILE");
+            manifest.writeValue("ROWS");
+            manifest.endRecord();
+            for (int i = 0; i < partNames.size(); i++) {
+                manifest.writeValue(new File(partNames.get(i)).getName());
+                manifest.writeValue(String.valueOf(partRows.get(i)));
+                manifest.endRecord();
+            }
+        } catch (IOException e) {
+            String errMsg = Messages.getFormattedString("CSVWriter.errorOpening", manifestName);
+            logger.error(errMsg, e);
+            throw new DataAccessObjectException(errMsg, e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * How the value of a result set column is fetched, derived from its JDBC type. Values are fetched by column index
+ * with the getter of their type, so numbers, timestamps and booleans reach the converters as such instead of going
+ * through {@link ResultSet#getObject(String)}. Types without a getter of their own, e.g. DATE columns that some
+ * drivers return with a time of day, are fetched with {@link ResultSet#getObject(int)} as before.
+ */
+enum DatabaseColumnType {
+    STRING {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            return rs.getString(column);
+        }
+    },
+    INTEGER {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            int value = rs.getInt(column);
+            return rs.wasNull() ? null : value;
+        }
+    },
+    LONG {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            long value = rs.getLong(column);
+            return rs.wasNull() ? null : value;
+        }
+    },
+    DOUBLE {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            double value = rs.getDouble(column);
+            return rs.wasNull() ? null : value;
+        }
+    },
+    DECIMAL {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            return rs.getBigDecimal(column);
+        }
+    },
+    BOOLEAN {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            boolean value = rs.getBoolean(column);
+            return rs.wasNull() ? null : value;
+        }
+    },
+    TIMESTAMP {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            return rs.getTimestamp(column);
+        }
+    },
+    OBJECT {
+        @Override
+        Object read(ResultSet rs, int column) throws SQLException {
+            return rs.getObject(column);
+        }
+    };
+
+    /**
+     * Fetches the value of the column at the given index of the current row, null for SQL NULL.
+     */
+    abstract Object read(ResultSet rs, int column) throws SQLException;
+
+    static DatabaseColumnType forSqlType(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return INTEGER;
+            case Types.BIGINT:
+                return LONG;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DECIMAL;
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return TIMESTAMP;
+            default:
+                return OBJECT;
+        }
+    }
+}
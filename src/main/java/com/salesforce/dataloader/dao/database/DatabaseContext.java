@@ -27,7 +27,6 @@ package com.salesforce.dataloader.dao.database;
 
 import java.sql.*;
 import java.util.*;
-import java.util.Date;
 
 import javax.sql.DataSource;
 
@@ -54,6 +53,10 @@ public class DatabaseContext {
     private PreparedStatement dataStatement;
     private List<String> currentSqlParamNames;
     private String currentSqlString;
+    // binder of each parameter of the current sql, by position, and the configured parameters it does not use
+    private SqlParamBinder[] paramBinders;
+    private List<String> unusedParamNames;
+    private Map<String, String> paramBinderTypes;
     private boolean open = false;
     public static final String DEFAULT_CONFIG_FILENAME = "database-conf.xml";
 
@@ -138,11 +141,39 @@ public class DatabaseContext {
         // save the output
         currentSqlString = sqlStringReplace;
         currentSqlParamNames = paramNames;
+        paramBinders = null;
+    }
+
+    /**
+     * Replaces the substitution params in the given Sql string like {@link #replaceSqlParams(String)}, and resolves
+     * how the value of each param is bound from its configured type
+     *
+     * @param sqlString
+     *            Sql string
+     */
+    public void replaceSqlParams(String sqlString, SqlConfig sqlConfig, Config config) {
+        replaceSqlParams(sqlString);
+        if (sqlConfig.getSqlParams() != null) {
+            compileParamBinders(sqlConfig.getSqlParams(), config);
+        }
+    }
+
+    private void compileParamBinders(Map<String, String> sqlParams, Config config) {
+        DateTimeConverter dateConverter = new DateTimeConverter(config.getTimeZone());
+        paramBinders = new SqlParamBinder[currentSqlParamNames.size()];
+        for (int i = 0; i < paramBinders.length; i++) {
+            String paramName = currentSqlParamNames.get(i);
+            paramBinders[i] = new SqlParamBinder(paramName, sqlParams.get(paramName), config.getTimeZone(),
+                    dateConverter);
+        }
+        unusedParamNames = new ArrayList<String>(sqlParams.keySet());
+        unusedParamNames.removeAll(currentSqlParamNames);
+        paramBinderTypes = sqlParams;
     }
 
     /**
      * Private helper method to replace the params in the query with the values passed in from the Map. It sets the
-     * parameters with the param values.
+     * parameters with the param values, leaving the Map as it is.
      * 
      * @param paramValues
      *            Values for the parameter replacement
@@ -153,71 +184,74 @@ public class DatabaseContext {
         // detect if there're no parameters to set
         if (sqlConfig.getSqlParams() == null) { return; }
 
-        if (paramValues == null) {
-            paramValues = new HashMap<String, Object>();
-        }
-
-        for (String paramName : sqlConfig.getSqlParams().keySet()) {
-            String type = sqlConfig.getSqlParams().get(paramName);
-            if (paramValues.containsKey(paramName)) {
-                Object sqlValue = mapParamToDbType(config, paramValues.get(paramName), type);
-                paramValues.put(paramName, sqlValue);
-            } else {
-                // look in the config if the parameter value is not passed in
-                if (config.contains(paramName)) {
-                    Object configValue = getConfigValue(config, paramName, type);
-                    Object sqlValue = mapParamToDbType(config, configValue, type);
-                    logger.info(Messages.getFormattedString("DatabaseDAO.sqlParamInfo", new String[] { paramName,
-                            sqlValue.toString() }));
-                    paramValues.put(paramName, sqlValue);
-                } else {
-                    String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMissing", new String[] {
-                            paramName, dbConfigName });
-                    logger.fatal(errMsg);
-                    throw new ParameterLoadException(errMsg);
-                }
-            }
-        }
+        Object[] sqlValues = getSqlParamValues(sqlConfig, config, paramValues);
 
         // Set the parameters for all the replaced params
-        // Set the params in the Map
-        int index = 1;
-        for (String paramName : currentSqlParamNames) {
-            Object sqlValue = paramValues.get(paramName);
+        for (int i = 0; i < sqlValues.length; i++) {
+            SqlParamBinder binder = paramBinders[i];
             try {
-                if (sqlValue != null)
-                    dataStatement.setObject(index, sqlValue);
-                else {
-                    dataStatement.setNull(index, getSqlType(sqlConfig.getSqlParams().get(paramName)));
-                }
+                binder.bind(dataStatement, i + 1, sqlValues[i]);
             } catch (SQLException sqe) {
-                String valueString = String.valueOf(sqlValue);
-                String valueClass = String.valueOf(sqlValue == null ? null : sqlValue.getClass());
+                String valueString = String.valueOf(sqlValues[i]);
+                String valueClass = String.valueOf(sqlValues[i] == null ? null : sqlValues[i].getClass());
                 String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionParamReplace", new String[] {
-                        this.dbConfigName, paramName, valueString, valueClass, sqe.getMessage() });
+                        this.dbConfigName, binder.getName(), valueString, valueClass, sqe.getMessage() });
                 logger.error(errMsg, sqe);
                 throw new ParameterLoadException(errMsg, sqe);
             }
-            index++;
         }
 
     }
 
-    private int getSqlType(String type) {
-        try {
-            final Class<?> cls = Class.forName(type);
-            if (java.sql.Timestamp.class.isAssignableFrom(cls)) {
-                return Types.TIMESTAMP;
-            } else if (java.sql.Time.class.isAssignableFrom(cls)) {
-                return Types.TIME;
-            } else if (java.sql.Date.class.isAssignableFrom(cls)) {
-                return Types.DATE;
-            } else if (int.class.equals(cls) || long.class.equals(cls) || float.class.equals(cls)
-                    || double.class.equals(cls) || Number.class.isAssignableFrom(cls)) {
-                return Types.NUMERIC;
-            } else if (String.class.isAssignableFrom(cls)) { return Types.VARCHAR; }
-        } catch (ClassNotFoundException e) {}
-        throw new UnsupportedOperationException("Type not supported: " + type);
+    /**
+     * Converts the values of the params in the query like {@link #setSqlParamValues(SqlConfig, Config, Map)} does,
+     * without setting them.
+     * 
+     * @param paramValues
+     *            Values for the parameter replacement
+     * @return the value of each param, by its position in the query
+     * @throws ParameterLoadException
+     */
+    public Object[] getSqlParamValues(SqlConfig sqlConfig, Config config, Map<String, Object> paramValues)
+            throws ParameterLoadException {
+        if (sqlConfig.getSqlParams() == null) { return new Object[0]; }
+
+        if (paramBinders == null || paramBinderTypes != sqlConfig.getSqlParams()) {
+            compileParamBinders(sqlConfig.getSqlParams(), config);
+        }
+
+        // the configured params must have a value even if the Sql does not use them
+        for (String paramName : unusedParamNames) {
+            if ((paramValues == null || !paramValues.containsKey(paramName)) && !config.contains(paramName)) {
+                throw paramMissing(paramName);
+            }
+        }
+
+        Object[] sqlValues = new Object[paramBinders.length];
+        for (int i = 0; i < paramBinders.length; i++) {
+            SqlParamBinder binder = paramBinders[i];
+            String paramName = binder.getName();
+            if (paramValues != null && paramValues.containsKey(paramName)) {
+                sqlValues[i] = binder.convert(paramValues.get(paramName));
+            } else if (binder.getType() == null) {
+                sqlValues[i] = null;
+            } else if (config.contains(paramName)) {
+                // look in the config if the parameter value is not passed in
+                sqlValues[i] = binder.convert(getConfigValue(config, paramName, binder.getType()));
+                logger.info(Messages.getFormattedString("DatabaseDAO.sqlParamInfo", new String[] { paramName,
+                        String.valueOf(sqlValues[i]) }));
+            } else {
+                throw paramMissing(paramName);
+            }
+        }
+        return sqlValues;
+    }
+
+    private ParameterLoadException paramMissing(String paramName) {
+        String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMissing", new String[] {
+                paramName, dbConfigName });
+        logger.fatal(errMsg);
+        return new ParameterLoadException(errMsg);
     }
 
     private Object getConfigValue(Config config, String paramName, String type) throws ParameterLoadException {
@@ -249,62 +283,33 @@ public class DatabaseContext {
     }
 
     /**
-     * Map Sql replacement parameters from config file values to an object usable as a replacement in a Sql statement
+     * Create the PreparedStatement
      * 
-     * @param config
-     * @param paramName
-     * @param type
-     * @return An object of type usable as a replacement in a Sql statement
-     * @throws ParameterLoadException
+     * @return prepared statement
+     * @throws DataAccessObjectInitializationException
      */
-    private Object mapParamToDbType(Config cfg, Object paramValue, String type) throws ParameterLoadException {
-        Object sqlValue;
-        if(paramValue == null) {
-            return paramValue;
-        }
+    public PreparedStatement prepareStatement() throws DataAccessObjectInitializationException {
         try {
-            if (type.equals(java.sql.Date.class.getName())) {
-                sqlValue = new java.sql.Date(getTimeInMillis(cfg.getTimeZone(), paramValue));
-            } else if (type.equals(Timestamp.class.getName())) {
-                sqlValue = new Timestamp(getTimeInMillis(cfg.getTimeZone(), paramValue));
-            } else if (type.equals(Time.class.getName())) {
-                sqlValue = new Time(getTimeInMillis(cfg.getTimeZone(), paramValue));
-            } else {
-                sqlValue = paramValue;
-            }
-            return sqlValue;
-        } catch(Exception e) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMapping", new String[] {
-                    paramValue.toString(), paramValue.getClass().getName(), type, e.getMessage() });
-            logger.error(errMsg, e);
-            throw new ParameterLoadException(errMsg, e);
-        }
-    }
-
-    private long getTimeInMillis(TimeZone tz, Object paramValue) {
-        if(paramValue instanceof Calendar) {
-            return ((Calendar)paramValue).getTimeInMillis();
-        }
-        if(paramValue instanceof Date) {
-            return ((Date)paramValue).getTime();
-        }
-        else if(paramValue instanceof String) {
-            Calendar cal = (Calendar)new DateTimeConverter(tz).convert(java.util.Calendar.class, paramValue);
-            return cal.getTimeInMillis();
-        } else {
-            throw new IllegalArgumentException(Messages.getFormattedString("DatabaseDAO.errorParamMappingType", paramValue.getClass().getName()));
+            dataStatement = dataConnection.prepareStatement(currentSqlString);
+            return dataStatement;
+        } catch (SQLException sqe) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionPrepareStatement", new String[] {
+                    dbConfigName, sqe.getMessage() });
+            logger.error(errMsg, sqe);
+            throw new DataAccessObjectInitializationException(errMsg, sqe);
         }
     }
 
     /**
-     * Create the PreparedStatement
+     * Create the PreparedStatement producing result sets of the given type and concurrency
      * 
      * @return prepared statement
      * @throws DataAccessObjectInitializationException
      */
-    public PreparedStatement prepareStatement() throws DataAccessObjectInitializationException {
+    public PreparedStatement prepareStatement(int resultSetType, int resultSetConcurrency)
+            throws DataAccessObjectInitializationException {
         try {
-            dataStatement = dataConnection.prepareStatement(currentSqlString);
+            dataStatement = dataConnection.prepareStatement(currentSqlString, resultSetType, resultSetConcurrency);
             return dataStatement;
         } catch (SQLException sqe) {
             String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionPrepareStatement", new String[] {
@@ -363,6 +368,7 @@ public class DatabaseContext {
 
     public void setCurrentSqlParamNames(List<String> currentSqlParamNames) {
         this.currentSqlParamNames = currentSqlParamNames;
+        this.paramBinders = null;
     }
 
     public String getCurrentSqlString() {
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.database;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL that differs between databases. The dialect is picked from the product name reported by the JDBC
+ * driver; databases that are not recognized get {@link #GENERIC}, which only uses what every database supports.
+ */
+enum DatabaseDialect {
+
+    H2("H2", "jdbc:h2:", "OFFSET {0} ROWS", null),
+    POSTGRESQL("PostgreSQL", "jdbc:postgresql:", "OFFSET {0} ROWS", "reWriteBatchedInserts"),
+    ORACLE("Oracle", "jdbc:oracle:", "OFFSET {0} ROWS", null),
+    DERBY("Apache Derby", "jdbc:derby:", "OFFSET {0} ROWS", null),
+    SQLSERVER("Microsoft SQL Server", "jdbc:sqlserver:", "OFFSET {0} ROWS", "useBulkCopyForBatchInsert"),
+    MYSQL("MySQL", "jdbc:mysql:", "LIMIT {0}, 18446744073709551615", "rewriteBatchedStatements"),
+    MARIADB("MariaDB", "jdbc:mariadb:", "LIMIT {0}, 18446744073709551615", "rewriteBatchedStatements"),
+    GENERIC(null, null, null, null);
+
+    private static final Pattern ROW_LIMIT_CLAUSE = Pattern.compile("\\b(LIMIT|OFFSET|FETCH|TOP)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_BY_CLAUSE = Pattern.compile("\\bORDER\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+    // estimate of the top node of a PostgreSQL plan, e.g. "Seq Scan on t  (cost=0.00..35.50 rows=2550 width=4)"
+    private static final Pattern PLAN_ROWS = Pattern.compile("\\brows=(\\d+)");
+    // insert of the parameters into the listed columns, e.g. "INSERT INTO t (a, b) VALUES (?, ?)"
+    private static final Pattern PLAIN_INSERT = Pattern.compile(
+            "\\s*INSERT\\s+INTO\\s+([\\w.$\"]+)\\s*\\(([^()]+)\\)\\s*VALUES\\s*\\(([^()]+)\\)\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    private final String productName;
+    private final String urlPrefix;
+    private final String rowOffsetClause;
+    private final String batchRewriteProperty;
+
+    private DatabaseDialect(String productName, String urlPrefix, String rowOffsetClause,
+            String batchRewriteProperty) {
+        this.productName = productName;
+        this.urlPrefix = urlPrefix;
+        this.rowOffsetClause = rowOffsetClause;
+        this.batchRewriteProperty = batchRewriteProperty;
+    }
+
+    static DatabaseDialect forConnection(Connection connection) throws SQLException {
+        return forProductName(connection.getMetaData().getDatabaseProductName());
+    }
+
+    static DatabaseDialect forProductName(String databaseProductName) {
+        if (databaseProductName != null) {
+            for (DatabaseDialect dialect : values()) {
+                if (dialect.productName != null && databaseProductName.startsWith(dialect.productName)) {
+                    return dialect;
+                }
+            }
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Picks the dialect from the JDBC URL, for settings that are needed before connecting.
+     */
+    static DatabaseDialect forUrl(String url) {
+        if (url != null) {
+            for (DatabaseDialect dialect : values()) {
+                if (dialect.urlPrefix != null && url.startsWith(dialect.urlPrefix)) {
+                    return dialect;
+                }
+            }
+        }
+        return GENERIC;
+    }
+
+    /**
+     * @return the connection property that makes the driver send a batch of inserts as fewer statements, e.g. one
+     *         multi-row insert, or null if the driver has none or always does
+     */
+    String getBatchRewriteProperty() {
+        return batchRewriteProperty;
+    }
+
+    /**
+     * Makes the database skip the first rows of a query.
+     *
+     * @param sqlString query as configured
+     * @param rowOffset number of rows to skip
+     * @return the query returning all rows after the first rowOffset ones, or null if it cannot be rewritten
+     *         safely, e.g. because it already limits its rows
+     */
+    String withRowOffset(String sqlString, int rowOffset) {
+        if (rowOffsetClause == null || ROW_LIMIT_CLAUSE.matcher(sqlString).find()) {
+            return null;
+        }
+        // SQL Server only accepts OFFSET after ORDER BY
+        if (this == SQLSERVER && !ORDER_BY_CLAUSE.matcher(sqlString).find()) {
+            return null;
+        }
+        // new line in case the query ends with a comment
+        return withoutTerminator(sqlString) + "\n" + rowOffsetClause.replace("{0}", String.valueOf(rowOffset));
+    }
+
+    /**
+     * @param sqlString query as configured
+     * @return the query counting the rows of the query in its first column, or null if it cannot be wrapped
+     */
+    String countQuery(String sqlString) {
+        // SQL Server does not accept ORDER BY in a derived table without a row limit
+        if (this == SQLSERVER && ORDER_BY_CLAUSE.matcher(sqlString).find()
+                && !ROW_LIMIT_CLAUSE.matcher(sqlString).find()) {
+            return null;
+        }
+        return "SELECT COUNT(*) FROM (\n" + withoutTerminator(sqlString) + "\n) dl_count";
+    }
+
+    /**
+     * @param sqlString query as configured
+     * @return the query returning the planner's estimate of the rows of the query, read by
+     *         {@link #readRowEstimate(ResultSet)}, or null if the database does not provide an estimate
+     */
+    String rowEstimateQuery(String sqlString) {
+        switch (this) {
+        case POSTGRESQL:
+        case MYSQL:
+        case MARIADB:
+            return "EXPLAIN " + withoutTerminator(sqlString);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * @param plan result of {@link #rowEstimateQuery(String)}
+     * @return the estimated number of rows, -1 if the plan has none
+     */
+    long readRowEstimate(ResultSet plan) throws SQLException {
+        if (!plan.next()) {
+            return -1;
+        }
+        if (this == POSTGRESQL) {
+            Matcher rows = PLAN_ROWS.matcher(plan.getString(1));
+            return rows.find() ? Long.parseLong(rows.group(1)) : -1;
+        }
+        // the rows examined in the first table of the plan
+        long rows = plan.getLong("rows");
+        return plan.wasNull() ? -1 : rows;
+    }
+
+    /**
+     * @param sqlString query as configured
+     * @param column column of the query the rows are split on
+     * @param bounds SQL literals splitting the column values into ranges, or empty to split them by modulo
+     * @param partitions number of partitions
+     * @param partition partition to read, from 0
+     * @return the query returning the rows of the partition, or null if it cannot be wrapped
+     */
+    String partitionQuery(String sqlString, String column, List<String> bounds, int partitions, int partition) {
+        // SQL Server does not accept ORDER BY in a derived table without a row limit
+        if (this == SQLSERVER && ORDER_BY_CLAUSE.matcher(sqlString).find()
+                && !ROW_LIMIT_CLAUSE.matcher(sqlString).find()) {
+            return null;
+        }
+        String condition;
+        if (!bounds.isEmpty()) {
+            condition = partition == 0 ? column + " < " + bounds.get(0)
+                    : partition < bounds.size() ? column + " >= " + bounds.get(partition - 1) + " AND " + column
+                            + " < " + bounds.get(partition)
+                    : column + " >= " + bounds.get(bounds.size() - 1);
+        } else {
+            String modulo = this == SQLSERVER ? column + " % " + partitions
+                    : "MOD(" + column + ", " + partitions + ")";
+            // negative values have a negative remainder
+            condition = modulo + " IN (" + partition + ", -" + partition + ")";
+        }
+        if (partition == 0) {
+            condition = condition + " OR " + column + " IS NULL";
+        }
+        return "SELECT * FROM (\n" + withoutTerminator(sqlString) + "\n) dl_partition WHERE " + condition;
+    }
+
+    /**
+     * Sets the connection up for a query whose rows are streamed through a forward-only, read-only cursor instead
+     * of being buffered by the driver.
+     *
+     * @param connection connection the query runs on
+     * @param fetchSize rows to fetch per round trip
+     * @return the fetch size to set on the statement
+     */
+    int streamingFetchSize(Connection connection, int fetchSize) throws SQLException {
+        switch (this) {
+        case POSTGRESQL:
+            // the driver only fetches with a cursor inside a transaction
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+            }
+            return fetchSize;
+        case MYSQL:
+            // Connector/J buffers all rows unless it uses server cursors or streams row by row
+            String url = connection.getMetaData().getURL();
+            return url != null && url.contains("useCursorFetch=true") ? fetchSize : Integer.MIN_VALUE;
+        default:
+            return fetchSize;
+        }
+    }
+
+    /**
+     * @param sqlString statement with its parameters replaced by '?'
+     * @return the bulk import writing the rows of the statement, or null if the database has none or the statement
+     *         is not a plain insert of one parameter per column
+     */
+    BulkImport bulkImport(String sqlString) throws IOException {
+        if (this != H2) {
+            return null;
+        }
+        Matcher insert = PLAIN_INSERT.matcher(sqlString);
+        if (!insert.matches()) {
+            return null;
+        }
+        String[] columns = insert.group(2).split(",");
+        String[] values = insert.group(3).split(",");
+        if (columns.length != values.length) {
+            return null;
+        }
+        List<String> columnNames = new ArrayList<String>();
+        for (int i = 0; i < columns.length; i++) {
+            // the values are read in the order of the parameters
+            if (!values[i].trim().equals("?")) {
+                return null;
+            }
+            columnNames.add(columns[i].trim());
+        }
+        return new H2BulkImport(insert.group(1), columnNames);
+    }
+
+    private static String withoutTerminator(String sqlString) {
+        String query = sqlString.trim();
+        if (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1);
+        }
+        return query;
+    }
+}
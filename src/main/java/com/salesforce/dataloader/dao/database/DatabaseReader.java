@@ -30,6 +30,8 @@ import java.sql.*;
 import java.util.*;
 
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -53,13 +55,22 @@ public class DatabaseReader implements DataReader {
     // logger
     private static Logger logger = LogManager.getLogger(DatabaseReader.class);
 
+    // rows per round trip when streaming without a configured fetch size
+    private static final int DEFAULT_STREAMING_FETCH_SIZE = 10000;
+
     private final BasicDataSource dataSource;
     private final Config config;
     private List<String> columnNames = new ArrayList<String>();
+    private RowSchema rowSchema;
     private int totalRows = 0;
     private int currentRowNumber = 0;
     private final SqlConfig sqlConfig;
     private final DatabaseContext dbContext;
+    private final int partition;
+    private Map<String,Object> openParams;
+    // result set index and type of each column of the row schema, resolved on the first read of a result set
+    private int[] resultSetColumns;
+    private DatabaseColumnType[] resultSetColumnTypes;
 
     /**
      * Get an instance of database reader for the data access object name from configuration
@@ -76,19 +87,72 @@ public class DatabaseReader implements DataReader {
      * @throws DataAccessObjectInitializationException
      */
     public DatabaseReader(Config config, String dbConfigName) throws DataAccessObjectInitializationException {
+        this(config, dbConfigName, getDatabaseConfig(config, dbConfigName), -1);
+    }
+
+    /**
+     * Get an instance of database reader for one partition of the query, see {@link SqlConfig#getPartitionCount()}
+     * @param partition partition to read, -1 to read all rows of the query
+     */
+    DatabaseReader(Config config, String dbConfigName, DatabaseConfig dbConfig, int partition) {
         this.config = config;
-        String dbConfigFilename = config.constructConfigFilePath(DatabaseContext.DEFAULT_CONFIG_FILENAME);
-        if(! (new File(dbConfigFilename).exists())) {
-            throw new DataAccessObjectInitializationException(Messages.getFormattedString("DatabaseDAO.errorConfigFileExists", dbConfigFilename)); //$NON-NLS-1$
-        }
-        DatabaseConfig dbConfig = DatabaseConfig.getInstance(dbConfigFilename, dbConfigName);
         this.dataSource = dbConfig.getDataSource();
         this.sqlConfig = dbConfig.getSqlConfig();
+        this.partition = partition;
         this.dbContext = new DatabaseContext(dbConfigName);
         this.columnNames = sqlConfig.getColumnNames();
         if(columnNames == null) {
             columnNames = new ArrayList<String>();
         }
+        this.rowSchema = new RowSchema(columnNames);
+    }
+
+    /**
+     * Get a reader for the data access object name from configuration, reading the partitions of the query in
+     * parallel if it has any
+     * @throws DataAccessObjectInitializationException
+     */
+    public static DataReader getReader(Config config) throws DataAccessObjectInitializationException {
+        String dbConfigName = config.getString(Config.DAO_NAME);
+        DatabaseConfig dbConfig = getDatabaseConfig(config, dbConfigName);
+        int partitionCount = dbConfig.getSqlConfig().getPartitionCount();
+        if (partitionCount <= 1) {
+            return new DatabaseReader(config, dbConfigName, dbConfig, -1);
+        }
+        List<DatabaseReader> partitions = new ArrayList<DatabaseReader>(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitions.add(new DatabaseReader(config, dbConfigName, dbConfig, partition));
+        }
+        logger.info(Messages.getFormattedString("DatabaseDAO.partitions", new String[] {
+                String.valueOf(partitionCount), dbConfigName }));
+        return new PartitionedDatabaseReader(config, dbConfigName, partitions,
+                dbConfig.getSqlConfig().isPartitionsOrdered(), config.getLoadBatchSize());
+    }
+
+    private static DatabaseConfig getDatabaseConfig(Config config, String dbConfigName)
+            throws DataAccessObjectInitializationException {
+        String dbConfigFilename = config.constructConfigFilePath(DatabaseContext.DEFAULT_CONFIG_FILENAME);
+        if(! (new File(dbConfigFilename).exists())) {
+            throw new DataAccessObjectInitializationException(Messages.getFormattedString("DatabaseDAO.errorConfigFileExists", dbConfigFilename)); //$NON-NLS-1$
+        }
+        return DatabaseConfig.getInstance(dbConfigFilename, dbConfigName);
+    }
+
+    /**
+     * @return the query as configured, or the query of the partition being read
+     */
+    private String getQuerySqlString(DatabaseDialect dialect) throws DataAccessObjectInitializationException {
+        if (partition < 0) {
+            return sqlConfig.getSqlString();
+        }
+        String partitionSqlString = dialect.partitionQuery(sqlConfig.getSqlString(), sqlConfig.getPartitionColumn(),
+                sqlConfig.getPartitionBounds(), sqlConfig.getPartitionCount(), partition);
+        if (partitionSqlString == null) {
+            throw new DataAccessObjectInitializationException(Messages.getFormattedString(
+                    "DatabaseDAO.errorPartitionQuery", new String[] { dbContext.getDbConfigName(),
+                            sqlConfig.getPartitionColumn() }));
+        }
+        return partitionSqlString;
     }
 
     /*
@@ -107,9 +171,14 @@ public class DatabaseReader implements DataReader {
      * @throws DataAccessObjectInitializationException
      */
     public void open(Map<String,Object> params) throws DataAccessObjectInitializationException {
+        open(params, 0);
+    }
+
+    private void open(Map<String,Object> params, int rowOffset) throws DataAccessObjectInitializationException {
         currentRowNumber = 0;
+        openParams = params;
         try {
-            setupQuery(params);
+            setupQuery(params, rowOffset);
         } catch (DataAccessObjectInitializationException e) {
             throw e;
         } catch (Exception e) {
@@ -118,17 +187,60 @@ public class DatabaseReader implements DataReader {
         dbContext.setOpen(true);
     }
 
-    private void setupQuery(Map<String,Object> params) throws DataAccessObjectInitializationException, ParameterLoadException, IllegalArgumentException {
+    private void setupQuery(Map<String,Object> params, int rowOffset) throws DataAccessObjectInitializationException, ParameterLoadException, IllegalArgumentException {
         try {
             dbContext.initConnection(dataSource);
-            dbContext.replaceSqlParams(sqlConfig.getSqlString());
-            PreparedStatement statement = dbContext.prepareStatement();
-            // right now, query doesn't support data input -- all the parameters are static vs. update which takes data
-            // for every put call
-            dbContext.setSqlParamValues(sqlConfig, config, params);
-
-            // set the query fetch size
-            int fetchSize;
+            DatabaseDialect dialect = DatabaseDialect.forConnection(dbContext.getDataConnection());
+            String querySqlString = getQuerySqlString(dialect);
+            ResultSet rs = null;
+            if (rowOffset > 0) {
+                String offsetSqlString = dialect.withRowOffset(querySqlString, rowOffset);
+                if (offsetSqlString != null) {
+                    try {
+                        rs = executeQuery(dbContext, offsetSqlString, params);
+                        currentRowNumber = rowOffset;
+                    } catch (SQLException | DataAccessObjectInitializationException e) {
+                        // e.g. a database version without OFFSET support, skip the rows on the client instead
+                        logger.warn(Messages.getFormattedString("DatabaseDAO.errorRowOffset", new String[] {
+                                dbContext.getDbConfigName(), e.getMessage() }));
+                        if (dbContext.getDataStatement() != null) {
+                            dbContext.getDataStatement().close();
+                        }
+                        dbContext.getDataConnection().rollback();
+                    }
+                }
+            }
+            if (rs == null) {
+                rs = executeQuery(dbContext, querySqlString, params);
+                // move the cursor without reading the column values
+                while (currentRowNumber < rowOffset && rs.next()) {
+                    currentRowNumber++;
+                }
+            }
+            dbContext.setDataResultSet(rs);
+            resultSetColumns = null;
+        } catch (SQLException sqe) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionSetup", new String[] {dbContext.getDbConfigName(), sqe.getMessage()});
+            logger.error(errMsg, sqe);
+            close();
+            throw new DataAccessObjectInitializationException(errMsg, sqe);
+        }
+    }
+
+    private ResultSet executeQuery(DatabaseContext context, String sqlString, Map<String,Object> params) throws DataAccessObjectInitializationException, ParameterLoadException, SQLException {
+        context.replaceSqlParams(sqlString, sqlConfig, config);
+        PreparedStatement statement = sqlConfig.isStreamResults()
+                ? context.prepareStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                : context.prepareStatement();
+        // right now, query doesn't support data input -- all the parameters are static vs. update which takes data
+        // for every put call
+        context.setSqlParamValues(sqlConfig, config, params);
+
+        // set the query fetch size
+        int fetchSize = sqlConfig.getFetchSize();
+        if (fetchSize <= 0 && sqlConfig.isStreamResults()) {
+            fetchSize = DEFAULT_STREAMING_FETCH_SIZE;
+        } else if (fetchSize <= 0) {
             try {
                 fetchSize = config.getInt(Config.DAO_READ_BATCH_SIZE);
                 if(fetchSize > Config.MAX_DAO_READ_BATCH_SIZE) {
@@ -140,16 +252,25 @@ public class DatabaseReader implements DataReader {
                         String.valueOf(Config.DEFAULT_DAO_READ_BATCH_SIZE), e.getMessage() }));
                 fetchSize = Config.DEFAULT_DAO_READ_BATCH_SIZE;
             }
-            statement.setFetchSize(fetchSize);
-
-            // execute the query and save the result set
-            dbContext.setDataResultSet(statement.executeQuery());
-        } catch (SQLException sqe) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionSetup", new String[] {dbContext.getDbConfigName(), sqe.getMessage()});
-            logger.error(errMsg, sqe);
-            close();
-            throw new DataAccessObjectInitializationException(errMsg, sqe);
         }
+        if (sqlConfig.isStreamResults()) {
+            fetchSize = DatabaseDialect.forConnection(context.getDataConnection())
+                    .streamingFetchSize(context.getDataConnection(), fetchSize);
+        }
+        statement.setFetchSize(fetchSize);
+
+        // execute the query and save the result set
+        return statement.executeQuery();
+    }
+
+    /**
+     * Runs the query again, letting the database skip the first rows when its dialect supports it.
+     */
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        close();
+        open(openParams, rowNumber);
+        return true;
     }
 
     /*
@@ -158,18 +279,34 @@ public class DatabaseReader implements DataReader {
      */
     @Override
     public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
-        List<Row> outputRows = new ArrayList<Row>();
-        for(int i=0; i < maxRows; i++) {
-            Row outputRow = readRow();
-            if(outputRow != null) {
-                // if row has been returned, add it to the output
-                outputRows.add(outputRow);
-            } else {
-                // if encountered null, the reading is over
-                break;
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (!dbContext.isOpen()) {
+            open();
+        }
+
+        RowBatch batch = new RowBatch(rowSchema, maxRows);
+        String currentColumnName = "";
+        try {
+            ResultSet rs = dbContext.getDataResultSet();
+            while (rs != null && batch.size() < maxRows && rs.next()) {
+                if (resultSetColumns == null) {
+                    resolveColumns(rs);
+                }
+                int batchRow = batch.addRow();
+                for (int column = 0; column < resultSetColumns.length; column++) {
+                    currentColumnName = rowSchema.getColumnName(column);
+                    batch.setValue(batchRow, column, resultSetColumnTypes[column].read(rs, resultSetColumns[column]));
+                }
+                currentRowNumber++;
             }
+            return batch;
+        } catch (Exception e) {
+            throw readException(e, currentColumnName);
         }
-        return outputRows;
     }
 
     @Override
@@ -184,29 +321,53 @@ public class DatabaseReader implements DataReader {
         try {
             ResultSet rs = dbContext.getDataResultSet();
             if (rs != null && rs.next()) {
-                row = new Row(columnNames.size());
+                if (resultSetColumns == null) {
+                    resolveColumns(rs);
+                }
+                row = new Row(rowSchema);
 
-                for (String columnName : columnNames) {
-                    currentColumnName = columnName;
-                    Object value = rs.getObject(columnName);
-                    row.put(columnName, value);
+                for (int column = 0; column < resultSetColumns.length; column++) {
+                    currentColumnName = rowSchema.getColumnName(column);
+                    row.put(currentColumnName, resultSetColumnTypes[column].read(rs, resultSetColumns[column]));
                 }
                 currentRowNumber++;
             }
             return row;
-        } catch (SQLException sqe) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionReadRow", new String[] {
-                    currentColumnName, String.valueOf(currentRowNumber + 1), dbContext.getDbConfigName(), sqe.getMessage() });
-            logger.error(errMsg, sqe);
-            close();
-            throw new DataAccessObjectException(errMsg, sqe);
         } catch (Exception e) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionReadRow", new String[] {
-                    currentColumnName, String.valueOf(currentRowNumber + 1), dbContext.getDbConfigName(), e.getMessage() });
-            logger.error(errMsg, e);
-            close();
-            throw new DataAccessObjectException(errMsg, e);
+            throw readException(e, currentColumnName);
+        }
+    }
+
+    /**
+     * Looks up the result set index and type of every column of the row schema once, matching the column labels
+     * case-insensitively like {@link ResultSet#findColumn(String)} does for most drivers.
+     */
+    private void resolveColumns(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        Map<String,Integer> labelIndexes = new HashMap<String,Integer>();
+        // the first column with a label wins, as with findColumn
+        for (int index = metaData.getColumnCount(); index > 0; index--) {
+            labelIndexes.put(metaData.getColumnLabel(index).toLowerCase(Locale.ROOT), index);
         }
+        int[] columns = new int[rowSchema.getColumnCount()];
+        DatabaseColumnType[] columnTypes = new DatabaseColumnType[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            String columnName = rowSchema.getColumnName(column);
+            Integer index = labelIndexes.get(columnName.toLowerCase(Locale.ROOT));
+            columns[column] = index != null ? index : rs.findColumn(columnName);
+            columnTypes[column] = DatabaseColumnType.forSqlType(metaData.getColumnType(columns[column]));
+        }
+        resultSetColumnTypes = columnTypes;
+        resultSetColumns = columns;
+    }
+
+    private DataAccessObjectException readException(Exception e, String currentColumnName) {
+        String errMsg = Messages.getFormattedString(e instanceof SQLException ? "DatabaseDAO.sqlExceptionReadRow"
+                : "DatabaseDAO.exceptionReadRow", new String[] {
+                currentColumnName, String.valueOf(currentRowNumber + 1), dbContext.getDbConfigName(), e.getMessage() });
+        logger.error(errMsg, e);
+        close();
+        return new DataAccessObjectException(errMsg, e);
     }
 
     @Override
@@ -220,17 +381,67 @@ public class DatabaseReader implements DataReader {
     		return 0;
 
     	if (totalRows == 0) {
-    		totalRows = DAORowUtil.calculateTotalRows(this);
+    		totalRows = countRows();
     	}
 
     	return totalRows;
     }
 
+    /**
+     * Lets the database count the rows, or estimate them if {@link SqlConfig#isEstimateTotalRows()}, with a query
+     * on another connection, so the rows being read stay where they are. The rows are read to count them only if
+     * the database cannot count them. The rows of a partition are always counted.
+     */
+    int countRows() throws DataAccessObjectException {
+        DatabaseContext countContext = new DatabaseContext(dbContext.getDbConfigName());
+        try {
+            countContext.initConnection(dataSource);
+            DatabaseDialect dialect = DatabaseDialect.forConnection(countContext.getDataConnection());
+            String querySqlString = getQuerySqlString(dialect);
+            long rows = -1;
+            // the configured count query is for all rows of the query
+            String countSqlString = partition < 0 ? sqlConfig.getCountSqlString() : null;
+            if (countSqlString == null && partition < 0 && sqlConfig.isEstimateTotalRows()) {
+                String estimateSqlString = dialect.rowEstimateQuery(querySqlString);
+                if (estimateSqlString != null) {
+                    rows = dialect.readRowEstimate(executeQuery(countContext, estimateSqlString, openParams));
+                }
+            }
+            if (rows < 0) {
+                if (countSqlString == null) {
+                    countSqlString = dialect.countQuery(querySqlString);
+                }
+                if (countSqlString != null) {
+                    ResultSet rs = executeQuery(countContext, countSqlString, openParams);
+                    rows = rs.next() ? rs.getLong(1) : -1;
+                }
+            }
+            if (rows >= 0) {
+                logger.info(Messages.getFormattedString("DatabaseDAO.totalRows", new String[] {
+                        String.valueOf(rows), dbContext.getDbConfigName() }));
+                return (int)Math.min(rows, Integer.MAX_VALUE);
+            }
+        } catch (SQLException | DataAccessObjectInitializationException | ParameterLoadException e) {
+            logger.warn(Messages.getFormattedString("DatabaseDAO.errorCountQuery", new String[] {
+                    dbContext.getDbConfigName(), e.getMessage() }));
+        } finally {
+            countContext.close();
+        }
+        return DAORowUtil.calculateTotalRows(this);
+    }
+
     @Override
     public int getCurrentRowNumber() {
         return currentRowNumber;
     }
 
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnsToRead) {
+        rowSchema = new RowSchema(columnNames).select(columnsToRead);
+        resultSetColumns = null;
+        return true;
+    }
+
     @Override
     public List<String> getColumnNames() {
         return columnNames;
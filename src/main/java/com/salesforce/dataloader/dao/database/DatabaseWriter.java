@@ -26,10 +26,13 @@
 package com.salesforce.dataloader.dao.database;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -49,12 +52,29 @@ public class DatabaseWriter implements DataWriter {
 
     // logger
     private static Logger logger = LogManager.getLogger(DatabaseReader.class);
+    // approximate size of a value that is not a string
+    private static final int VALUE_BYTES = 8;
 
     private final BasicDataSource dataSource;
     private final Config config;
     private int currentRowNumber = 0;
     private final SqlConfig sqlConfig;
     private final DatabaseContext dbContext;
+    // errors of the rows that failed of the last write, or of the last pipelined batch finished, by their index
+    private final Map<Integer, String> rowErrors = new TreeMap<Integer, String>();
+    // rows written and approximate size of their values since the last commit
+    private int uncommittedRows;
+    private long uncommittedBytes;
+    private long lastCommitMillis;
+    private boolean savepointsSupported = true;
+    // where the batch being written is rolled back to if it cannot be written, null to roll back all uncommitted rows
+    private Savepoint batchSavepoint;
+    // null if batches are written through the statement
+    private BulkImport bulkImport;
+    // batch executing on a background thread, the connection is not used by the caller until it is done
+    private PipelinedBatch pendingBatch;
+    // rows that failed of the pipelined batches not finished through finishBatch, reported by finish
+    private int pipelinedFailedRows;
 
     public DatabaseWriter(Config config) throws DataAccessObjectInitializationException {
         this(config, config.getString(Config.DAO_NAME));
@@ -111,13 +131,124 @@ public class DatabaseWriter implements DataWriter {
      */
     @Override
     public void close() {
+        try {
+            finish();
+        } catch (DataAccessObjectException e) {
+            // logged by finish
+        }
+        if (bulkImport != null) {
+            bulkImport.close();
+            bulkImport = null;
+        }
         dbContext.close();
     }
 
+    /**
+     * Executes and commits the rows written so far, reporting a failure instead of only logging it as
+     * {@link #close()} does.
+     */
+    @Override
+    public void finish() throws DataAccessObjectException {
+        if (!dbContext.isOpen()) {
+            return;
+        }
+        finishUnreportedBatch();
+        if (uncommittedRows > 0) {
+            try {
+                commit();
+            } catch (SQLException sqe) {
+                String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionWriteRow", new String[] {
+                        String.valueOf(currentRowNumber + 1 - uncommittedRows), String.valueOf(currentRowNumber),
+                        dbContext.getDbConfigName(), sqe.getMessage() });
+                logger.error(errMsg, sqe);
+                endException(uncommittedRows, null);
+                uncommittedRows = 0;
+                throw new DataAccessObjectException(errMsg, sqe);
+            }
+        }
+        if (pipelinedFailedRows > 0) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.errorRowsNotWritten", new String[] {
+                    String.valueOf(pipelinedFailedRows), dbContext.getDbConfigName() });
+            logger.error(errMsg);
+            pipelinedFailedRows = 0;
+            throw new DataAccessObjectException(errMsg);
+        }
+    }
+
+    /**
+     * Waits for the batch of the last write to be executed when batches are pipelined, see
+     * {@link SqlConfig#isPipelineBatches()}. Its rows are only known to be written once this returns.
+     *
+     * @return false if rows of the batch were not written, see {@link #getRowErrors()}
+     */
+    public boolean finishBatch() throws DataAccessObjectException {
+        rowErrors.clear();
+        finishPendingBatch(rowErrors);
+        return rowErrors.isEmpty();
+    }
+
+    /**
+     * @return the error of each row that was not written, by the index of the row in the rows written: of the
+     *         last write, or when batches are pipelined of the batch finished by {@link #finishBatch()}
+     */
+    public Map<Integer, String> getRowErrors() {
+        return Collections.unmodifiableMap(rowErrors);
+    }
+
+    /**
+     * @return true if the rows of a write are executed on a background thread, see {@link #finishBatch()}
+     */
+    public boolean isPipelineBatches() {
+        return sqlConfig.isPipelineBatches();
+    }
+
+    /**
+     * @return true if batches are written through the database's bulk import, see {@link SqlConfig#isBulkImport()}
+     */
+    boolean isBulkImport() {
+        return bulkImport != null;
+    }
+
     private void setupUpdate() throws DataAccessObjectInitializationException {
+        if (sqlConfig.isRewriteBatchedStatements()) {
+            String property = DatabaseDialect.forUrl(dataSource.getUrl()).getBatchRewriteProperty();
+            if (property != null) {
+                logger.info(Messages.getFormattedString("DatabaseDAO.batchRewrite", new String[] { property,
+                        dbContext.getDbConfigName() }));
+                // only applies to the connections opened after it is set
+                dataSource.addConnectionProperty(property, "true");
+            }
+        }
         dbContext.initConnection(dataSource);
-        dbContext.replaceSqlParams(sqlConfig.getSqlString());
+        dbContext.replaceSqlParams(sqlConfig.getSqlString(), sqlConfig, config);
         dbContext.prepareStatement();
+        if (sqlConfig.isBulkImport()) {
+            setupBulkImport();
+        }
+        uncommittedRows = 0;
+        uncommittedBytes = 0;
+        lastCommitMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Sets up the bulk import, keeping the statement for the rows written one at a time and for the batches that
+     * fail to import.
+     */
+    private void setupBulkImport() {
+        try {
+            DatabaseDialect dialect = DatabaseDialect.forConnection(dbContext.getDataConnection());
+            bulkImport = sqlConfig.getSqlParams() == null ? null : dialect.bulkImport(dbContext.getCurrentSqlString());
+            if (bulkImport == null) {
+                logger.info(Messages.getFormattedString("DatabaseDAO.bulkImportUnsupported",
+                        dbContext.getDbConfigName()));
+                return;
+            }
+            logger.info(Messages.getFormattedString("DatabaseDAO.bulkImport", new String[] { dialect.name(),
+                    dbContext.getDbConfigName() }));
+        } catch (SQLException | IOException e) {
+            logger.warn(Messages.getFormattedString("DatabaseDAO.errorBulkImport", new String[] {
+                    dbContext.getDbConfigName(), e.getMessage() }), e);
+        }
     }
 
     /*
@@ -126,27 +257,72 @@ public class DatabaseWriter implements DataWriter {
      */
     @Override
     public boolean writeRowList(List<Row> inputRowList) throws DataAccessObjectException {
+        return writeRows(inputRowList);
+    }
+
+    /**
+     * Binds only the declared sql parameters of each row, looking up their columns once for the batch.
+     */
+    @Override
+    public boolean writeRowBatch(RowBatch inputBatch) throws DataAccessObjectException {
+        Map<String, String> sqlParams = sqlConfig.getSqlParams();
+        List<String> paramNames = new ArrayList<String>();
+        List<Integer> paramColumns = new ArrayList<Integer>();
+        if (sqlParams != null) {
+            for (String paramName : sqlParams.keySet()) {
+                int column = inputBatch.getSchema().indexOf(paramName);
+                if (column >= 0) {
+                    paramNames.add(paramName);
+                    paramColumns.add(column);
+                }
+            }
+        }
+        RowSchema paramSchema = new RowSchema(paramNames);
+        List<Row> paramRows = new ArrayList<Row>(inputBatch.size());
+        for (int i = 0; i < inputBatch.size(); i++) {
+            Row paramRow = new Row(paramSchema);
+            for (int p = 0; p < paramNames.size(); p++) {
+                paramRow.put(paramNames.get(p), inputBatch.getValue(i, paramColumns.get(p)));
+            }
+            paramRows.add(paramRow);
+        }
+        return writeRows(paramRows);
+    }
+
+    private boolean writeRows(List<Row> inputRowList) throws DataAccessObjectException {
 
         // make sure that the update is setup and ready to go, otherwise stop
         if (!dbContext.isOpen()) { throw new DataAccessObjectInitializationException(Messages
                 .getString("DatabaseDAO.errorUpdateNotOpen")); }
 
-        boolean success = true;
+        // the connection is only used by one thread at a time, the rows are bound once the batch executing is done
+        finishUnreportedBatch();
+        rowErrors.clear();
         int startingRowNumber = currentRowNumber;
+        PreparedStatement statement = dbContext.getDataStatement();
+        // a single row is written through the statement for its own error
+        BulkImport batchImport = inputRowList.size() > 1 ? bulkImport : null;
+        long bytes = 0;
 
         try {
-            //for batchsize = 1, don't do batching, this provides much better error output
-            if(inputRowList.size() == 1) {
-                dbContext.setSqlParamValues(sqlConfig, config, inputRowList.get(0));
-                currentRowNumber++;
-            } else {
-                // for each row set the Sql params in the prepared statement
-                dbContext.getDataStatement().clearBatch();
-                for (Row inputRow : inputRowList) {
+            // for each row set the Sql params in the prepared statement, or stage them for the bulk import
+            statement.clearBatch();
+            List<Object[]> importRows = new ArrayList<Object[]>(batchImport != null ? inputRowList.size() : 0);
+            for (Row inputRow : inputRowList) {
+                if (batchImport != null) {
+                    importRows.add(dbContext.getSqlParamValues(sqlConfig, config, inputRow));
+                } else {
                     dbContext.setSqlParamValues(sqlConfig, config, inputRow);
-                    dbContext.getDataStatement().addBatch();
-                    currentRowNumber++;
+                    //for batchsize = 1, don't do batching, this provides much better error output
+                    if (inputRowList.size() > 1) {
+                        statement.addBatch();
+                    }
                 }
+                bytes += estimateBytes(inputRow);
+                currentRowNumber++;
+            }
+            if (batchImport != null) {
+                batchImport.write(importRows);
             }
         } catch (ParameterLoadException e) {
             throw new DataAccessObjectException(e.getMessage(), e);
@@ -170,48 +346,31 @@ public class DatabaseWriter implements DataWriter {
             throw new DataAccessObjectException(errMsg, e);
         }
 
+        if (sqlConfig.isPipelineBatches()) {
+            // the caller may reuse the list
+            pendingBatch = new PipelinedBatch(batchImport, new ArrayList<Row>(inputRowList), startingRowNumber,
+                    bytes);
+            pendingBatch.start();
+            return true;
+        }
+
         try {
-            //for batchsize = 1, don't do batching, this provides much better error output
-            int totalSuccessRows = 0;
-            if(inputRowList.size() == 1) {
-                // non-batch update returns exception, so it's always success unless exception is returned
-                dbContext.getDataStatement().executeUpdate();
-                success = true;
-                totalSuccessRows = 1;
-            } else {
-                // execute the update SQL in batch
-                int[] rowsUpdatedArray = dbContext.getDataStatement().executeBatch();
-                for (int rowsUpdated : rowsUpdatedArray) {
-                    if (rowsUpdated == PreparedStatement.SUCCESS_NO_INFO) {
-                        totalSuccessRows = rowsUpdatedArray.length;
-                        success = true;
-                        break;
-                    }
-                }
+            batchSavepoint = setSavepoint();
+            // a single row is written with its own error
+            if (inputRowList.size() == 1) {
+                writeRowByRow(inputRowList, startingRowNumber, rowErrors);
+            } else if (!executeBatch(batchImport, inputRowList.size(), bytes, startingRowNumber)) {
+                writeFailedBatch(batchImport, inputRowList, bytes, startingRowNumber, rowErrors);
             }
             logger.debug(Messages.getFormattedString("DatabaseDAO.updatedStatus", new String[] {
-                    String.valueOf(totalSuccessRows), String.valueOf(currentRowNumber) }));
-
-            // commit the change
-            dbContext.getDataConnection().commit();
-
+                    String.valueOf(inputRowList.size() - rowErrors.size()), String.valueOf(currentRowNumber) }));
         } catch (SQLException sqe) {
-            if (sqe instanceof BatchUpdateException) {
-                int[] updateCountArray = ((BatchUpdateException)sqe).getUpdateCounts();
-                for (int i = 0; i < updateCountArray.length; i++) {
-                    if (updateCountArray[i] == PreparedStatement.EXECUTE_FAILED) {
-                        // FIXME all results are the same, return
-                        success = false;
-                        break;
-                    }
-                }
-            }
             String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionWriteRow", new String[] {
                     String.valueOf(currentRowNumber + 1 - inputRowList.size()), String.valueOf(currentRowNumber + 1),
                     dbContext.getDbConfigName(), sqe.getMessage() });
             logger.error(errMsg, sqe);
 
-            endException(inputRowList.size());
+            endException(inputRowList.size(), batchSavepoint);
             throw new DataAccessObjectException(errMsg, sqe);
         } catch (Exception e) {
             String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionWriteRow", new String[] {
@@ -219,11 +378,265 @@ public class DatabaseWriter implements DataWriter {
                     dbContext.getDbConfigName(), e.getMessage() });
             logger.error(errMsg, e);
 
-            endException(inputRowList.size());
+            endException(inputRowList.size(), batchSavepoint);
             throw new DataAccessObjectException(errMsg, e);
         }
 
-        return success;
+        return rowErrors.isEmpty();
+    }
+
+    /**
+     * Executes the rows bound to the statement, or staged for the bulk import if there is one, and commits them when
+     * it is time to, see {@link SqlConfig#getCommitRows()}. Runs on a background thread when batches are pipelined.
+     *
+     * @return false if the batch failed, in which case its rows are rolled back to the batch savepoint
+     */
+    private boolean executeBatch(BulkImport batchImport, int rows, long bytes, int startingRowNumber)
+            throws SQLException {
+        try {
+            if (batchImport != null) {
+                batchImport.execute(dbContext.getDataConnection());
+            } else if (rows == 1) {
+                dbContext.getDataStatement().executeUpdate();
+            } else {
+                dbContext.getDataStatement().executeBatch();
+            }
+        } catch (SQLException sqe) {
+            logger.warn(Messages.getFormattedString(batchImport != null ? "DatabaseDAO.bulkImportFallback"
+                    : "DatabaseDAO.batchFallback", new String[] {
+                    String.valueOf(startingRowNumber + 1), String.valueOf(startingRowNumber + rows),
+                    dbContext.getDbConfigName(), sqe.getMessage() }), sqe);
+            rollback(batchSavepoint);
+            return false;
+        }
+        uncommittedRows += rows;
+        uncommittedBytes += bytes;
+        commitIfDue();
+        return true;
+    }
+
+    /**
+     * Writes the rows of a batch that failed to execute. The rows that failed to import are retried as a batch of
+     * the statement first: if that succeeds, the import itself is what failed, e.g. the database cannot read the
+     * staged rows or the user may not import them, and the bulk import is not used for the following batches.
+     * Otherwise the rows are written one at a time. Runs on the caller's thread.
+     *
+     * @param errors the error of each row not written is put in, by the index of the row
+     */
+    private void writeFailedBatch(BulkImport batchImport, List<Row> inputRowList, long bytes, int startingRowNumber,
+            Map<Integer, String> errors) throws SQLException, ParameterLoadException {
+        if (batchImport != null) {
+            bindBatch(inputRowList);
+            // not every database keeps a savepoint once rolled back to
+            batchSavepoint = setSavepoint();
+            if (executeBatch(null, inputRowList.size(), bytes, startingRowNumber)) {
+                disableBulkImport();
+                return;
+            }
+        }
+        writeRowByRow(inputRowList, startingRowNumber, errors);
+    }
+
+    /**
+     * Binds the rows to the statement as a batch, for rows that were staged for a bulk import.
+     */
+    private void bindBatch(List<Row> inputRowList) throws SQLException, ParameterLoadException {
+        PreparedStatement statement = dbContext.getDataStatement();
+        statement.clearBatch();
+        for (Row inputRow : inputRowList) {
+            dbContext.setSqlParamValues(sqlConfig, config, inputRow);
+            statement.addBatch();
+        }
+    }
+
+    /**
+     * Closes the bulk import, the following batches are written through the statement. Only called between
+     * batches, when none is importing.
+     */
+    private void disableBulkImport() {
+        if (bulkImport == null) {
+            return;
+        }
+        logger.warn(Messages.getFormattedString("DatabaseDAO.bulkImportDisabled", dbContext.getDbConfigName()));
+        bulkImport.close();
+        bulkImport = null;
+    }
+
+    /**
+     * Writes the rows of a failed batch one at a time, so only the rows that fail are not written.
+     *
+     * @param errors the error of each row not written is put in, by the index of the row
+     */
+    private void writeRowByRow(List<Row> inputRowList, int startingRowNumber, Map<Integer, String> errors)
+            throws SQLException, ParameterLoadException {
+        PreparedStatement statement = dbContext.getDataStatement();
+        statement.clearBatch();
+        for (int i = 0; i < inputRowList.size(); i++) {
+            Row inputRow = inputRowList.get(i);
+            dbContext.setSqlParamValues(sqlConfig, config, inputRow);
+            Savepoint savepoint = setSavepoint();
+            try {
+                statement.executeUpdate();
+                uncommittedRows++;
+                uncommittedBytes += estimateBytes(inputRow);
+            } catch (SQLException sqe) {
+                String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionWriteOneRow", new String[] {
+                        String.valueOf(startingRowNumber + i + 1), dbContext.getDbConfigName(), sqe.getMessage() });
+                logger.error(errMsg, sqe);
+                errors.put(i, errMsg);
+                rollback(savepoint);
+            }
+        }
+        commitIfDue();
+    }
+
+    /**
+     * Finishes the pipelined batch if it was not finished through {@link #finishBatch()}, counting its rows that
+     * failed for {@link #finish()} to report.
+     */
+    private void finishUnreportedBatch() throws DataAccessObjectException {
+        Map<Integer, String> errors = new TreeMap<Integer, String>();
+        finishPendingBatch(errors);
+        pipelinedFailedRows += errors.size();
+    }
+
+    /**
+     * Waits for the batch executing on the background thread, and writes its rows if it failed, see
+     * {@link #writeFailedBatch(BulkImport, List, long, int, Map)}.
+     *
+     * @param errors the error of each row not written is put in, by the index of the row
+     */
+    private void finishPendingBatch(Map<Integer, String> errors) throws DataAccessObjectException {
+        if (pendingBatch == null) {
+            return;
+        }
+        PipelinedBatch batch = pendingBatch;
+        pendingBatch = null;
+        try {
+            batch.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException(e);
+        }
+        try {
+            if (batch.failure != null) {
+                throw batch.failure;
+            }
+            if (!batch.executed) {
+                writeFailedBatch(batch.batchImport, batch.rows, batch.bytes, batch.startingRowNumber, errors);
+            }
+        } catch (SQLException sqe) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionWriteRow", new String[] {
+                    String.valueOf(batch.startingRowNumber + 1),
+                    String.valueOf(batch.startingRowNumber + batch.rows.size() + 1), dbContext.getDbConfigName(),
+                    sqe.getMessage() });
+            logger.error(errMsg, sqe);
+            endException(batch.rows.size(), batchSavepoint);
+            throw new DataAccessObjectException(errMsg, sqe);
+        } catch (ParameterLoadException e) {
+            throw new DataAccessObjectException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marks where a failed batch or row is rolled back to, committing the rows written before instead if the
+     * database does not support savepoints.
+     *
+     * @return null if there is nothing to keep
+     */
+    private Savepoint setSavepoint() throws SQLException {
+        if (uncommittedRows == 0) {
+            return null;
+        }
+        if (savepointsSupported) {
+            try {
+                return dbContext.getDataConnection().setSavepoint();
+            } catch (SQLException sqe) {
+                logger.warn(Messages.getFormattedString("DatabaseDAO.errorSavepoint", new String[] {
+                        dbContext.getDbConfigName(), sqe.getMessage() }));
+                savepointsSupported = false;
+            }
+        }
+        commit();
+        return null;
+    }
+
+    private void rollback(Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            dbContext.getDataConnection().rollback(savepoint);
+        } else {
+            dbContext.getDataConnection().rollback();
+            uncommittedRows = 0;
+            uncommittedBytes = 0;
+        }
+    }
+
+    private void commitIfDue() throws SQLException {
+        boolean commitInterval = sqlConfig.getCommitRows() > 0 || sqlConfig.getCommitBytes() > 0
+                || sqlConfig.getCommitIntervalMillis() > 0;
+        if (!commitInterval
+                || sqlConfig.getCommitRows() > 0 && uncommittedRows >= sqlConfig.getCommitRows()
+                || sqlConfig.getCommitBytes() > 0 && uncommittedBytes >= sqlConfig.getCommitBytes()
+                || sqlConfig.getCommitIntervalMillis() > 0
+                        && System.currentTimeMillis() - lastCommitMillis >= sqlConfig.getCommitIntervalMillis()) {
+            commit();
+        }
+    }
+
+    private void commit() throws SQLException {
+        dbContext.getDataConnection().commit();
+        // released by the commit
+        batchSavepoint = null;
+        uncommittedRows = 0;
+        uncommittedBytes = 0;
+        lastCommitMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return approximate size of the values of the row, counting characters for strings
+     */
+    private static long estimateBytes(Row row) {
+        long bytes = 0;
+        if (row != null) {
+            for (Object value : row.values()) {
+                bytes += value instanceof String ? ((String)value).length() : VALUE_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Batch executed on a background thread while the caller gets the next rows. The caller does not use the
+     * connection until the batch is done, see {@link #finishPendingBatch(Map)}.
+     */
+    private class PipelinedBatch extends Thread {
+        private final BulkImport batchImport;
+        private final List<Row> rows;
+        private final int startingRowNumber;
+        private final long bytes;
+        private boolean executed;
+        private SQLException failure;
+
+        PipelinedBatch(BulkImport batchImport, List<Row> rows, int startingRowNumber, long bytes) {
+            super("DatabaseWriter batch");
+            setDaemon(true);
+            this.batchImport = batchImport;
+            this.rows = rows;
+            this.startingRowNumber = startingRowNumber;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void run() {
+            try {
+                batchSavepoint = setSavepoint();
+                executed = executeBatch(batchImport, rows.size(), bytes, startingRowNumber);
+            } catch (SQLException sqe) {
+                failure = sqe;
+            } catch (RuntimeException e) {
+                failure = new SQLException(e.getMessage(), e);
+            }
+        }
     }
 
     /**
@@ -240,12 +653,13 @@ public class DatabaseWriter implements DataWriter {
     }
 
     /**
-     * @param sqe
+     * @param savepoint where the batch that failed was started, the rows written before it stay uncommitted since
+     *            they were reported written; null to roll back all uncommitted rows
      */
-    private void endException(int batchSize) {
+    private void endException(int batchSize, Savepoint savepoint) {
         // Rollback if dbContext.getAutoCommit() is false
         try {
-            dbContext.getDataConnection().rollback();
+            rollback(savepoint);
         } catch (SQLException sqe) {
             logger.error(Messages.getFormattedString("DatabaseDAO.sqlExceptionRollback", new String[] {
                     String.valueOf(currentRowNumber + 1 - batchSize),
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.database;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Imports the rows into H2 from a temporary CSV file read by CSVREAD. H2 converts the text of each value to the type
+ * of its column like it does for a string bound to the parameter.
+ */
+class H2BulkImport implements BulkImport {
+
+    // written unquoted for null values; every other value is quoted, so an empty string stays one
+    private static final String NULL_VALUE = "\\N";
+
+    private final File file;
+    private final String importSql;
+
+    H2BulkImport(String table, List<String> columns) throws IOException {
+        file = File.createTempFile("dataloader", ".csv");
+        file.deleteOnExit();
+        StringBuilder fileColumns = new StringBuilder();
+        for (int i = 1; i <= columns.size(); i++) {
+            fileColumns.append(i > 1 ? ",C" : "C").append(i);
+        }
+        importSql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") SELECT " + fileColumns
+                + " FROM CSVREAD(" + literal(file.getAbsolutePath()) + ", '" + fileColumns + "', 'charset=UTF-8 null="
+                + NULL_VALUE + "')";
+    }
+
+    @Override
+    public void write(List<Object[]> rows) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    if (row[i] == null) {
+                        out.write(NULL_VALUE);
+                    } else {
+                        out.write('"');
+                        out.write(toText(row[i]).replace("\"", "\"\""));
+                        out.write('"');
+                    }
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    @Override
+    public void execute(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(importSql);
+        }
+    }
+
+    @Override
+    public void close() {
+        file.delete();
+    }
+
+    /**
+     * @return the value as H2 reads it from a string: dates and times in their JDBC escape format, in the default
+     *         time zone like a bound date, and binary values in hex
+     */
+    private static String toText(Object value) {
+        if (value instanceof byte[]) {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : (byte[])value) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        }
+        if (value instanceof Calendar) {
+            return new Timestamp(((Calendar)value).getTimeInMillis()).toString();
+        }
+        if (value.getClass() == Date.class) {
+            return new Timestamp(((Date)value).getTime()).toString();
+        }
+        return value.toString();
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.LastRun;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dao.DataReader;
+import com.salesforce.dataloader.dao.PrefetchingDataReader;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Reads the partitions of a query, see {@link SqlConfig#getPartitionColumn()}, as one data source. Each partition
+ * is read by its own {@link DatabaseReader}, on its own connection, ahead of the caller on a background thread by
+ * a {@link PrefetchingDataReader}.
+ * <p>
+ * The rows are returned either one partition after the other, or in turns of one batch per partition. Either way
+ * the order only depends on the number of rows of each partition, so {@link #seekToRow(int)} finds the row to
+ * resume at in each partition from the counts of their rows, also when a load is resumed in a later run. The rows
+ * read from each partition are kept in the last run file, and a warning is logged when a later run resumes with
+ * counts that do not match them, because rows were added to or removed from the partitions in between.
+ */
+class PartitionedDatabaseReader implements DataReader {
+
+    private static final Logger logger = LogManager.getLogger(PartitionedDatabaseReader.class);
+
+    // batches read ahead for each partition
+    private static final int PENDING_BATCHES_PER_PARTITION = 2;
+    // marks the rows read from a partition that had rows left, see LastRun#LAST_LOAD_PARTITION_ROWS
+    private static final String ROWS_LEFT_SUFFIX = "+";
+
+    private final Config config;
+    private final String dbConfigName;
+    // rows read from each partition in the last run, empty if not known
+    private final List<String> lastRunPartitionRows;
+    private final List<DatabaseReader> partitions;
+    private final List<PrefetchingDataReader> sources;
+    private final boolean ordered;
+    private final int batchSize;
+    private RowSchema rowSchema;
+    private boolean open;
+    private boolean[] finished;
+    // rows returned from each partition
+    private int[] partitionRowsRead;
+    private int currentPartition;
+    // rows left in the turn of the current partition when not ordered
+    private int turnRows;
+    private int currentRowNumber;
+
+    /**
+     * @param partitions reader of each partition, in partition order
+     * @param ordered true to return the rows of one partition after the other
+     * @param batchSize number of rows read per batch, and returned per turn when not ordered
+     */
+    PartitionedDatabaseReader(Config config, String dbConfigName, List<DatabaseReader> partitions, boolean ordered,
+            int batchSize) {
+        this.config = config;
+        this.dbConfigName = dbConfigName;
+        this.lastRunPartitionRows = config.getStrings(LastRun.LAST_LOAD_PARTITION_ROWS);
+        this.partitions = partitions;
+        this.ordered = ordered;
+        this.batchSize = Math.max(batchSize, 1);
+        this.sources = new ArrayList<PrefetchingDataReader>(partitions.size());
+        for (DatabaseReader partition : partitions) {
+            sources.add(new PrefetchingDataReader(partition, this.batchSize, PENDING_BATCHES_PER_PARTITION));
+        }
+        this.rowSchema = new RowSchema(getColumnNames());
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        close();
+        int[] partitionRows = new int[partitions.size()];
+        try {
+            open(partitionRows);
+        } catch (DataAccessObjectInitializationException e) {
+            throw e;
+        } catch (DataAccessObjectException e) {
+            throw new DataAccessObjectInitializationException(e.getMessage(), e);
+        }
+        currentRowNumber = 0;
+        currentPartition = 0;
+        turnRows = batchSize;
+    }
+
+    /**
+     * Opens each partition at the given row and starts reading ahead
+     */
+    private void open(int[] partitionRows) throws DataAccessObjectException {
+        finished = new boolean[partitions.size()];
+        partitionRowsRead = partitionRows.clone();
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                if (partitionRows[i] > 0) {
+                    // runs the query of the partition from the row
+                    sources.get(i).seekToRow(partitionRows[i]);
+                } else {
+                    sources.get(i).open();
+                }
+            }
+        } catch (DataAccessObjectException e) {
+            close();
+            throw e;
+        }
+        open = true;
+        readAhead();
+    }
+
+    /**
+     * Starts reading ahead in the partitions with rows left, again after counting or selecting columns stopped it
+     */
+    private void readAhead() {
+        if (open) {
+            for (int i = 0; i < sources.size(); i++) {
+                if (!finished[i]) {
+                    sources.get(i).readAhead();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PrefetchingDataReader source : sources) {
+            source.close();
+        }
+        open = false;
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        partitions.get(0).checkConnection();
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return partitions.get(0).getColumnNames();
+    }
+
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnNames) {
+        boolean selected = true;
+        for (PrefetchingDataReader source : sources) {
+            selected &= source.setColumnsToRead(columnNames);
+        }
+        rowSchema = selected ? new RowSchema(getColumnNames()).select(columnNames) : new RowSchema(getColumnNames());
+        readAhead();
+        return selected;
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    @Override
+    public int getTotalRows() throws DataAccessObjectException {
+        int rows = 0;
+        for (PrefetchingDataReader source : sources) {
+            rows += source.getTotalRows();
+        }
+        readAhead();
+        return rows;
+    }
+
+    @Override
+    public Row readRow() throws DataAccessObjectException {
+        RowBatch batch = readRowBatch(1);
+        return batch.isEmpty() ? null : batch.getRow(0);
+    }
+
+    @Override
+    public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (!open) {
+            open();
+        }
+        RowBatch batch = new RowBatch(rowSchema, maxRows);
+        while (batch.size() < maxRows && currentPartition < sources.size()) {
+            int rows = maxRows - batch.size();
+            if (!ordered) {
+                rows = Math.min(rows, turnRows);
+            }
+            RowBatch partitionBatch = sources.get(currentPartition).readRowBatch(rows);
+            if (partitionBatch.isEmpty()) {
+                // release the connection of the partition
+                sources.get(currentPartition).close();
+                finished[currentPartition] = true;
+                nextPartition();
+                continue;
+            }
+            for (int row = 0; row < partitionBatch.size(); row++) {
+                int batchRow = batch.addRow();
+                for (int column = 0; column < rowSchema.getColumnCount(); column++) {
+                    batch.setValue(batchRow, column, partitionBatch.getValue(row, column));
+                }
+            }
+            currentRowNumber += partitionBatch.size();
+            partitionRowsRead[currentPartition] += partitionBatch.size();
+            if (!ordered) {
+                turnRows -= partitionBatch.size();
+                if (turnRows == 0) {
+                    nextPartition();
+                }
+            }
+        }
+        savePartitionRows();
+        return batch;
+    }
+
+    /**
+     * Sets the rows read from each partition for the last run file, a partition that had rows left when it was
+     * last read is marked with {@link #ROWS_LEFT_SUFFIX}
+     */
+    private void savePartitionRows() {
+        String[] values = new String[partitionRowsRead.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = partitionRowsRead[i] + (finished[i] ? "" : ROWS_LEFT_SUFFIX);
+        }
+        config.setValue(LastRun.LAST_LOAD_PARTITION_ROWS, values);
+    }
+
+    /**
+     * Logs a warning if the partitions have fewer rows than were read from them in the last run, or a different
+     * number of rows than a partition that was read to its end had
+     */
+    private void checkPartitionRows(int[] partitionTotals, int rowNumber) {
+        if (lastRunPartitionRows.size() != partitionTotals.length) {
+            return;
+        }
+        boolean changed = false;
+        try {
+            for (int i = 0; i < partitionTotals.length; i++) {
+                String value = lastRunPartitionRows.get(i).trim();
+                boolean hadRowsLeft = value.endsWith(ROWS_LEFT_SUFFIX);
+                int rowsRead = Integer.parseInt(hadRowsLeft ? value.substring(0, value.length() - 1) : value);
+                changed |= hadRowsLeft ? partitionTotals[i] < rowsRead : partitionTotals[i] != rowsRead;
+            }
+        } catch (NumberFormatException e) {
+            // not written by this reader
+            return;
+        }
+        if (changed) {
+            logger.warn(Messages.getFormattedString("DatabaseDAO.partitionRowsChanged", new String[] {
+                    dbConfigName, Arrays.toString(partitionTotals), lastRunPartitionRows.toString(),
+                    String.valueOf(rowNumber) }));
+        }
+    }
+
+    /**
+     * Moves on to the next partition with rows left, {@link #sources}.size() if there is none
+     */
+    private void nextPartition() {
+        turnRows = batchSize;
+        if (ordered) {
+            currentPartition++;
+            return;
+        }
+        for (int i = 1; i <= sources.size(); i++) {
+            int partition = (currentPartition + i) % sources.size();
+            if (!finished[partition]) {
+                currentPartition = partition;
+                return;
+            }
+        }
+        currentPartition = sources.size();
+    }
+
+    /**
+     * Counts the rows of each partition and replays the order of the rows up to the given row, to open each
+     * partition at its first row not returned yet.
+     */
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        close();
+        int[] partitionTotals = new int[partitions.size()];
+        for (int i = 0; i < partitions.size(); i++) {
+            partitionTotals[i] = partitions.get(i).countRows();
+        }
+        checkPartitionRows(partitionTotals, rowNumber);
+        int[] partitionRows = new int[partitions.size()];
+        boolean[] ended = new boolean[partitions.size()];
+        int partition = 0;
+        int rowsLeft = rowNumber;
+        int rowsInTurn = batchSize;
+        while (rowsLeft > 0 && partition < partitions.size()) {
+            int rows = Math.min(rowsLeft, partitionTotals[partition] - partitionRows[partition]);
+            if (!ordered) {
+                rows = Math.min(rows, rowsInTurn);
+            }
+            partitionRows[partition] += rows;
+            rowsLeft -= rows;
+            rowsInTurn -= rows;
+            if (partitionRows[partition] >= partitionTotals[partition]) {
+                ended[partition] = true;
+            } else if (ordered || rowsInTurn > 0) {
+                break;
+            }
+            // the partition has no rows left, or its turn is over
+            partition = ordered ? partition + 1 : nextPartition(ended, partition);
+            rowsInTurn = batchSize;
+        }
+        open(partitionRows);
+        currentRowNumber = rowNumber - rowsLeft;
+        currentPartition = partition;
+        turnRows = rowsInTurn;
+        return true;
+    }
+
+    private static int nextPartition(boolean[] ended, int partition) {
+        for (int i = 1; i <= ended.length; i++) {
+            int next = (partition + i) % ended.length;
+            if (!ended[next]) {
+                return next;
+            }
+        }
+        return ended.length;
+    }
+}
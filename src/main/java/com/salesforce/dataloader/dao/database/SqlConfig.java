@@ -31,6 +31,20 @@ public class SqlConfig {
     ArrayList<String> columnNames;
     HashMap<String,String> sqlParams;
     String sqlString;
+    String countSqlString;
+    boolean estimateTotalRows;
+    int fetchSize;
+    boolean streamResults;
+    String partitionColumn;
+    int partitionCount;
+    List<String> partitionBounds = new ArrayList<String>();
+    boolean partitionsOrdered = true;
+    int commitRows;
+    long commitBytes;
+    long commitIntervalMillis;
+    boolean pipelineBatches;
+    boolean rewriteBatchedStatements;
+    boolean bulkImport;
     List<String> generatedKeysColumnNames = new ArrayList<String>();
 
     public SqlConfig() {
@@ -52,6 +66,182 @@ public class SqlConfig {
         return sqlString;
     }
 
+    /**
+     * @param countSqlString query returning the number of rows of the query in its first column, with the same
+     *            parameters; by default the query is wrapped in a count
+     */
+    public void setCountSqlString(String countSqlString) {
+        this.countSqlString = countSqlString;
+    }
+
+    public String getCountSqlString() {
+        return countSqlString;
+    }
+
+    /**
+     * @param estimateTotalRows true to use the query planner's estimate of the number of rows where the database
+     *            provides one, instead of counting them
+     */
+    public void setEstimateTotalRows(boolean estimateTotalRows) {
+        this.estimateTotalRows = estimateTotalRows;
+    }
+
+    public boolean isEstimateTotalRows() {
+        return estimateTotalRows;
+    }
+
+    /**
+     * @param fetchSize number of rows fetched from the database per round trip; by default
+     *            dataAccess.readBatchSize, up to {@link com.salesforce.dataloader.config.Config#MAX_DAO_READ_BATCH_SIZE}
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param streamResults true to read the rows through a forward-only, read-only cursor that the driver does not
+     *            buffer in memory, set up the way the database needs it, e.g. row by row streaming for MySQL
+     */
+    public void setStreamResults(boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    /**
+     * @param partitionColumn column of the query the rows are split on, to read them with one query and connection
+     *            per partition in parallel; the data source must allow that many connections
+     */
+    public void setPartitionColumn(String partitionColumn) {
+        this.partitionColumn = partitionColumn;
+    }
+
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    /**
+     * @param partitionCount number of partitions, each reading the rows whose partition column modulo the count is
+     *            the partition number; ignored when there are partition bounds
+     */
+    public void setPartitionCount(int partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * @return number of partitions, 1 or less if the query is not partitioned
+     */
+    public int getPartitionCount() {
+        if (partitionColumn == null) {
+            return 1;
+        }
+        return partitionBounds.isEmpty() ? partitionCount : partitionBounds.size() + 1;
+    }
+
+    /**
+     * @param partitionBounds SQL literals, in ascending order, splitting the values of the partition column into
+     *            ranges; each range includes its lower bound and the first one the null values
+     */
+    public void setPartitionBounds(List<String> partitionBounds) {
+        this.partitionBounds = partitionBounds != null ? partitionBounds : new ArrayList<String>();
+    }
+
+    public List<String> getPartitionBounds() {
+        return partitionBounds;
+    }
+
+    /**
+     * @param partitionsOrdered true to return the rows of one partition after the other, false to return them in
+     *            turns of one batch per partition
+     */
+    public void setPartitionsOrdered(boolean partitionsOrdered) {
+        this.partitionsOrdered = partitionsOrdered;
+    }
+
+    public boolean isPartitionsOrdered() {
+        return partitionsOrdered;
+    }
+
+    /**
+     * @param commitRows number of rows written after which they are committed; when neither this nor
+     *            {@link #setCommitBytes(long)} nor {@link #setCommitIntervalMillis(long)} is set, the rows are
+     *            committed after every write
+     */
+    public void setCommitRows(int commitRows) {
+        this.commitRows = commitRows;
+    }
+
+    public int getCommitRows() {
+        return commitRows;
+    }
+
+    /**
+     * @param commitBytes approximate size of the values written, in bytes, after which they are committed
+     */
+    public void setCommitBytes(long commitBytes) {
+        this.commitBytes = commitBytes;
+    }
+
+    public long getCommitBytes() {
+        return commitBytes;
+    }
+
+    /**
+     * @param commitIntervalMillis time after the last commit after which the rows written are committed
+     */
+    public void setCommitIntervalMillis(long commitIntervalMillis) {
+        this.commitIntervalMillis = commitIntervalMillis;
+    }
+
+    public long getCommitIntervalMillis() {
+        return commitIntervalMillis;
+    }
+
+    /**
+     * @param pipelineBatches true to execute each batch of rows on a background thread while the caller gets the
+     *            next one. A write then returns before its rows are executed, {@link DatabaseWriter#finishBatch()}
+     *            waits for them and gives the rows that failed; the rows of a batch not finished that way are
+     *            reported when the writer is finished. The next batch is bound once the batch is done, so the
+     *            connection is only used by one thread at a time.
+     */
+    public void setPipelineBatches(boolean pipelineBatches) {
+        this.pipelineBatches = pipelineBatches;
+    }
+
+    public boolean isPipelineBatches() {
+        return pipelineBatches;
+    }
+
+    /**
+     * @param rewriteBatchedStatements true to set the connection property that makes the driver send batches of
+     *            inserts as multi-row statements, for the drivers that have one
+     */
+    public void setRewriteBatchedStatements(boolean rewriteBatchedStatements) {
+        this.rewriteBatchedStatements = rewriteBatchedStatements;
+    }
+
+    public boolean isRewriteBatchedStatements() {
+        return rewriteBatchedStatements;
+    }
+
+    /**
+     * @param bulkImport true to write batches of a plain insert through the database's own bulk import, e.g. CSVREAD
+     *            for H2, where the dialect has one; other statements and databases use the prepared statement
+     */
+    public void setBulkImport(boolean bulkImport) {
+        this.bulkImport = bulkImport;
+    }
+
+    public boolean isBulkImport() {
+        return bulkImport;
+    }
+
     public HashMap<String,String> getSqlParams() {
         return sqlParams;
     }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dyna.DateTimeConverter;
+import com.salesforce.dataloader.exception.ParameterLoadException;
+
+/**
+ * Binds the values of one parameter of a prepared statement. The conversion and the SQL type of null values are
+ * resolved from the configured parameter type once, when the statement is prepared, instead of for every value.
+ */
+class SqlParamBinder {
+
+    private static final Logger logger = LogManager.getLogger(SqlParamBinder.class);
+
+    // date time and date formats of the values extracted from Salesforce, parsed without trying every format
+    private static final Pattern GMT_DATE_TIME = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z");
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final DateTimeFormatter GMT_DATE_TIME_FORMAT = DateTimeFormatter
+            .ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private enum Conversion {
+        NONE, DATE, TIMESTAMP, TIME
+    }
+
+    private final String name;
+    private final String type;
+    private final Conversion conversion;
+    // SQL type of null values, null if not supported
+    private final Integer nullSqlType;
+    private final TimeZone timeZone;
+    private final DateTimeConverter dateConverter;
+
+    /**
+     * @param name parameter name
+     * @param type configured class name of the parameter values, null if the parameter is not configured
+     * @param timeZone time zone of date strings without one
+     * @param dateConverter converter of the date strings in other formats, shared by the parameters of a statement
+     */
+    SqlParamBinder(String name, String type, TimeZone timeZone, DateTimeConverter dateConverter) {
+        this.name = name;
+        this.type = type;
+        this.timeZone = timeZone;
+        this.dateConverter = dateConverter;
+        if (java.sql.Date.class.getName().equals(type)) {
+            conversion = Conversion.DATE;
+        } else if (Timestamp.class.getName().equals(type)) {
+            conversion = Conversion.TIMESTAMP;
+        } else if (Time.class.getName().equals(type)) {
+            conversion = Conversion.TIME;
+        } else {
+            conversion = Conversion.NONE;
+        }
+        nullSqlType = getSqlType(type);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    private static Integer getSqlType(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            final Class<?> cls = Class.forName(type);
+            if (java.sql.Timestamp.class.isAssignableFrom(cls)) {
+                return Types.TIMESTAMP;
+            } else if (java.sql.Time.class.isAssignableFrom(cls)) {
+                return Types.TIME;
+            } else if (java.sql.Date.class.isAssignableFrom(cls)) {
+                return Types.DATE;
+            } else if (Number.class.isAssignableFrom(cls)) {
+                return Types.NUMERIC;
+            } else if (String.class.isAssignableFrom(cls)) {
+                return Types.VARCHAR;
+            }
+        } catch (ClassNotFoundException e) {
+            // e.g. a primitive type, which cannot be null
+        }
+        return null;
+    }
+
+    /**
+     * Map a parameter value to an object usable as a replacement in a Sql statement
+     *
+     * @return An object of type usable as a replacement in a Sql statement
+     * @throws ParameterLoadException
+     */
+    Object convert(Object paramValue) throws ParameterLoadException {
+        if (paramValue == null || conversion == Conversion.NONE) {
+            return paramValue;
+        }
+        try {
+            long timeInMillis = getTimeInMillis(paramValue);
+            switch (conversion) {
+            case DATE:
+                return new java.sql.Date(timeInMillis);
+            case TIMESTAMP:
+                return new Timestamp(timeInMillis);
+            default:
+                return new Time(timeInMillis);
+            }
+        } catch(Exception e) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMapping", new String[] {
+                    paramValue.toString(), paramValue.getClass().getName(), type, e.getMessage() });
+            logger.error(errMsg, e);
+            throw new ParameterLoadException(errMsg, e);
+        }
+    }
+
+    /**
+     * Sets a value converted by {@link #convert(Object)} as the parameter at the given position.
+     */
+    void bind(PreparedStatement statement, int index, Object sqlValue) throws SQLException {
+        if (sqlValue != null) {
+            statement.setObject(index, sqlValue);
+        } else if (nullSqlType != null) {
+            statement.setNull(index, nullSqlType);
+        } else {
+            throw new UnsupportedOperationException("Type not supported: " + type);
+        }
+    }
+
+    private long getTimeInMillis(Object paramValue) {
+        if(paramValue instanceof Calendar) {
+            return ((Calendar)paramValue).getTimeInMillis();
+        }
+        if(paramValue instanceof Date) {
+            return ((Date)paramValue).getTime();
+        }
+        else if(paramValue instanceof String) {
+            String dateString = ((String)paramValue).trim();
+            try {
+                if (GMT_DATE_TIME.matcher(dateString).matches()) {
+                    return LocalDateTime.parse(dateString, GMT_DATE_TIME_FORMAT).toInstant(ZoneOffset.UTC)
+                            .toEpochMilli();
+                }
+                if (DATE.matcher(dateString).matches()) {
+                    return LocalDate.parse(dateString, DATE_FORMAT).atStartOfDay(timeZone.toZoneId()).toInstant()
+                            .toEpochMilli();
+                }
+            } catch (DateTimeParseException e) {
+                // not a valid date, left to the converter to report
+            }
+            Calendar cal = (Calendar)dateConverter.convert(java.util.Calendar.class, paramValue);
+            return cal.getTimeInMillis();
+        } else {
+            throw new IllegalArgumentException(Messages.getFormattedString("DatabaseDAO.errorParamMappingType", paramValue.getClass().getName()));
+        }
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dao.DataReader;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.exception.DataAccessRowException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Reads JSON lines files, one JSON object per line. The file is read in chunks of whole lines, which are parsed
+ * by the reading thread or, when parallel reading is configured, on a fork-join pool with a bounded number of
+ * chunks parsed ahead of the caller. Blank lines are skipped.
+ * <p>
+ * JSON lines have no header: the columns are the ones found in the first {@link #SCHEMA_SAMPLE_ROWS} lines, see
+ * {@link JsonLinesRecordParser} for their names. A column first found after them is added to the columns when the
+ * first row with a value for it is read, unless only other columns are read. The rows are counted from the raw
+ * bytes, keeping the offset of every {@link #INDEX_INTERVAL}th row to seek to.
+ */
+public class JsonLinesFileReader implements DataReader {
+
+    private static final Logger logger = LogManager.getLogger(JsonLinesFileReader.class);
+
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    static final int SCHEMA_SAMPLE_ROWS = 1000;
+    static final int INDEX_INTERVAL = 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final File file;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private FileChannel channel;
+    private long size;
+    private long dataStart;
+    // offset of the next chunk read
+    private long position;
+    private List<String> columnNames;
+    private RowSchema fileSchema;
+    private Collection<String> columnsToRead;
+    private JsonLinesRecordParser parser;
+    private ForkJoinPool pool;
+    private final ArrayDeque<Future<Chunk>> pendingChunks = new ArrayDeque<Future<Chunk>>();
+    private Chunk currentChunk;
+    private int currentIndex;
+    // rows of the next chunks skipped by a seek
+    private int rowsToSkip;
+    private int currentRowNumber;
+    private int totalRows = -1;
+    // offsets of rows 0, INDEX_INTERVAL, 2 * INDEX_INTERVAL, ...
+    private long[] rowOffsets;
+    private boolean isOpen;
+
+    public JsonLinesFileReader(Config config) {
+        this(new File(config.getString(Config.DAO_NAME)), config);
+    }
+
+    public JsonLinesFileReader(File file, Config config) {
+        this(file, config.getJsonLinesParallelReadThreads(), DEFAULT_CHUNK_SIZE);
+    }
+
+    JsonLinesFileReader(File file, int parallelism, int chunkSize) {
+        this.file = file;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = parallelism > 0 ? parallelism + 1 : 1;
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        open();
+        close();
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        if (isOpen) {
+            close();
+        }
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            size = channel.size();
+            dataStart = skipBOM();
+            position = dataStart;
+            columnNames = sampleColumnNames();
+        } catch (IOException e) {
+            close();
+            String errMsg = Messages.getFormattedString("JsonLinesFileReader.errorOpening", file.getPath());
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+        fileSchema = new RowSchema(columnNames);
+        initializeParser();
+        if (parallelism > 0) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        isOpen = true;
+        seek(0);
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+        pendingChunks.clear();
+        currentChunk = null;
+        IOUtils.closeQuietly(channel);
+        channel = null;
+        isOpen = false;
+    }
+
+    @Override
+    public Row readRow() throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        Chunk chunk = getCurrentChunk();
+        if (chunk == null) {
+            return null;
+        }
+        Map<String, Object> newColumns = chunk.takeNewColumns(currentIndex);
+        Object[] values = chunk.rows.set(currentIndex++, null);
+        currentRowNumber++;
+        if (newColumns != null) {
+            addColumns(newColumns.keySet(), currentRowNumber);
+        }
+        // the read schema of the chunk's parser is the start of the current one
+        RowSchema schema = parser.getReadSchema();
+        Row row = new Row(schema);
+        for (int slot = 0; slot < values.length; slot++) {
+            row.put(schema.getColumnName(slot), values[slot]);
+        }
+        if (newColumns != null) {
+            row.putAll(newColumns);
+        }
+        return row;
+    }
+
+    @Override
+    public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        RowBatch batch = new RowBatch(parser.getReadSchema(), maxRows);
+        while (batch.size() < maxRows) {
+            Chunk chunk = getCurrentChunk();
+            if (chunk == null) {
+                break;
+            }
+            int count = Math.min(maxRows - batch.size(), chunk.rows.size() - currentIndex);
+            for (int i = 0; i < count; i++) {
+                Map<String, Object> newColumns = chunk.takeNewColumns(currentIndex);
+                // let the chunk's rows be collected as they are handed out
+                Object[] values = chunk.rows.set(currentIndex++, null);
+                if (newColumns != null) {
+                    batch = addColumns(batch, newColumns.keySet(), currentRowNumber + i + 1);
+                }
+                int row = batch.addRow();
+                for (int slot = 0; slot < values.length; slot++) {
+                    batch.setValue(row, slot, values[slot]);
+                }
+                if (newColumns != null) {
+                    for (Map.Entry<String, Object> newColumn : newColumns.entrySet()) {
+                        batch.setValue(row, batch.getSchema().indexOf(newColumn.getKey()), newColumn.getValue());
+                    }
+                }
+            }
+            currentRowNumber += count;
+        }
+        return batch;
+    }
+
+    /**
+     * @return the chunk with the next row, or null after the last row
+     */
+    private Chunk getCurrentChunk() throws DataAccessObjectException {
+        while (true) {
+            if (currentChunk != null) {
+                int skipped = Math.min(rowsToSkip, currentChunk.rows.size() - currentIndex);
+                currentIndex += skipped;
+                rowsToSkip -= skipped;
+                if (currentIndex < currentChunk.rows.size()) {
+                    return currentChunk;
+                }
+                if (currentChunk.error != null) {
+                    String errMsg = Messages.getFormattedString("JsonLinesFileReader.errorRow",
+                            new String[] {String.valueOf(currentRowNumber + 1), currentChunk.error.getMessage()});
+                    // the row cannot be skipped over, the next read fails at the same row
+                    throw new DataAccessRowException(errMsg, currentChunk.error);
+                }
+                currentChunk = null;
+            }
+            try {
+                submitChunks();
+            } catch (IOException e) {
+                throw new DataAccessObjectException(e);
+            }
+            Future<Chunk> next = pendingChunks.poll();
+            if (next == null) {
+                return null;
+            }
+            currentChunk = await(next);
+            currentIndex = 0;
+        }
+    }
+
+    private void submitChunks() throws IOException {
+        while (pendingChunks.size() < maxPendingChunks && position < size) {
+            final byte[] bytes = readChunk();
+            final JsonLinesRecordParser chunkParser = parser;
+            if (pool != null) {
+                pendingChunks.add(pool.submit(() -> parseChunk(bytes, chunkParser)));
+            } else {
+                pendingChunks.add(CompletableFuture.completedFuture(parseChunk(bytes, chunkParser)));
+            }
+        }
+    }
+
+    /**
+     * @return the whole lines from the current position on, at least one of them
+     */
+    private byte[] readChunk() throws IOException {
+        byte[] bytes = read(position, (int) Math.min(chunkSize, size - position));
+        int end = lastLineEnd(bytes);
+        while (end == 0 && position + bytes.length < size) {
+            // a line longer than the chunk
+            long length = Math.min(2L * bytes.length, size - position);
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException(Messages.getFormattedString("JsonLinesFileReader.errorLineTooLong",
+                        String.valueOf(position)));
+            }
+            bytes = read(position, (int) length);
+            end = lastLineEnd(bytes);
+        }
+        if (end == 0) {
+            // the last line has no line break
+            end = bytes.length;
+        }
+        position += end;
+        return end == bytes.length ? bytes : Arrays.copyOf(bytes, end);
+    }
+
+    private byte[] read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file " + file.getPath());
+            }
+        }
+        return buffer.array();
+    }
+
+    private static int lastLineEnd(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static Chunk parseChunk(byte[] bytes, JsonLinesRecordParser parser) {
+        Chunk chunk = new Chunk();
+        Map<String, Object> newColumns = new LinkedHashMap<String, Object>();
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (!isBlank(bytes, lineStart, lineEnd)) {
+                try {
+                    chunk.rows.add(parser.parse(bytes, lineStart, lineEnd - lineStart, newColumns));
+                    if (!newColumns.isEmpty()) {
+                        chunk.addNewColumns(chunk.rows.size() - 1, newColumns);
+                        newColumns = new LinkedHashMap<String, Object>();
+                    }
+                } catch (IOException e) {
+                    chunk.error = e;
+                    break;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Chunk await(Future<Chunk> future) throws DataAccessObjectException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException(new InterruptedIOException(e.getMessage()));
+        } catch (ExecutionException e) {
+            throw new DataAccessObjectException(e.getCause());
+        }
+    }
+
+    private List<String> sampleColumnNames() throws IOException {
+        Set<String> seen = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        List<String> names = new ArrayList<String>();
+        int rows = 0;
+        while (rows < SCHEMA_SAMPLE_ROWS && position < size) {
+            byte[] bytes = readChunk();
+            int lineStart = 0;
+            while (lineStart < bytes.length && rows < SCHEMA_SAMPLE_ROWS) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (!isBlank(bytes, lineStart, lineEnd)) {
+                    try {
+                        JsonLinesRecordParser.collectColumnNames(bytes, lineStart, lineEnd - lineStart, seen, names);
+                    } catch (IOException e) {
+                        // reported with its row number when the row is read, the columns after it are added
+                        // when they are read
+                        return names;
+                    }
+                    rows++;
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+        return names;
+    }
+
+    private long skipBOM() throws IOException {
+        if (size < UTF8_BOM.length) {
+            return 0;
+        }
+        return Arrays.equals(read(0, UTF8_BOM.length), UTF8_BOM) ? UTF8_BOM.length : 0;
+    }
+
+    /**
+     * Moves to the row using the offsets of the rows counted, so only the rows after the nearest offset before it
+     * are parsed.
+     */
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        seek(Math.min(rowNumber, getTotalRows()));
+        return true;
+    }
+
+    private void seek(int rowNumber) {
+        for (Future<Chunk> pendingChunk : pendingChunks) {
+            pendingChunk.cancel(false);
+        }
+        pendingChunks.clear();
+        currentChunk = null;
+        currentRowNumber = rowNumber;
+        if (rowOffsets != null && rowNumber >= totalRows) {
+            // past the last row, there is no offset for it when the rows are a multiple of the interval
+            position = size;
+            rowsToSkip = 0;
+            return;
+        }
+        // without the offsets of the rows counted, the rows are skipped from the start
+        int interval = rowOffsets == null ? 0 : rowNumber / INDEX_INTERVAL;
+        position = interval == 0 ? dataStart : rowOffsets[interval];
+        rowsToSkip = rowNumber - interval * INDEX_INTERVAL;
+    }
+
+    /**
+     * Only the values of the given columns are kept, the values of the other columns are skipped by the parser.
+     */
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnNames) {
+        this.columnsToRead = columnNames == null ? null : new ArrayList<String>(columnNames);
+        if (isOpen) {
+            initializeParser();
+            // the chunks parsed ahead have the old columns
+            seek(currentRowNumber);
+        }
+        return true;
+    }
+
+    private void initializeParser() {
+        createParser();
+        if (columnsToRead != null) {
+            logger.info(Messages.getFormattedString("JsonLinesFileReader.readingColumns", new String[] {
+                    String.valueOf(parser.getReadSchema().getColumnCount()), String.valueOf(columnNames.size()),
+                    file.getName() }));
+        }
+    }
+
+    private void createParser() {
+        parser = new JsonLinesRecordParser(fileSchema, fileSchema.select(columnsToRead),
+                columnsToRead == null ? null : new RowSchema(columnsToRead));
+    }
+
+    /**
+     * Adds columns first found after the sampled lines to the columns of the file. Their slots follow the slots
+     * of the columns read so far, which keep their slots.
+     *
+     * @param rowNumber number of the row the columns are found in, for the log
+     */
+    private void addColumns(Collection<String> names, int rowNumber) {
+        List<String> allNames = new ArrayList<String>(columnNames);
+        for (String name : names) {
+            if (fileSchema.indexOf(name) < 0) {
+                allNames.add(name);
+                logger.info(Messages.getFormattedString("JsonLinesFileReader.addedColumn", new String[] {
+                        name, String.valueOf(rowNumber), file.getName() }));
+            }
+        }
+        if (allNames.size() > columnNames.size()) {
+            fileSchema = new RowSchema(allNames);
+            columnNames = new ArrayList<String>(fileSchema.getColumnNames());
+            // chunks already parsed report the columns as new again, they are only added once
+            createParser();
+        }
+    }
+
+    /**
+     * Adds columns first found after the sampled lines, and adds the columns read that the batch does not have
+     * to the batch.
+     */
+    private RowBatch addColumns(RowBatch batch, Collection<String> names, int rowNumber) {
+        addColumns(names, rowNumber);
+        RowSchema readSchema = parser.getReadSchema();
+        int addedCount = readSchema.getColumnCount() - batch.getSchema().getColumnCount();
+        if (addedCount == 0) {
+            return batch;
+        }
+        Object[][] addedColumns = new Object[addedCount][];
+        for (int i = 0; i < addedCount; i++) {
+            addedColumns[i] = new Object[batch.size()];
+        }
+        return batch.withColumns(readSchema, addedColumns);
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Counts the lines that are not blank from the raw bytes of the file, without parsing them.
+     */
+    @Override
+    public int getTotalRows() throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        if (totalRows < 0) {
+            try {
+                countRows();
+            } catch (IOException e) {
+                throw new DataAccessObjectException(e);
+            }
+        }
+        return totalRows;
+    }
+
+    private void countRows() throws IOException {
+        long[] offsets = new long[16];
+        int rows = 0;
+        long lineStart = dataStart;
+        boolean isBlankLine = true;
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+        for (long offset = dataStart; offset < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    if (!isBlankLine) {
+                        if (rows % INDEX_INTERVAL == 0) {
+                            offsets = addOffset(offsets, rows / INDEX_INTERVAL, lineStart);
+                        }
+                        rows++;
+                    }
+                    lineStart = offset + i + 1;
+                    isBlankLine = true;
+                } else if (b != ' ' && b != '\t' && b != '\r') {
+                    isBlankLine = false;
+                }
+            }
+            offset += read;
+        }
+        if (!isBlankLine) {
+            if (rows % INDEX_INTERVAL == 0) {
+                offsets = addOffset(offsets, rows / INDEX_INTERVAL, lineStart);
+            }
+            rows++;
+        }
+        rowOffsets = offsets;
+        totalRows = rows;
+    }
+
+    private static long[] addOffset(long[] offsets, int index, long offset) {
+        if (index == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[index] = offset;
+        return offsets;
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    private static class Chunk {
+        private final ArrayList<Object[]> rows = new ArrayList<Object[]>();
+        // values of columns that are not in the columns of the file yet, by index of the row
+        private Map<Integer, Map<String, Object>> newColumns;
+        private IOException error;
+
+        void addNewColumns(int index, Map<String, Object> values) {
+            if (newColumns == null) {
+                newColumns = new HashMap<Integer, Map<String, Object>>();
+            }
+            newColumns.put(index, values);
+        }
+
+        /**
+         * @return values of the row's columns that were not in the columns of the file when it was parsed, or null
+         */
+        Map<String, Object> takeNewColumns(int index) {
+            return newColumns == null ? null : newColumns.remove(index);
+        }
+    }
+}
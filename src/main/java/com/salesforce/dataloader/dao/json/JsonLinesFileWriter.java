@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.json;
+
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Writes JSON lines files, one JSON object per row. Columns named by a path, e.g. Account.Name for the field
+ * of a relationship, are written as nested objects: {"Account":{"Name":"x"}}, the way
+ * {@link JsonLinesFileReader} reads them. Strings, numbers and booleans keep their JSON type, other values are
+ * written as strings.
+ */
+public class JsonLinesFileWriter implements DataWriter, Flushable {
+
+    private static final Logger logger = LogManager.getLogger(JsonLinesFileWriter.class);
+
+    private final String fileName;
+    private JsonGenerator generator;
+    private List<String> columnNames = new ArrayList<String>();
+    // columns written as the fields of the row's object, nested by path
+    private Node root;
+    private int currentRowNumber = 0;
+
+    public JsonLinesFileWriter(Config config) {
+        this(config.getString(Config.DAO_NAME));
+    }
+
+    public JsonLinesFileWriter(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        open();
+        close();
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        close();
+        try {
+            generator = JsonLinesRecordParser.JSON_FACTORY.createGenerator(new FileOutputStream(fileName),
+                    JsonEncoding.UTF8);
+            currentRowNumber = 0;
+        } catch (IOException e) {
+            String errMsg = Messages.getFormattedString("JsonLinesFileWriter.errorOpening", fileName);
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (generator != null) {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                logger.error(Messages.getString("JsonLinesFileWriter.errorClosing"), e);
+            }
+            generator = null;
+        }
+    }
+
+    /**
+     * Writes the rows buffered so far to the file.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public void setColumnNames(List<String> columnNames) throws DataAccessObjectInitializationException {
+        if (columnNames == null || columnNames.isEmpty()) {
+            String errMsg = Messages.getString("CSVFileDAO.errorOpenNoHeaderRow");
+            logger.error(errMsg);
+            throw new DataAccessObjectInitializationException(errMsg);
+        }
+        this.columnNames = columnNames;
+        this.root = new Node();
+        for (int column = 0; column < columnNames.size(); column++) {
+            root.add(columnNames.get(column), column);
+        }
+    }
+
+    @Override
+    public boolean writeRow(Row row) throws DataAccessObjectException {
+        Object[] values = new Object[columnNames.size()];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = row.get(columnNames.get(column));
+        }
+        write(values);
+        return true;
+    }
+
+    @Override
+    public boolean writeRowList(List<Row> rows) throws DataAccessObjectException {
+        for (Row row : rows) {
+            writeRow(row);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the rows looking up the writer's columns in the batch once, columns the batch does not have are
+     * written as nulls.
+     */
+    @Override
+    public boolean writeRowBatch(RowBatch batch) throws DataAccessObjectException {
+        RowSchema schema = batch.getSchema();
+        int[] slots = new int[columnNames.size()];
+        for (int column = 0; column < slots.length; column++) {
+            slots[column] = schema.indexOf(columnNames.get(column));
+        }
+        Object[] values = new Object[slots.length];
+        for (int row = 0; row < batch.size(); row++) {
+            for (int column = 0; column < slots.length; column++) {
+                values[column] = slots[column] >= 0 ? batch.getValue(row, slots[column]) : null;
+            }
+            write(values);
+        }
+        return true;
+    }
+
+    private void write(Object[] values) throws DataAccessObjectException {
+        try {
+            root.write(generator, values);
+            generator.writeRaw('\n');
+            currentRowNumber++;
+        } catch (IOException e) {
+            logger.error(Messages.getString("JsonLinesFileWriter.errorWriting"), e);
+            throw new DataAccessObjectException(Messages.getString("JsonLinesFileWriter.errorWriting"), e);
+        }
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else if (value instanceof Double && Double.isFinite((Double) value)) {
+            generator.writeNumber((Double) value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    /**
+     * An object of the written JSON: its fields are columns, or objects for the columns with a longer path.
+     */
+    private static class Node {
+        private final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+
+        /**
+         * Adds the column at its path. A column whose path is also the path of an object, e.g. Account and
+         * Account.Name, is written as a field named by its whole path instead.
+         */
+        void add(String path, int column) {
+            Node node = this;
+            String[] names = path.split("\\.");
+            for (int i = 0; i < names.length - 1; i++) {
+                Object child = node.fields.get(names[i]);
+                if (child == null) {
+                    child = new Node();
+                    node.fields.put(names[i], child);
+                } else if (!(child instanceof Node)) {
+                    fields.put(path, column);
+                    return;
+                }
+                node = (Node) child;
+            }
+            String name = names[names.length - 1];
+            if (node.fields.containsKey(name) || names.length > 1 && name.isEmpty()) {
+                fields.put(path, column);
+            } else {
+                node.fields.put(name, column);
+            }
+        }
+
+        void write(JsonGenerator generator, Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                generator.writeFieldName(field.getKey());
+                if (field.getValue() instanceof Node) {
+                    ((Node) field.getValue()).write(generator, values);
+                } else {
+                    writeValue(generator, values[(Integer) field.getValue()]);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Parses the JSON object on one line of a JSON lines file into the values of a row. Nested objects, e.g. the
+ * fields of a relationship, become columns named by the path to the value: {"Account":{"Name":"x"}} has the
+ * column Account.Name. Scalars are read as the text they are written as, null as null, and arrays as their JSON
+ * text.
+ */
+class JsonLinesRecordParser {
+
+    // root values are not separated by a space, the writer ends each of them with a line break
+    static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder().rootValueSeparator((String) null).build();
+
+    private final RowSchema fileSchema;
+    private final RowSchema readSchema;
+    private final RowSchema columnsToRead;
+
+    /**
+     * @param fileSchema columns of the file
+     * @param readSchema columns read, a selection of the file's columns
+     * @param columnsToRead columns to read, including columns that are not in the file's columns yet, or null to
+     *        read all columns
+     */
+    JsonLinesRecordParser(RowSchema fileSchema, RowSchema readSchema, RowSchema columnsToRead) {
+        this.fileSchema = fileSchema;
+        this.readSchema = readSchema;
+        this.columnsToRead = columnsToRead;
+    }
+
+    RowSchema getReadSchema() {
+        return readSchema;
+    }
+
+    /**
+     * @param newColumns gets the values of the columns to read that are not in the file's columns, by column name
+     * @return values of the line by slot of the read schema
+     * @throws IOException if the line is not a JSON object
+     */
+    Object[] parse(byte[] bytes, int offset, int length, Map<String, Object> newColumns) throws IOException {
+        Object[] values = new Object[readSchema.getColumnCount()];
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, offset, length)) {
+            startObject(parser);
+            parseObject(parser, null, values, newColumns);
+            endObject(parser);
+        }
+        return values;
+    }
+
+    private void parseObject(JsonParser parser, String prefix, Object[] values, Map<String, Object> newColumns)
+            throws IOException {
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String column = prefix == null ? parser.getCurrentName() : prefix + "." + parser.getCurrentName();
+            token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                parseObject(parser, column, values, newColumns);
+                continue;
+            }
+            int slot = readSchema.indexOf(column);
+            if (slot < 0) {
+                // a relationship that is null in this row is not a column of its own
+                if (token != JsonToken.VALUE_NULL && fileSchema.indexOf(column) < 0
+                        && (columnsToRead == null || columnsToRead.indexOf(column) >= 0)) {
+                    // first found after the sampled lines, the reader adds it to the columns
+                    newColumns.put(column, token == JsonToken.START_ARRAY ? toJson(parser) : parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                values[slot] = toJson(parser);
+            } else if (token != JsonToken.VALUE_NULL) {
+                values[slot] = parser.getText();
+            }
+        }
+    }
+
+    /**
+     * Adds the columns of the line, in the order they are found, to the names that are not in the seen set yet.
+     */
+    static void collectColumnNames(byte[] bytes, int offset, int length, Set<String> seen, Collection<String> names)
+            throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, offset, length)) {
+            startObject(parser);
+            collectColumnNames(parser, null, seen, names);
+        }
+    }
+
+    private static void collectColumnNames(JsonParser parser, String prefix, Set<String> seen,
+            Collection<String> names) throws IOException {
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String column = prefix == null ? parser.getCurrentName() : prefix + "." + parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                collectColumnNames(parser, column, seen, names);
+            } else {
+                parser.skipChildren();
+                if (seen.add(column)) {
+                    names.add(column);
+                }
+            }
+        }
+    }
+
+    private static void startObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object at " + parser.getCurrentLocation());
+        }
+    }
+
+    private static void endObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != null) {
+            throw new IOException("Expected one JSON object per line at " + parser.getCurrentLocation());
+        }
+    }
+
+    private static String toJson(JsonParser parser) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return json.toString();
+    }
+}
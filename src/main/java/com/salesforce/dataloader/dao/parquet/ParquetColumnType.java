@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+
+/**
+ * Parquet type of a column, derived from the type of the Salesforce field it is extracted from. Currency and
+ * percent fields are decimals with the precision and scale of the field. Values are converted from the strings,
+ * numbers, dates and calendars the query visitors put in the rows.
+ */
+enum ParquetColumnType {
+    STRING {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            return Binary.fromString(value.toString());
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addBinary((Binary)converted);
+        }
+    },
+    BOOLEAN {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.BOOLEAN).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addBoolean((Boolean)converted);
+        }
+    },
+    INT {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.INT32).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            long number = value instanceof Number ? ((Number)value).longValue() : parseWholeNumber(value);
+            try {
+                return Math.toIntExact(number);
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Value out of range for an int: " + value);
+            }
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addInteger((Integer)converted);
+        }
+    },
+    LONG {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.INT64).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            return value instanceof Number ? ((Number)value).longValue() : parseWholeNumber(value);
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addLong((Long)converted);
+        }
+    },
+    DOUBLE {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.DOUBLE).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            return value instanceof Number ? ((Number)value).doubleValue() : Double.parseDouble(value.toString());
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addDouble((Double)converted);
+        }
+    },
+    /**
+     * Decimal with the precision and scale of the field, stored as its unscaled long value.
+     */
+    DECIMAL {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.INT64)
+                    .as(LogicalTypeAnnotation.decimalType(scale, precision)).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            BigDecimal decimal;
+            try {
+                decimal = value instanceof BigDecimal ? (BigDecimal)value : new BigDecimal(value.toString());
+            } catch (NumberFormatException e) {
+                throw new NumberFormatException("For input string: \"" + value + "\"");
+            }
+            decimal = decimal.setScale(scale, RoundingMode.HALF_UP);
+            if (decimal.precision() > precision) {
+                throw new NumberFormatException("Value out of range for a decimal(" + precision + "," + scale + "): "
+                        + value);
+            }
+            return decimal.unscaledValue().longValue();
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addLong((Long)converted);
+        }
+    },
+    DATE {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            LocalDate date;
+            if (value instanceof Calendar) {
+                Calendar calendar = (Calendar)value;
+                date = LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                        calendar.get(Calendar.DAY_OF_MONTH));
+            } else if (value instanceof Date) {
+                date = ((Date)value).toInstant().atOffset(ZoneOffset.UTC).toLocalDate();
+            } else {
+                // a date string may have a time zone suffix, e.g. 2023-01-31Z
+                String text = value.toString();
+                date = LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+            }
+            return (int)date.toEpochDay();
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addInteger((Integer)converted);
+        }
+    },
+    TIMESTAMP {
+        @Override
+        Type toParquetType(String name, int precision, int scale) {
+            return Types.optional(PrimitiveTypeName.INT64)
+                    .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named(name);
+        }
+
+        @Override
+        Object convert(Object value, int precision, int scale) {
+            long millis;
+            if (value instanceof Calendar) {
+                millis = ((Calendar)value).getTimeInMillis();
+            } else if (value instanceof Date) {
+                millis = ((Date)value).getTime();
+            } else {
+                millis = parseTimestamp(value.toString());
+            }
+            return millis;
+        }
+
+        @Override
+        void add(RecordConsumer consumer, Object converted) {
+            consumer.addLong((Long)converted);
+        }
+    };
+
+    // Salesforce writes offsets without a colon, e.g. 2023-01-31T10:00:00.000+0000
+    private static final DateTimeFormatter OFFSET_WITHOUT_COLON =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXX");
+
+    // the largest precision of a decimal stored in an INT64
+    static final int MAX_DECIMAL_PRECISION = 18;
+
+    /**
+     * @param precision precision of a DECIMAL column, see {@link #precisionOf(Field)}
+     * @param scale scale of a DECIMAL column, see {@link #scaleOf(Field)}
+     */
+    abstract Type toParquetType(String name, int precision, int scale);
+
+    /**
+     * Converts a value that is not null or empty to the value added by {@link #add(RecordConsumer, Object)}.
+     * Throws a NumberFormatException or a DateTimeParseException if the value cannot be converted, or does not
+     * fit the column.
+     */
+    abstract Object convert(Object value, int precision, int scale);
+
+    /**
+     * Adds a converted value to the field being written.
+     */
+    abstract void add(RecordConsumer consumer, Object converted);
+
+    /**
+     * @param field describe result of the Salesforce field, null for aggregate values and columns not from a field
+     */
+    static ParquetColumnType forField(Field field) {
+        return forFieldType(field != null ? field.getType() : null);
+    }
+
+    /**
+     * @param fieldType type of the Salesforce field, null for aggregate values and columns not from a field
+     */
+    static ParquetColumnType forFieldType(FieldType fieldType) {
+        if (fieldType == null) {
+            return STRING;
+        }
+        switch (fieldType) {
+        case _boolean:
+            return BOOLEAN;
+        case _int:
+            return INT;
+        case _long:
+            return LONG;
+        case _double:
+            return DOUBLE;
+        case currency:
+        case percent:
+            return DECIMAL;
+        case date:
+            return DATE;
+        case datetime:
+            return TIMESTAMP;
+        default:
+            return STRING;
+        }
+    }
+
+    /**
+     * @return the precision of the field, capped to {@link #MAX_DECIMAL_PRECISION}, which is also used when the
+     *         describe result does not give one
+     */
+    static int precisionOf(Field field) {
+        int precision = field != null ? field.getPrecision() : 0;
+        return precision <= 0 || precision > MAX_DECIMAL_PRECISION ? MAX_DECIMAL_PRECISION : precision;
+    }
+
+    /**
+     * @return the scale of the field, no larger than its precision
+     */
+    static int scaleOf(Field field) {
+        int scale = field != null ? field.getScale() : 0;
+        return Math.max(0, Math.min(scale, precisionOf(field)));
+    }
+
+    private static long parseWholeNumber(Object value) {
+        String text = value.toString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            // e.g. 12.0
+            BigDecimal decimal;
+            try {
+                decimal = new BigDecimal(text);
+            } catch (NumberFormatException e2) {
+                throw e;
+            }
+            try {
+                return decimal.setScale(0, RoundingMode.DOWN).longValueExact();
+            } catch (ArithmeticException e2) {
+                throw new NumberFormatException("Value out of range for a long: " + value);
+            }
+        }
+    }
+
+    private static long parseTimestamp(String text) {
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return OffsetDateTime.parse(text, OFFSET_WITHOUT_COLON).toInstant().toEpochMilli();
+        }
+    }
+}
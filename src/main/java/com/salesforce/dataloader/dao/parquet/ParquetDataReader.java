@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dao.DataReader;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Reads a parquet file for loads. Row groups are read and materialized on a fork-join pool, only the pages of
+ * the columns read are decoded, and the rows are handed out in file order. At most one row group per thread is
+ * held in memory ahead of the caller.
+ * <p>
+ * Only top-level columns of primitive values are read, see {@link ParquetRowBatchMaterializer} for the types of
+ * their values. The number of rows and the row groups to seek to are taken from the file's footer.
+ */
+public class ParquetDataReader implements DataReader {
+
+    private static final Logger logger = LogManager.getLogger(ParquetDataReader.class);
+
+    private final String fileName;
+    private final int parallelism;
+    private InputFile inputFile;
+    private MessageType fileSchema;
+    private long[] rowGroupStarts;
+    private int totalRows;
+    private List<String> columnNames;
+    private Collection<String> columnsToRead;
+    private RowSchema rowSchema;
+    private MessageType requestedSchema;
+    private ForkJoinPool pool;
+    private final ArrayDeque<Future<RowBatch>> pendingRowGroups = new ArrayDeque<Future<RowBatch>>();
+    private int nextRowGroup;
+    private RowBatch currentRowGroup;
+    private int currentIndex;
+    // rows of the next row group skipped by a seek
+    private int rowsToSkip;
+    private int currentRowNumber;
+    private boolean isOpen;
+
+    public ParquetDataReader(Config config) {
+        this(config.getString(Config.DAO_NAME), config);
+    }
+
+    public ParquetDataReader(String fileName, Config config) {
+        this.fileName = fileName;
+        this.parallelism = config.getParquetReadThreads();
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        open();
+        close();
+    }
+
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        if (isOpen) {
+            close();
+        }
+        inputFile = new LocalInputFile(Paths.get(fileName));
+        ParquetMetadata footer;
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile)) {
+            footer = reader.getFooter();
+        } catch (IOException | RuntimeException e) {
+            String errMsg = Messages.getFormattedString("ParquetDataReader.errorOpening", fileName);
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+        fileSchema = footer.getFileMetaData().getSchema();
+        List<BlockMetaData> blocks = footer.getBlocks();
+        rowGroupStarts = new long[blocks.size() + 1];
+        for (int i = 0; i < blocks.size(); i++) {
+            rowGroupStarts[i + 1] = rowGroupStarts[i] + blocks.get(i).getRowCount();
+        }
+        totalRows = (int)Math.min(rowGroupStarts[blocks.size()], Integer.MAX_VALUE);
+
+        columnNames = new ArrayList<String>();
+        for (Type field : fileSchema.getFields()) {
+            if (field.isPrimitive() && !field.isRepetition(Type.Repetition.REPEATED)) {
+                columnNames.add(field.getName());
+            } else {
+                logger.warn(Messages.getFormattedString("ParquetDataReader.unsupportedColumn",
+                        new String[] {field.getName(), fileName}));
+            }
+        }
+        initializeReadColumns();
+        pool = new ForkJoinPool(parallelism);
+        isOpen = true;
+        seek(0);
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+        pendingRowGroups.clear();
+        currentRowGroup = null;
+        isOpen = false;
+    }
+
+    @Override
+    public Row readRow() throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        RowBatch rowGroup = getCurrentRowGroup();
+        if (rowGroup == null) {
+            return null;
+        }
+        currentRowNumber++;
+        return rowGroup.getRow(currentIndex++);
+    }
+
+    @Override
+    public List<Row> readRowList(int maxRows) throws DataAccessObjectException {
+        return readRowBatch(maxRows).toRowList();
+    }
+
+    @Override
+    public RowBatch readRowBatch(int maxRows) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        RowBatch batch = new RowBatch(rowSchema, maxRows);
+        int columnCount = rowSchema.getColumnCount();
+        while (batch.size() < maxRows) {
+            RowBatch rowGroup = getCurrentRowGroup();
+            if (rowGroup == null) {
+                break;
+            }
+            int count = Math.min(maxRows - batch.size(), rowGroup.size() - currentIndex);
+            for (int i = 0; i < count; i++, currentIndex++) {
+                int row = batch.addRow();
+                for (int column = 0; column < columnCount; column++) {
+                    batch.setValue(row, column, rowGroup.getValue(currentIndex, column));
+                }
+            }
+            currentRowNumber += count;
+        }
+        return batch;
+    }
+
+    /**
+     * @return the row group with the next row, or null after the last row
+     */
+    private RowBatch getCurrentRowGroup() throws DataAccessObjectException {
+        while (currentRowGroup == null || currentIndex >= currentRowGroup.size()) {
+            currentRowGroup = null;
+            submitRowGroups();
+            Future<RowBatch> next = pendingRowGroups.poll();
+            if (next == null) {
+                return null;
+            }
+            currentRowGroup = await(next);
+            currentIndex = rowsToSkip;
+            rowsToSkip = 0;
+        }
+        return currentRowGroup;
+    }
+
+    private void submitRowGroups() {
+        while (pendingRowGroups.size() < parallelism && nextRowGroup < rowGroupStarts.length - 1) {
+            final int rowGroup = nextRowGroup++;
+            final MessageType schema = requestedSchema;
+            final RowSchema batchSchema = rowSchema;
+            pendingRowGroups.add(pool.submit(() -> readRowGroup(rowGroup, schema, batchSchema)));
+        }
+    }
+
+    /**
+     * Reads a row group with a reader of its own, parquet file readers are not thread safe.
+     */
+    private RowBatch readRowGroup(int rowGroup, MessageType schema, RowSchema batchSchema) throws IOException {
+        int rowCount = (int)(rowGroupStarts[rowGroup + 1] - rowGroupStarts[rowGroup]);
+        RowBatch batch = new RowBatch(batchSchema, rowCount);
+        if (schema.getFieldCount() == 0) {
+            for (int i = 0; i < rowCount; i++) {
+                batch.addRow();
+            }
+            return batch;
+        }
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile)) {
+            reader.setRequestedSchema(schema);
+            PageReadStore pages = reader.readRowGroup(rowGroup);
+            RecordReader<Object> records = new ColumnIOFactory().getColumnIO(schema, fileSchema)
+                    .getRecordReader(pages, new ParquetRowBatchMaterializer(schema, batch));
+            for (int i = 0; i < rowCount; i++) {
+                records.read();
+            }
+        }
+        return batch;
+    }
+
+    private RowBatch await(Future<RowBatch> future) throws DataAccessObjectException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessObjectException(new InterruptedIOException(e.getMessage()));
+        } catch (ExecutionException e) {
+            String errMsg = Messages.getFormattedString("ParquetDataReader.errorReading", fileName);
+            logger.error(errMsg, e.getCause());
+            throw new DataAccessObjectException(errMsg, e.getCause());
+        }
+    }
+
+    /**
+     * Moves to the row without reading the row groups before it.
+     */
+    @Override
+    public boolean seekToRow(int rowNumber) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        seek(Math.min(rowNumber, totalRows));
+        return true;
+    }
+
+    private void seek(int rowNumber) {
+        for (Future<RowBatch> pendingRowGroup : pendingRowGroups) {
+            pendingRowGroup.cancel(false);
+        }
+        pendingRowGroups.clear();
+        currentRowGroup = null;
+        nextRowGroup = 0;
+        while (nextRowGroup < rowGroupStarts.length - 1 && rowGroupStarts[nextRowGroup + 1] <= rowNumber) {
+            nextRowGroup++;
+        }
+        rowsToSkip = (int)(rowNumber - rowGroupStarts[nextRowGroup]);
+        currentRowNumber = rowNumber;
+    }
+
+    /**
+     * Only the column chunks of the given columns are read and decoded.
+     */
+    @Override
+    public boolean setColumnsToRead(Collection<String> columnNames) {
+        this.columnsToRead = columnNames == null ? null : new ArrayList<String>(columnNames);
+        if (isOpen) {
+            initializeReadColumns();
+            // the row groups read ahead have the old columns
+            seek(currentRowNumber);
+        }
+        return true;
+    }
+
+    private void initializeReadColumns() {
+        rowSchema = new RowSchema(columnNames).select(columnsToRead);
+        List<Type> fields = new ArrayList<Type>(rowSchema.getColumnCount());
+        for (String columnName : columnNames) {
+            int slot = rowSchema.indexOf(columnName);
+            // a column repeated with a different case is read once
+            if (slot >= 0 && rowSchema.getColumnName(slot).equals(columnName)) {
+                fields.add(fileSchema.getType(columnName));
+            }
+        }
+        requestedSchema = new MessageType(fileSchema.getName(), fields);
+        if (columnsToRead != null) {
+            logger.info(Messages.getFormattedString("ParquetDataReader.readingColumns", new String[] {
+                    String.valueOf(rowSchema.getColumnCount()), String.valueOf(columnNames.size()), fileName }));
+        }
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return number of rows in the file, from the footer
+     */
+    @Override
+    public int getTotalRows() throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        return totalRows;
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.OutputFile;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.sforce.soap.partner.Field;
+
+/**
+ * Writes extracts to a parquet file. The columns are typed from the Salesforce fields they are mapped from when
+ * {@link #setColumnFields(Map)} is called before {@link #setColumnNames(List)}, and written as strings otherwise.
+ * Rows are encoded straight into the column chunks of the current row group, which is flushed to the file once
+ * it reaches the configured size, so memory stays bounded by the row group size however large the extract is.
+ */
+public class ParquetDataWriter implements DataWriter {
+
+    private static final Logger logger = LogManager.getLogger(ParquetDataWriter.class);
+
+    private final String fileName;
+    private final CompressionCodecName compression;
+    private final long rowGroupSize;
+    private Map<String, Field> columnFields = Collections.emptyMap();
+    private List<String> columnNames = new ArrayList<String>();
+    private ParquetWriter<Row> writer;
+    private int currentRowNumber = 0;
+
+    public ParquetDataWriter(Config config) throws DataAccessObjectInitializationException {
+        this.fileName = config.getString(Config.DAO_NAME);
+        this.rowGroupSize = config.getParquetRowGroupSize();
+        try {
+            this.compression = CompressionCodecName.fromConf(config.getString(Config.DAO_PARQUET_COMPRESSION));
+        } catch (IllegalArgumentException e) {
+            String errMsg = Messages.getFormattedString("ParquetDataWriter.errorCompression",
+                    config.getString(Config.DAO_PARQUET_COMPRESSION));
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+    }
+
+    /**
+     * Sets the describe results of the Salesforce fields of the columns, which give the type of a column and the
+     * precision and scale of a decimal. Columns without a field are written as strings.
+     */
+    public void setColumnFields(Map<String, Field> columnFields) {
+        this.columnFields = columnFields != null ? columnFields : Collections.<String, Field>emptyMap();
+    }
+
+    @Override
+    public void checkConnection() throws DataAccessObjectInitializationException {
+        File file = new File(fileName);
+        try {
+            boolean created = file.createNewFile();
+            if (!file.canWrite()) {
+                throw new IOException(fileName);
+            }
+            if (created) {
+                file.delete();
+            }
+        } catch (IOException | SecurityException e) {
+            String errMsg = Messages.getFormattedString("ParquetDataWriter.errorOpening", fileName);
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+    }
+
+    /**
+     * The file is created once the columns are known, by {@link #setColumnNames(List)}.
+     */
+    @Override
+    public void open() throws DataAccessObjectInitializationException {
+        close();
+        currentRowNumber = 0;
+    }
+
+    @Override
+    public void setColumnNames(List<String> columnNames) throws DataAccessObjectInitializationException {
+        if (columnNames == null || columnNames.isEmpty()) {
+            String errMsg = Messages.getString("CSVFileDAO.errorOpenNoHeaderRow");
+            logger.error(errMsg);
+            throw new DataAccessObjectInitializationException(errMsg);
+        }
+        close();
+        this.columnNames = new ArrayList<String>(columnNames);
+        List<Field> fields = new ArrayList<Field>(columnNames.size());
+        for (String columnName : columnNames) {
+            fields.add(columnFields.get(columnName));
+        }
+        try {
+            writer = new Builder(new LocalOutputFile(Paths.get(fileName)),
+                    new ParquetRowWriteSupport(this.columnNames, fields))
+                .withCompressionCodec(compression)
+                .withDictionaryEncoding(true)
+                .withRowGroupSize(rowGroupSize)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build();
+        } catch (IOException | RuntimeException e) {
+            String errMsg = Messages.getFormattedString("ParquetDataWriter.errorOpening", fileName);
+            logger.error(errMsg, e);
+            throw new DataAccessObjectInitializationException(errMsg, e);
+        }
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public boolean writeRow(Row row) throws DataAccessObjectException {
+        if (writer == null) {
+            throw new DataAccessObjectException(Messages.getString("ParquetDataWriter.errorNotOpen"));
+        }
+        try {
+            writer.write(row);
+            currentRowNumber++;
+            return true;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            String errMsg = Messages.getFormattedString("ParquetDataWriter.errorValue", String.valueOf(currentRowNumber + 1));
+            logger.error(errMsg, e);
+            throw new DataAccessObjectException(errMsg, e);
+        } catch (IOException e) {
+            logger.error(Messages.getString("ParquetDataWriter.errorWriting"), e);
+            throw new DataAccessObjectException(Messages.getString("ParquetDataWriter.errorWriting"), e);
+        }
+    }
+
+    @Override
+    public boolean writeRowList(List<Row> rows) throws DataAccessObjectException {
+        for (Row row : rows) {
+            writeRow(row);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean writeRowBatch(RowBatch batch) throws DataAccessObjectException {
+        for (int i = 0; i < batch.size(); i++) {
+            writeRow(batch.getRow(i));
+        }
+        return true;
+    }
+
+    /**
+     * Writes the last row group and the footer of the file, reporting a failure instead of only logging it as
+     * {@link #close()} does. A parquet file cannot be read without its footer.
+     */
+    @Override
+    public void finish() throws DataAccessObjectException {
+        if (writer != null) {
+            ParquetWriter<Row> lastWriter = writer;
+            writer = null;
+            try {
+                lastWriter.close();
+            } catch (IOException e) {
+                logger.error(Messages.getString("ParquetDataWriter.errorWriting"), e);
+                throw new DataAccessObjectException(Messages.getString("ParquetDataWriter.errorWriting"), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            finish();
+        } catch (DataAccessObjectException e) {
+            // logged by finish
+        }
+    }
+
+    @Override
+    public int getCurrentRowNumber() {
+        return currentRowNumber;
+    }
+
+    private static class Builder extends ParquetWriter.Builder<Row, Builder> {
+        private final WriteSupport<Row> writeSupport;
+
+        Builder(OutputFile file, WriteSupport<Row> writeSupport) {
+            super(file);
+            this.writeSupport = writeSupport;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Row> getWriteSupport(Configuration conf) {
+            return writeSupport;
+        }
+    }
+}
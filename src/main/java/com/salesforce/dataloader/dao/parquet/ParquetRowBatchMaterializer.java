@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DateLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
+
+/**
+ * Materializes the records of a row group straight into the columns of a {@link RowBatch}. Values keep their
+ * type like the values read by the database reader do, so the load converters do not parse them from
+ * strings: booleans, numbers, {@link BigDecimal} for decimals, {@link Date} for dates and {@link Timestamp}
+ * for timestamps. Dictionary encoded values are decoded once per dictionary instead of once per row.
+ */
+class ParquetRowBatchMaterializer extends RecordMaterializer<Object> {
+
+    // julian day of 1970-01-01, INT96 timestamps count days from the start of the julian calendar
+    private static final long JULIAN_EPOCH_DAY = 2440588;
+
+    private final RowBatch batch;
+    private final GroupConverter root;
+    private int row = -1;
+
+    /**
+     * @param requestedSchema primitive columns read, each of them a column of the batch's schema
+     */
+    ParquetRowBatchMaterializer(MessageType requestedSchema, RowBatch batch) {
+        this.batch = batch;
+        RowSchema rowSchema = batch.getSchema();
+        final Converter[] converters = new Converter[requestedSchema.getFieldCount()];
+        for (int i = 0; i < converters.length; i++) {
+            PrimitiveType type = requestedSchema.getType(i).asPrimitiveType();
+            converters[i] = new ColumnConverter(rowSchema.indexOf(type.getName()), type);
+        }
+        this.root = new GroupConverter() {
+            @Override
+            public Converter getConverter(int fieldIndex) {
+                return converters[fieldIndex];
+            }
+
+            @Override
+            public void start() {
+                row = batch.addRow();
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+    }
+
+    /**
+     * @return null, the values are in the batch
+     */
+    @Override
+    public Object getCurrentRecord() {
+        return null;
+    }
+
+    @Override
+    public GroupConverter getRootConverter() {
+        return root;
+    }
+
+    private final class ColumnConverter extends PrimitiveConverter {
+        private final int slot;
+        private final PrimitiveType type;
+        private Object[] dictionaryValues;
+
+        ColumnConverter(int slot, PrimitiveType type) {
+            this.slot = slot;
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasDictionarySupport() {
+            return true;
+        }
+
+        @Override
+        public void setDictionary(Dictionary dictionary) {
+            dictionaryValues = new Object[dictionary.getMaxId() + 1];
+            for (int id = 0; id < dictionaryValues.length; id++) {
+                dictionaryValues[id] = decodeDictionaryEntry(dictionary, id);
+            }
+        }
+
+        @Override
+        public void addValueFromDictionary(int dictionaryId) {
+            batch.setValue(row, slot, dictionaryValues[dictionaryId]);
+        }
+
+        @Override
+        public void addBinary(Binary value) {
+            batch.setValue(row, slot, fromBinary(type, value));
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            batch.setValue(row, slot, value);
+        }
+
+        @Override
+        public void addDouble(double value) {
+            batch.setValue(row, slot, value);
+        }
+
+        @Override
+        public void addFloat(float value) {
+            batch.setValue(row, slot, value);
+        }
+
+        @Override
+        public void addInt(int value) {
+            batch.setValue(row, slot, fromInt(type, value));
+        }
+
+        @Override
+        public void addLong(long value) {
+            batch.setValue(row, slot, fromLong(type, value));
+        }
+
+        private Object decodeDictionaryEntry(Dictionary dictionary, int id) {
+            switch (type.getPrimitiveTypeName()) {
+            case INT32:
+                return fromInt(type, dictionary.decodeToInt(id));
+            case INT64:
+                return fromLong(type, dictionary.decodeToLong(id));
+            case FLOAT:
+                return dictionary.decodeToFloat(id);
+            case DOUBLE:
+                return dictionary.decodeToDouble(id);
+            case BOOLEAN:
+                return dictionary.decodeToBoolean(id);
+            default:
+                return fromBinary(type, dictionary.decodeToBinary(id));
+            }
+        }
+    }
+
+    static Object fromInt(PrimitiveType type, int value) {
+        LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+        if (annotation instanceof DateLogicalTypeAnnotation) {
+            return Date.valueOf(LocalDate.ofEpochDay(value));
+        } else if (annotation instanceof DecimalLogicalTypeAnnotation) {
+            return BigDecimal.valueOf(value, ((DecimalLogicalTypeAnnotation)annotation).getScale());
+        }
+        return value;
+    }
+
+    static Object fromLong(PrimitiveType type, long value) {
+        LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+        if (annotation instanceof TimestampLogicalTypeAnnotation) {
+            TimestampLogicalTypeAnnotation timestamp = (TimestampLogicalTypeAnnotation)annotation;
+            long nanosPerUnit;
+            switch (timestamp.getUnit()) {
+            case MILLIS:
+                nanosPerUnit = TimeUnit.MILLISECONDS.toNanos(1);
+                break;
+            case MICROS:
+                nanosPerUnit = TimeUnit.MICROSECONDS.toNanos(1);
+                break;
+            default:
+                nanosPerUnit = 1;
+            }
+            long unitsPerSecond = TimeUnit.SECONDS.toNanos(1) / nanosPerUnit;
+            return toTimestamp(Math.floorDiv(value, unitsPerSecond),
+                    Math.floorMod(value, unitsPerSecond) * nanosPerUnit, timestamp.isAdjustedToUTC());
+        } else if (annotation instanceof DecimalLogicalTypeAnnotation) {
+            return BigDecimal.valueOf(value, ((DecimalLogicalTypeAnnotation)annotation).getScale());
+        }
+        return value;
+    }
+
+    static Object fromBinary(PrimitiveType type, Binary value) {
+        LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+        if (annotation instanceof DecimalLogicalTypeAnnotation) {
+            return new BigDecimal(new BigInteger(value.getBytes()),
+                    ((DecimalLogicalTypeAnnotation)annotation).getScale());
+        } else if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT96) {
+            // legacy timestamps: nanoseconds of the day followed by the julian day, little endian
+            ByteBuffer buffer = ByteBuffer.wrap(value.getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            long nanosOfDay = buffer.getLong();
+            long epochDay = buffer.getInt() - JULIAN_EPOCH_DAY;
+            return toTimestamp(TimeUnit.DAYS.toSeconds(epochDay) + TimeUnit.NANOSECONDS.toSeconds(nanosOfDay),
+                    nanosOfDay % TimeUnit.SECONDS.toNanos(1), true);
+        }
+        return value.toStringUsingUTF8();
+    }
+
+    /**
+     * @param isAdjustedToUTC false for a local date and time, which is taken in the default time zone
+     */
+    private static Timestamp toTimestamp(long epochSecond, long nanos, boolean isAdjustedToUTC) {
+        if (isAdjustedToUTC) {
+            return Timestamp.from(Instant.ofEpochSecond(epochSecond, nanos));
+        }
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(epochSecond, (int)nanos, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import com.salesforce.dataloader.model.Row;
+import com.sforce.soap.partner.Field;
+
+/**
+ * Writes the values of rows to the record consumer of a parquet file, without building an intermediate record.
+ * Null and empty values are left out of the record, all columns are optional.
+ */
+class ParquetRowWriteSupport extends WriteSupport<Row> {
+
+    private static final String SCHEMA_NAME = "row";
+
+    private final MessageType schema;
+    private final String[] columnNames;
+    private final ParquetColumnType[] columnTypes;
+    private final int[] precisions;
+    private final int[] scales;
+    private final Object[] values;
+    private RecordConsumer consumer;
+
+    /**
+     * @param columnFields describe results of the Salesforce fields of the columns, null for a column that is not
+     *        from a field
+     */
+    ParquetRowWriteSupport(List<String> columnNames, List<Field> columnFields) {
+        this.columnNames = columnNames.toArray(new String[0]);
+        this.columnTypes = new ParquetColumnType[this.columnNames.length];
+        this.precisions = new int[this.columnNames.length];
+        this.scales = new int[this.columnNames.length];
+        Type[] fields = new Type[this.columnNames.length];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = columnFields.get(i);
+            columnTypes[i] = ParquetColumnType.forField(field);
+            precisions[i] = ParquetColumnType.precisionOf(field);
+            scales[i] = ParquetColumnType.scaleOf(field);
+            fields[i] = columnTypes[i].toParquetType(this.columnNames[i], precisions[i], scales[i]);
+        }
+        this.schema = new MessageType(SCHEMA_NAME, fields);
+        this.values = new Object[fields.length];
+    }
+
+    MessageType getSchema() {
+        return schema;
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(schema, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.consumer = recordConsumer;
+    }
+
+    /**
+     * Throws a NumberFormatException or a DateTimeParseException, before anything is written, if a value cannot
+     * be converted to the type of its column.
+     */
+    @Override
+    public void write(Row row) {
+        // convert all values first, a record cannot be abandoned once started
+        for (int i = 0; i < columnNames.length; i++) {
+            Object value = row.get(columnNames[i]);
+            boolean isEmpty = value == null || value instanceof String && ((String)value).isEmpty();
+            values[i] = isEmpty ? null : columnTypes[i].convert(value, precisions[i], scales[i]);
+        }
+        consumer.startMessage();
+        for (int i = 0; i < columnNames.length; i++) {
+            if (values[i] != null) {
+                consumer.startField(columnNames[i], i);
+                columnTypes[i].add(consumer, values[i]);
+                consumer.endField(columnNames[i], i);
+                values[i] = null;
+            }
+        }
+        consumer.endMessage();
+    }
+}
@@ -29,6 +29,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import com.salesforce.dataloader.util.DateOnlyCalendar;
 
 import org.apache.commons.beanutils.*;
@@ -226,6 +228,49 @@ public class SforceDynaBean {
         }
     }
 
+    /**
+     * @return slots of the columns of the schema that are properties of the dyna class, the columns
+     *         {@link #convertToDynaBean(BasicDynaClass, RowBatch, int, int[])} copies
+     */
+    static public int[] getPropertyColumns(BasicDynaClass dynaClass, RowSchema schema) {
+        int[] columns = new int[schema.getColumnCount()];
+        int count = 0;
+        for (int column = 0; column < schema.getColumnCount(); column++) {
+            if (dynaClass.getDynaProperty(schema.getColumnName(column)) != null) {
+                columns[count++] = column;
+            }
+        }
+        return Arrays.copyOf(columns, count);
+    }
+
+    /**
+     * Converts a row of a batch like {@link #convertToDynaBean(BasicDynaClass, Row)}, without copying the row
+     * out of the batch.
+     *
+     * @param columns slots of the columns to copy, see {@link #getPropertyColumns(BasicDynaClass, RowSchema)}
+     */
+    static public DynaBean convertToDynaBean(BasicDynaClass dynaClass, RowBatch sforceDataBatch, int row,
+            int[] columns) throws ConversionException, LoadException {
+        RowSchema schema = sforceDataBatch.getSchema();
+        try {
+            DynaBean sforceObj = dynaClass.newInstance();
+            for (int column : columns) {
+                //This does an automatic conversion of types.
+                BeanUtils.copyProperty(sforceObj, schema.getColumnName(column), sforceDataBatch.getValue(row, column));
+            }
+            return sforceObj;
+        } catch (IllegalAccessException e1) {
+            logger.error(Messages.getString("Visitor.dynaBeanError"), e1); //$NON-NLS-1$
+            throw new LoadException(e1);
+        } catch (InstantiationException e1) {
+            logger.fatal(Messages.getString("Visitor.dynaBeanError"), e1); //$NON-NLS-1$
+            throw new LoadException(e1);
+        } catch (InvocationTargetException e) {
+            logger.error(Messages.getString("Visitor.invocationError"), e); //$NON-NLS-1$
+            throw new LoadException(e);
+        }
+    }
+
     /**
      * Set all the fields specified in the dynaBean to null on the sObj
      * 
@@ -29,6 +29,8 @@ package com.salesforce.dataloader.mapping;
 import com.salesforce.dataloader.client.PartnerClient;
 import com.salesforce.dataloader.exception.MappingInitializationException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.salesforce.dataloader.model.RowSchema;
 import com.salesforce.dataloader.util.AppUtil;
 import com.sforce.soap.partner.Field;
 
@@ -36,9 +38,14 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Map.Entry;
 
 /**
@@ -50,6 +57,8 @@ import java.util.Map.Entry;
 public class LoadMapper extends Mapper {
 
     private static final Logger logger = LogManager.getLogger(Mapper.class);
+    private RowSchema mappedRowSchema;
+    private final Set<String> ignoredColumns = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
 
     public LoadMapper(PartnerClient client, Collection<String> columnNames, Field[] fields, String mappingFileName)
             throws MappingInitializationException {
@@ -88,7 +97,8 @@ public class LoadMapper extends Mapper {
     }
 
     public Row mapData(Row localRow) {
-        Row mappedData = new Row();
+        RowSchema schema = mappedRowSchema;
+        Row mappedData = schema == null ? new Row() : new Row(schema);
         for (Map.Entry<String, Object> entry : localRow.entrySet()) {
             String sfdcNameList = getMapping(entry.getKey(), true);
             if (StringUtils.hasText(sfdcNameList)) {
@@ -97,13 +107,94 @@ public class LoadMapper extends Mapper {
                     mappedData.put(sfdcName.trim(), entry.getValue());
                 }
             } else {
-                logger.info("Mapping for field " + entry.getKey() + " will be ignored since destination column is empty");
+                logIgnoredColumn(entry.getKey());
             }
         }
         mapConstants(mappedData);
+        if (schema == null || mappedData.hasColumnsOutsideSchema()) {
+            // the mapped columns are the same for every row unless the mappings change
+            mappedRowSchema = new RowSchema(mappedData.keySet());
+        }
         return mappedData;
     }
 
+    /**
+     * Maps a batch of rows, resolving the destination columns of each source column once for the whole batch.
+     */
+    public RowBatch mapData(RowBatch localBatch) {
+        RowSchema localSchema = localBatch.getSchema();
+        List<String> mappedColumns = new ArrayList<String>();
+        Map<String, Integer> mappedSlots = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+        int[][] destinationSlots = new int[localSchema.getColumnCount()][];
+        for (int column = 0; column < localSchema.getColumnCount(); column++) {
+            String localName = localSchema.getColumnName(column);
+            String sfdcNameList = getMapping(localName, true);
+            if (StringUtils.hasText(sfdcNameList)) {
+                String sfdcNameArray[] = sfdcNameList.split(AppUtil.COMMA);
+                destinationSlots[column] = new int[sfdcNameArray.length];
+                for (int i = 0; i < sfdcNameArray.length; i++) {
+                    destinationSlots[column][i] = getSlot(sfdcNameArray[i].trim(), mappedColumns, mappedSlots);
+                }
+            } else {
+                destinationSlots[column] = new int[0];
+                logIgnoredColumn(localName);
+            }
+        }
+        Map<String, String> constants = getConstantsMap();
+        int[] constantSlots = new int[constants.size()];
+        Object[] constantValues = new Object[constants.size()];
+        int constantIndex = 0;
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            constantSlots[constantIndex] = getSlot(constant.getKey(), mappedColumns, mappedSlots);
+            constantValues[constantIndex++] = constant.getValue();
+        }
+
+        RowBatch mappedBatch = new RowBatch(new RowSchema(mappedColumns), localBatch.size());
+        for (int row = 0; row < localBatch.size(); row++) {
+            mappedBatch.addRow();
+            for (int column = 0; column < destinationSlots.length; column++) {
+                Object value = localBatch.getValue(row, column);
+                for (int slot : destinationSlots[column]) {
+                    mappedBatch.setValue(row, slot, value);
+                }
+            }
+            for (int i = 0; i < constantSlots.length; i++) {
+                mappedBatch.setValue(row, constantSlots[i], constantValues[i]);
+            }
+        }
+        return mappedBatch;
+    }
+
+    /**
+     * @return the source columns that are mapped to sforce fields, the only columns a data source needs to read
+     */
+    public List<String> getMappedColumns() {
+        List<String> mappedColumns = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : getMap().entrySet()) {
+            if (StringUtils.hasText(entry.getValue())) {
+                mappedColumns.add(entry.getKey());
+            }
+        }
+        return mappedColumns;
+    }
+
+    private void logIgnoredColumn(String localName) {
+        // the same columns are unmapped in every row, log them once
+        if (ignoredColumns.add(localName)) {
+            logger.info("Mapping for field " + localName + " will be ignored since destination column is empty");
+        }
+    }
+
+    private static int getSlot(String name, List<String> columns, Map<String, Integer> slots) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = columns.size();
+            columns.add(name);
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
     public void verifyMappingsAreValid() throws MappingInitializationException {
         for (Map.Entry<String, String> entry : getMappingWithUnmappedColumns(false).entrySet()) {
             String sfdcNameList = entry.getValue();
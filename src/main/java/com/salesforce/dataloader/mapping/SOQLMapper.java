@@ -46,6 +46,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -194,8 +195,46 @@ public class SOQLMapper extends Mapper {
         return fieldInfo.isAggregate() ? fieldInfo.getAlias() : normalizedFieldName;
     }
 
+    /**
+     * @return the describe results of the fields the dao columns are mapped from, in the order of
+     *         {@link #getDaoColumnsForSoql()}. The field of an aggregate is null.
+     */
+    public Map<String, Field> getDaoColumnFieldsForSoql() {
+        Map<String, Field> fields = new LinkedHashMap<String, Field>();
+        for (SOQLFieldInfo fieldInfo : soqlInfo.getSelectedFields()) {
+            String daoColumn = getMapping(normalizeSoql(fieldInfo));
+            if (daoColumn != null) {
+                fields.put(daoColumn, fieldInfo.isAggregate() ? null : getSfdcField(fieldInfo.getFieldName()));
+            }
+        }
+        return fields;
+    }
+
+    private Field getSfdcField(String fieldExpr) {
+        DescribeSObjectResult describeResult = getClient().getFieldTypes();
+        if (describeResult == null) {
+            throw new InvalidMappingException("Failed to get entity fields from server");
+        }
+        fieldExpr = removeTablePrefix(fieldExpr.toLowerCase());
+        for (int splitIdx = fieldExpr.indexOf('.'); splitIdx >= 0; splitIdx = fieldExpr.indexOf('.')) {
+            final Field field = getReferenceField(describeResult, fieldExpr.substring(0, splitIdx));
+            fieldExpr = fieldExpr.substring(splitIdx + 1);
+            try {
+                describeResult = getClient().describeSObject(field.isNamePointing() ? "Name" : field.getReferenceTo()[0]);
+            } catch (ConnectionException e) {
+                throw new InvalidMappingException("Connection error while parsing field expression " + fieldExpr, e);
+            }
+        }
+        return getSfdcField(describeResult, fieldExpr);
+    }
+
     private String evalSfdcField(String fieldExpr) {
-        fieldExpr = fieldExpr.toLowerCase();
+        fieldExpr = removeTablePrefix(fieldExpr.toLowerCase());
+        DescribeSObjectResult describeResult = getClient().getFieldTypes();
+        return evalSfdcField(describeResult, fieldExpr);
+    }
+
+    private String removeTablePrefix(String fieldExpr) {
         if (this.soqlInfo != null) {
             String typePrefix = this.soqlInfo.getTableName().toLowerCase() + ".";
             String aliasPrefix = this.soqlInfo.getTableAlias().toLowerCase() + ".";
@@ -205,8 +244,7 @@ public class SOQLMapper extends Mapper {
                 fieldExpr = fieldExpr.substring(aliasPrefix.length());
             }
         }
-        DescribeSObjectResult describeResult = getClient().getFieldTypes();
-        return evalSfdcField(describeResult, fieldExpr);
+        return fieldExpr;
     }
 
     private String evalSfdcField(DescribeSObjectResult describeResult, String fieldExpr) {
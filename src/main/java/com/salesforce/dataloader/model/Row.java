@@ -54,11 +54,58 @@ public class Row implements Map<String, Object> {
         internalMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
     }
 
+    /**
+     * Creates a row that keeps the values of the schema's columns in an array instead of a map entry per
+     * column. Columns that are not in the schema can still be added.
+     */
+    public Row(RowSchema schema) {
+        internalMap = new SchemaRowMap(schema);
+    }
+
     public Row(Map<String, Object> internalMap) {
         this(internalMap.size());
         this.internalMap.putAll(internalMap);
     }
 
+    private Row(SchemaRowMap internalMap) {
+        this.internalMap = internalMap;
+    }
+
+    /**
+     * @return a copy of the row that the row's changes do not affect. A row with a schema is copied by copying
+     *         its value array, without looking up its columns.
+     */
+    public Row copy() {
+        if (internalMap instanceof SchemaRowMap) {
+            return new Row(new SchemaRowMap((SchemaRowMap)internalMap));
+        }
+        return new Row(this);
+    }
+
+    /**
+     * @return the schema the row was created with, or null
+     */
+    public RowSchema getSchema() {
+        return internalMap instanceof SchemaRowMap ? ((SchemaRowMap)internalMap).getSchema() : null;
+    }
+
+    /**
+     * @return true if the row has a schema and columns that are not in it
+     */
+    public boolean hasColumnsOutsideSchema() {
+        return internalMap instanceof SchemaRowMap && ((SchemaRowMap)internalMap).hasOtherColumns();
+    }
+
+    /**
+     * Gets a value by its slot in the schema of the row, without looking up the column name. Only usable for
+     * rows created with a schema.
+     *
+     * @return the value of the column in the slot, or null if the row has no value for it
+     */
+    public Object getValue(int slot) {
+        return ((SchemaRowMap)internalMap).getValue(slot);
+    }
+
     public static Row emptyRow() {
         return new Row(Collections.<String, Object>emptyMap());
     }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Rows stored by column: one value vector per column of a shared {@link RowSchema}. Values keep the Java
+ * type the source produced them with, e.g. String for CSV files or the JDBC type for databases.
+ * <p>
+ * Consumers resolve the columns they need to slots once per batch and then read the vectors, instead of
+ * looking up each column by name in each row.
+ */
+public class RowBatch {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final RowSchema schema;
+    private final Object[][] columns;
+    private int size;
+
+    public RowBatch(RowSchema schema, int capacity) {
+        this.schema = schema;
+        this.columns = new Object[schema.getColumnCount()][Math.max(capacity, 1)];
+    }
+
+    private RowBatch(RowSchema schema, Object[][] columns, int size) {
+        this.schema = schema;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /**
+     * Copies rows into a batch. The rows' schema is used if they all share it, otherwise the schema has
+     * every column of the rows.
+     */
+    public static RowBatch fromRows(List<Row> rows) {
+        RowSchema schema = null;
+        for (Row row : rows) {
+            if (row.getSchema() == null || row.hasColumnsOutsideSchema()
+                    || (schema != null && schema != row.getSchema())) {
+                schema = null;
+                break;
+            }
+            schema = row.getSchema();
+        }
+        if (schema == null) {
+            Set<String> names = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+            Set<String> orderedNames = new LinkedHashSet<String>();
+            for (Row row : rows) {
+                for (String name : row.keySet()) {
+                    if (names.add(name)) {
+                        orderedNames.add(name);
+                    }
+                }
+            }
+            schema = new RowSchema(orderedNames);
+        }
+        RowBatch batch = new RowBatch(schema, rows.size());
+        for (Row row : rows) {
+            int rowIndex = batch.addRow();
+            for (int column = 0; column < schema.getColumnCount(); column++) {
+                batch.columns[column][rowIndex] = row.get(schema.getColumnName(column));
+            }
+        }
+        return batch;
+    }
+
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends a row with all values null.
+     *
+     * @return index of the new row
+     */
+    public int addRow() {
+        if (columns.length > 0 && size == columns[0].length) {
+            int capacity = Math.max(size * 2, DEFAULT_CAPACITY);
+            for (int column = 0; column < columns.length; column++) {
+                columns[column] = Arrays.copyOf(columns[column], capacity);
+            }
+        }
+        return size++;
+    }
+
+    public Object getValue(int row, int column) {
+        checkRow(row);
+        return columns[column][row];
+    }
+
+    public void setValue(int row, int column, Object value) {
+        checkRow(row);
+        columns[column][row] = value;
+    }
+
+    /**
+     * @return the value vector of the column; only the first {@link #size()} elements are rows of the batch
+     */
+    public Object[] getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * @return a copy of the row as a {@link Row} with the batch's schema
+     */
+    public Row getRow(int row) {
+        checkRow(row);
+        Row result = new Row(schema);
+        for (int column = 0; column < columns.length; column++) {
+            result.put(schema.getColumnName(column), columns[column][row]);
+        }
+        return result;
+    }
+
+    /**
+     * @param schema schema of this batch's columns followed by the added columns
+     * @param addedColumns value vectors of the added columns, with at least {@link #size()} elements
+     * @return a batch with the rows of this batch and the added columns, sharing the value vectors of this batch
+     */
+    public RowBatch withColumns(RowSchema schema, Object[]... addedColumns) {
+        if (schema.getColumnCount() != columns.length + addedColumns.length) {
+            throw new IllegalArgumentException(schema + " does not extend " + this.schema);
+        }
+        Object[][] allColumns = Arrays.copyOf(columns, schema.getColumnCount());
+        int capacity = columns.length > 0 ? columns[0].length : size;
+        for (int i = 0; i < addedColumns.length; i++) {
+            allColumns[columns.length + i] = addedColumns[i].length == capacity ? addedColumns[i]
+                    : Arrays.copyOf(addedColumns[i], Math.max(capacity, 1));
+        }
+        return new RowBatch(schema, allColumns, size);
+    }
+
+    public List<Row> toRowList() {
+        List<Row> rows = new ArrayList<Row>(size);
+        for (int row = 0; row < size; row++) {
+            rows.add(getRow(row));
+        }
+        return rows;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of a batch of " + size + " rows");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Column names shared by all the rows read from one source, e.g. the header of a CSV file. Each distinct
+ * column name, compared ignoring case, gets a slot. Rows created with a schema keep their values in an
+ * array indexed by slot instead of a map entry per column.
+ */
+public final class RowSchema {
+
+    private final String[] columnNames;
+    // open addressing table of slot + 1, 0 marks an empty bucket
+    private final int[] buckets;
+    private final int mask;
+
+    public RowSchema(Collection<String> columnNames) {
+        String[] distinctNames = new String[columnNames.size()];
+        int count = 0;
+        int capacity = Integer.highestOneBit(Math.max(columnNames.size(), 1) * 2 + 1) << 1;
+        this.buckets = new int[capacity];
+        this.mask = capacity - 1;
+        for (String columnName : columnNames) {
+            if (columnName == null || find(columnName, distinctNames) >= 0) {
+                continue;
+            }
+            distinctNames[count++] = columnName;
+            int bucket = hash(columnName) & mask;
+            while (buckets[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            buckets[bucket] = count;
+        }
+        this.columnNames = Arrays.copyOf(distinctNames, count);
+    }
+
+    /**
+     * @return number of slots
+     */
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public String getColumnName(int slot) {
+        return columnNames[slot];
+    }
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+
+    /**
+     * @return slot of the column, ignoring case, or -1 if the schema does not have the column
+     */
+    public int indexOf(Object columnName) {
+        return columnName instanceof String ? find((String) columnName, columnNames) : -1;
+    }
+
+    private int find(String name, String[] names) {
+        for (int bucket = hash(name) & mask; buckets[bucket] != 0; bucket = (bucket + 1) & mask) {
+            String candidate = names[buckets[bucket] - 1];
+            if (candidate == name || candidate.equalsIgnoreCase(name)) {
+                return buckets[bucket] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param selectedNames names of the columns to keep, compared ignoring case, or null to keep all columns
+     * @return schema of the selected columns of this schema, in the order of this schema
+     */
+    public RowSchema select(Collection<String> selectedNames) {
+        if (selectedNames == null) {
+            return this;
+        }
+        RowSchema selected = new RowSchema(selectedNames);
+        List<String> names = new ArrayList<String>(selected.getColumnCount());
+        for (String columnName : columnNames) {
+            if (selected.indexOf(columnName) >= 0) {
+                names.add(columnName);
+            }
+        }
+        return new RowSchema(names);
+    }
+
+    /**
+     * Hash that is equal for names that are equal ignoring case, using the same case folding as
+     * {@link String#CASE_INSENSITIVE_ORDER}.
+     */
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "RowSchema" + Arrays.toString(columnNames);
+    }
+}
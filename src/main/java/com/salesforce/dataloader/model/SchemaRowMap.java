@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Case insensitive map keeping the values of the columns of a {@link RowSchema} in an array. Columns that are
+ * not in the schema, e.g. status columns added to a row read from a file, go to a TreeMap like the one
+ * {@link Row} uses without a schema.
+ */
+class SchemaRowMap extends AbstractMap<String, Object> {
+
+    // marks a slot without a value, null is a valid column value
+    private static final Object ABSENT = new Object();
+
+    private final RowSchema schema;
+    private final Object[] values;
+    private int schemaColumnCount;
+    private TreeMap<String, Object> otherColumns;
+    private Set<Entry<String, Object>> entrySet;
+
+    SchemaRowMap(RowSchema schema) {
+        this.schema = schema;
+        this.values = new Object[schema.getColumnCount()];
+        Arrays.fill(values, ABSENT);
+    }
+
+    /**
+     * Copies a map, sharing its schema and copying its value array.
+     */
+    SchemaRowMap(SchemaRowMap map) {
+        this.schema = map.schema;
+        this.values = map.values.clone();
+        this.schemaColumnCount = map.schemaColumnCount;
+        if (map.hasOtherColumns()) {
+            this.otherColumns = new TreeMap<String, Object>(map.otherColumns);
+        }
+    }
+
+    RowSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return true if the map has columns that are not in its schema
+     */
+    boolean hasOtherColumns() {
+        return otherColumns != null && !otherColumns.isEmpty();
+    }
+
+    Object getValue(int slot) {
+        Object value = values[slot];
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public int size() {
+        return schemaColumnCount + (otherColumns == null ? 0 : otherColumns.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = schema.indexOf(key);
+        if (slot >= 0) {
+            return values[slot] != ABSENT;
+        }
+        return otherColumns != null && otherColumns.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = schema.indexOf(key);
+        if (slot >= 0) {
+            Object value = values[slot];
+            return value == ABSENT ? null : value;
+        }
+        return otherColumns == null ? null : otherColumns.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = schema.indexOf(key);
+        if (slot >= 0) {
+            Object previous = values[slot];
+            values[slot] = value;
+            if (previous == ABSENT) {
+                schemaColumnCount++;
+                return null;
+            }
+            return previous;
+        }
+        if (otherColumns == null) {
+            otherColumns = new TreeMap<String, Object>(String.CASE_INSENSITIVE_ORDER);
+        }
+        return otherColumns.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = schema.indexOf(key);
+        if (slot >= 0) {
+            return removeSlot(slot);
+        }
+        return otherColumns == null ? null : otherColumns.remove(key);
+    }
+
+    private Object removeSlot(int slot) {
+        Object previous = values[slot];
+        if (previous == ABSENT) {
+            return null;
+        }
+        values[slot] = ABSENT;
+        schemaColumnCount--;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, ABSENT);
+        schemaColumnCount = 0;
+        otherColumns = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return SchemaRowMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    SchemaRowMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Iterates the schema columns in schema order, then the other columns.
+     */
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int nextSlot = findSlot(0);
+        private int lastSlot = -1;
+        private Iterator<Entry<String, Object>> otherIterator;
+
+        private int findSlot(int from) {
+            int slot = from;
+            while (slot < values.length && values[slot] == ABSENT) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextSlot < values.length) {
+                return true;
+            }
+            if (otherIterator == null) {
+                if (otherColumns == null) {
+                    return false;
+                }
+                otherIterator = otherColumns.entrySet().iterator();
+            }
+            return otherIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextSlot < values.length) {
+                lastSlot = nextSlot;
+                nextSlot = findSlot(nextSlot + 1);
+                return new SlotEntry(lastSlot);
+            }
+            lastSlot = -1;
+            return otherIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot >= 0) {
+                if (values[lastSlot] == ABSENT) {
+                    throw new IllegalStateException();
+                }
+                removeSlot(lastSlot);
+            } else if (otherIterator != null) {
+                otherIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private class SlotEntry implements Map.Entry<String, Object> {
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return schema.getColumnName(slot);
+        }
+
+        @Override
+        public Object getValue() {
+            Object value = values[slot];
+            return value == ABSENT ? null : value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = getValue();
+            if (values[slot] == ABSENT) {
+                schemaColumnCount++;
+            }
+            values[slot] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -201,7 +201,7 @@ public class DAORowUtil {
         } catch (final ParameterLoadException e) {
             return;
         }
-        if (rowToStart > 0) {
+        if (rowToStart > 0 && !daoReader.seekToRow(rowToStart)) {
             // keep skipping over rows until we run into an invalid row or we have gotten
             // to the starting row
             while (daoReader.getCurrentRowNumber() < rowToStart) {
@@ -47,6 +47,9 @@ public class LoadRateCalculator {
         // do nothing
     }
 
+    /**
+     * @param numRecords number of records of the job, negative if unknown so only the rate is reported
+     */
     public synchronized void start(int numRecords) {
         if (!started) {
             started = true;
@@ -69,6 +72,18 @@ public class LoadRateCalculator {
             hourlyProcessingRate = (processedRecordsInJob * 60 * 60) / totalElapsedTimeInSec;
         }
 
+        if (this.totalRecordsInJob < 0) {
+            // LoadRateCalculator.processedRateOnly=Processed {0} records in {4} seconds.
+            // There are {2} successes and {3} errors. \nRate: {1} records per hour.
+            return Messages.getMessage(getClass(), "processedRateOnly",
+                    processedRecordsInJob, // {0}
+                    hourlyProcessingRate,  // {1}
+                    numSuccessInJob,       // {2}
+                    numErrorsInJob,        // {3}
+                    totalElapsedTimeInSec  // {4}
+                );
+        }
+
         long remainingTimeInSec = 0;
         long estimatedTotalTimeInSec = 0;
         if (this.totalRecordsInJob > 0 && processedRecordsInJob > 0) {
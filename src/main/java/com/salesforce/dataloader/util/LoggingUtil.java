@@ -31,7 +31,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
@@ -42,10 +44,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.ConsoleAppender;
 import org.apache.logging.log4j.core.appender.RollingFileAppender;
+import org.apache.logging.log4j.core.config.AppenderRef;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.LoggerConfig;
 
+import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.LinkedProperties;
 import com.salesforce.dataloader.config.Messages;
 
@@ -113,10 +118,52 @@ public class LoggingUtil {
          
         // this will force a reconfiguration
         context.setConfigLocation(file.toURI());
+        if (argsMap != null && Config.DAO_NAME_STANDARD_STREAM.equals(argsMap.get(Config.DAO_NAME))) {
+            // decided once, before anything is logged: an extract may be written to standard output
+            redirectConsoleToStandardError();
+        }
         logger = LogManager.getLogger(AppUtil.class);
         logger.debug(Messages.getMessage(AppUtil.class, "logInit")); //$NON-NLS-1$
     }
     
+    /**
+     * Replaces the console appenders of the root logger that write to standard output by appenders writing to
+     * standard error, so that the log does not mix with the data when {@link Config#DAO_NAME} is standard output.
+     * The replacements keep the layout and filter of the appenders, and the level and filter of their references.
+     * The configuration file is left as it is, other runs log to the console as configured.
+     */
+    private static void redirectConsoleToStandardError() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        Configuration config = context.getConfiguration();
+        LoggerConfig rootConfig = config.getRootLogger();
+        Map<String, AppenderRef> appenderRefs = new HashMap<String, AppenderRef>();
+        for (AppenderRef appenderRef : rootConfig.getAppenderRefs()) {
+            appenderRefs.put(appenderRef.getRef(), appenderRef);
+        }
+        for (Appender appender : new ArrayList<Appender>(rootConfig.getAppenders().values())) {
+            if (!(appender instanceof ConsoleAppender)
+                    || ((ConsoleAppender) appender).getTarget() != ConsoleAppender.Target.SYSTEM_OUT) {
+                continue;
+            }
+            ConsoleAppender consoleAppender = (ConsoleAppender) appender;
+            ConsoleAppender stderrAppender = ConsoleAppender.newBuilder()
+                    .setName(consoleAppender.getName())
+                    .setLayout(consoleAppender.getLayout())
+                    .setFilter(consoleAppender.getFilter())
+                    .setIgnoreExceptions(consoleAppender.ignoreExceptions())
+                    .setTarget(ConsoleAppender.Target.SYSTEM_ERR)
+                    .setConfiguration(config)
+                    .build();
+            stderrAppender.start();
+            rootConfig.removeAppender(consoleAppender.getName());
+            AppenderRef appenderRef = appenderRefs.get(consoleAppender.getName());
+            rootConfig.addAppender(stderrAppender, appenderRef != null ? appenderRef.getLevel() : null,
+                    appenderRef != null ? appenderRef.getFilter() : null);
+            consoleAppender.stop();
+        }
+        context.updateLoggers();
+    }
+
     public static void setLoggingLevel(String newLevelStr) {
         if (newLevelStr == null) {
             return;
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.dao.csv.CSVFileWriter;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.AppUtil;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncDataWriterTest extends ConfigTestBase {
+
+    @Test
+    public void testWritesRowsInOrder() throws Exception {
+        File f = File.createTempFile("asyncWriter", ".csv");
+        AsyncDataWriter writer = new AsyncDataWriter(
+                new CSVFileWriter(f.getAbsolutePath(), getController().getConfig(), AppUtil.COMMA), 16,
+                AsyncDataWriter.FlushPolicy.BATCH, 1000);
+        try {
+            writer.open();
+            writer.setColumnNames(Arrays.asList("ID", "STATUS"));
+            List<Row> rows = new ArrayList<Row>();
+            for (int i = 0; i < 1000; i++) {
+                Row row = createRow(i);
+                if (i % 2 == 0) {
+                    writer.writeRow(row);
+                } else {
+                    rows.add(row);
+                    writer.writeRowList(rows);
+                    rows.clear();
+                }
+            }
+            assertEquals(1000, writer.getCurrentRowNumber());
+            // the batch is on disk before the writer is closed
+            writer.endBatch();
+            assertEquals(1001, Files.readAllLines(f.toPath(), StandardCharsets.UTF_8).size());
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+        List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        assertEquals("ID,STATUS", lines.get(0));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("id" + i + ",status" + i, lines.get(i + 1));
+        }
+        f.delete();
+    }
+
+    @Test
+    public void testRowsChangedAfterQueuedAreWrittenAsQueued() throws Exception {
+        File f = File.createTempFile("asyncWriter", ".csv");
+        AsyncDataWriter writer = new AsyncDataWriter(
+                new CSVFileWriter(f.getAbsolutePath(), getController().getConfig(), AppUtil.COMMA), 16,
+                AsyncDataWriter.FlushPolicy.CLOSE, 1000);
+        try {
+            writer.open();
+            writer.setColumnNames(Arrays.asList("ID", "STATUS"));
+            for (int i = 0; i < 1000; i += 2) {
+                List<Row> rows = Arrays.asList(createRow(i), createRow(i + 1));
+                writer.writeRowList(rows);
+                // like the status added to the rows of an extract after they are written
+                for (Row row : rows) {
+                    row.put("STATUS", "changed");
+                    row.put("ERROR", "added");
+                }
+            }
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+        List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        assertEquals(1001, lines.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("id" + i + ",status" + i, lines.get(i + 1));
+        }
+        f.delete();
+    }
+
+    @Test
+    public void testWriteErrorIsThrownToCaller() throws Exception {
+        File f = File.createTempFile("asyncWriter", ".csv");
+        AsyncDataWriter writer = new AsyncDataWriter(
+                new CSVFileWriter(f.getAbsolutePath(), getController().getConfig(), AppUtil.COMMA) {
+                    @Override
+                    public boolean writeRow(Row row) throws DataAccessObjectException {
+                        if ("id5".equals(row.get("ID"))) {
+                            throw new DataAccessObjectException("write failed");
+                        }
+                        return super.writeRow(row);
+                    }
+                }, 4, AsyncDataWriter.FlushPolicy.CLOSE, 1000);
+        try {
+            writer.open();
+            writer.setColumnNames(Arrays.asList("ID", "STATUS"));
+            try {
+                for (int i = 0; i < 100; i++) {
+                    writer.writeRow(createRow(i));
+                }
+                writer.endBatch();
+                writer.finish();
+                Assert.fail("The failed write should be thrown to the caller");
+            } catch (DataAccessObjectException expected) {
+                assertEquals("write failed", expected.getMessage());
+            }
+            try {
+                writer.finish();
+                Assert.fail("The failed write should be thrown until the writer is reopened");
+            } catch (DataAccessObjectException expected) {
+                // expected
+            }
+        } finally {
+            writer.close();
+            f.delete();
+        }
+    }
+
+    private static Row createRow(int i) {
+        Row row = new Row();
+        row.put("ID", "id" + i);
+        row.put("STATUS", "status" + i);
+        return row;
+    }
+}
@@ -25,9 +25,17 @@
  */
 package com.salesforce.dataloader.dao;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -36,12 +44,16 @@ import com.salesforce.dataloader.ConfigTestBase;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.dao.csv.CSVFileReader;
 import com.salesforce.dataloader.dao.csv.CSVFileWriter;
+import com.salesforce.dataloader.dao.csv.CSVRollingFileWriter;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
 import com.salesforce.dataloader.util.AppUtil;
 
 import org.junit.Assert;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class CsvTest extends ConfigTestBase {
@@ -216,6 +228,349 @@ public class CsvTest extends ConfigTestBase {
         assertEquals(20000, count);
     }
 
+    @Test
+    public void testParallelReadMatchesSequentialRead() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        Config config = getController().getConfig();
+        CSVFileReader sequentialReader = new CSVFileReader(f, config, false, false);
+        config.setValue(Config.DAO_CSV_PARALLEL_READ, true);
+        CSVFileReader parallelReader = new CSVFileReader(f, config, false, false);
+        try {
+            sequentialReader.open();
+            parallelReader.open();
+            assertEquals(sequentialReader.getColumnNames(), parallelReader.getColumnNames());
+            for (Row row = sequentialReader.readRow(); row != null; row = sequentialReader.readRow()) {
+                Row parallelRow = parallelReader.readRow();
+                for (String column : sequentialReader.getColumnNames()) {
+                    assertEquals(row.get(column), parallelRow.get(column));
+                }
+                assertEquals(sequentialReader.getCurrentRowNumber(), parallelReader.getCurrentRowNumber());
+            }
+            Assert.assertNull(parallelReader.readRow());
+            assertEquals(20000, parallelReader.getCurrentRowNumber());
+        } finally {
+            config.setValue(Config.DAO_CSV_PARALLEL_READ, false);
+            sequentialReader.close();
+            parallelReader.close();
+        }
+    }
+
+    @Test
+    public void testSeekToRow() throws Exception {
+        doTestSeekToRow(false);
+    }
+
+    @Test
+    public void testSeekToRowInParallelRead() throws Exception {
+        doTestSeekToRow(true);
+    }
+
+    private void doTestSeekToRow(boolean parallelRead) throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_CSV_PARALLEL_READ, parallelRead);
+        CSVFileReader expectedReader = new CSVFileReader(f, config, false, false);
+        CSVFileReader seekingReader = new CSVFileReader(f, config, false, false);
+        try {
+            expectedReader.open();
+            seekingReader.open();
+            for (int row : new int[] {12345, 1024, 0, 19999}) {
+                expectedReader.open();
+                for (int i = 0; i < row; i++) {
+                    expectedReader.readRow();
+                }
+                assertTrue(seekingReader.seekToRow(row));
+                assertEquals(row, seekingReader.getCurrentRowNumber());
+                for (int i = 0; i < 3; i++) {
+                    Row expectedRow = expectedReader.readRow();
+                    Row row2 = seekingReader.readRow();
+                    if (expectedRow == null) {
+                        Assert.assertNull(row2);
+                    } else {
+                        assertEquals(expectedRow.get("COLUMN1"), row2.get("COLUMN1"));
+                    }
+                }
+                assertEquals(expectedReader.getCurrentRowNumber(), seekingReader.getCurrentRowNumber());
+            }
+            assertTrue(seekingReader.seekToRow(30000));
+            assertEquals(20000, seekingReader.getCurrentRowNumber());
+            Assert.assertNull(seekingReader.readRow());
+        } finally {
+            config.setValue(Config.DAO_CSV_PARALLEL_READ, false);
+            expectedReader.close();
+            seekingReader.close();
+        }
+    }
+
+    @Test
+    public void testRowBatchReadAndWrite() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        File out = new File(getTestDataDir(), "csvtestBatchTemp.csv");
+        Config config = getController().getConfig();
+        CSVFileReader reader = new CSVFileReader(f, config, false, false);
+        CSVFileReader expectedReader = new CSVFileReader(f, config, false, false);
+        CSVFileWriter writer = new CSVFileWriter(out.getAbsolutePath(), config, AppUtil.COMMA);
+        try {
+            reader.open();
+            writer.open();
+            writer.setColumnNames(reader.getColumnNames());
+            int rows = 0;
+            for (RowBatch batch = reader.readRowBatch(999); !batch.isEmpty(); batch = reader.readRowBatch(999)) {
+                rows += batch.size();
+                assertEquals(rows, reader.getCurrentRowNumber());
+                writer.writeRowBatch(batch);
+            }
+            assertEquals(20000, rows);
+            writer.close();
+
+            CSVFileReader writtenReader = new CSVFileReader(out, config, true, false);
+            expectedReader.open();
+            writtenReader.open();
+            for (Row row = expectedReader.readRow(); row != null; row = expectedReader.readRow()) {
+                Row writtenRow = writtenReader.readRow();
+                for (String column : expectedReader.getColumnNames()) {
+                    assertEquals(row.get(column), writtenRow.get(column));
+                }
+            }
+            Assert.assertNull(writtenReader.readRow());
+            writtenReader.close();
+        } finally {
+            reader.close();
+            expectedReader.close();
+            writer.close();
+            out.delete();
+        }
+    }
+
+    @Test
+    public void testReadSelectedColumns() throws Exception {
+        doTestReadSelectedColumns(false);
+        doTestReadSelectedColumns(true);
+    }
+
+    private void doTestReadSelectedColumns(boolean parallelRead) throws Exception {
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_CSV_PARALLEL_READ, parallelRead);
+        CSVFileReader csv = new CSVFileReader(new File(getTestDataDir(), "csvtext.csv"), config, false, false);
+        try {
+            assertTrue(csv.setColumnsToRead(Arrays.asList("COLUMN3", COLUMN_1_NAME, "missing")));
+            csv.open();
+            assertEquals(Arrays.asList(COLUMN_1_NAME, COLUMN_2_NAME, COLUMN_3_NAME), csv.getColumnNames());
+            Row firstRow = csv.readRow();
+            assertEquals(2, firstRow.size());
+            assertEquals("row1-1", firstRow.get(COLUMN_1_NAME));
+            assertEquals("row1-3", firstRow.get(COLUMN_3_NAME));
+            Assert.assertFalse(firstRow.containsKey(COLUMN_2_NAME));
+
+            RowBatch batch = csv.readRowBatch(10);
+            assertEquals(Arrays.asList(COLUMN_1_NAME, COLUMN_3_NAME), batch.getSchema().getColumnNames());
+            assertEquals("row2-3", batch.getValue(0, 1));
+
+            csv.setColumnsToRead(null);
+            csv.open();
+            assertEquals(3, csv.readRow().size());
+        } finally {
+            config.setValue(Config.DAO_CSV_PARALLEL_READ, false);
+            csv.close();
+        }
+    }
+
+    @Test
+    public void testGzipCompressedRead() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        File compressed = new File(getTestDataDir(), "csvtestCompressedTemp.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed))) {
+            Files.copy(f.toPath(), out);
+        }
+        Config config = getController().getConfig();
+        CSVFileReader expectedReader = new CSVFileReader(f, config, false, false);
+        CSVFileReader compressedReader = new CSVFileReader(compressed, config, false, false);
+        try {
+            expectedReader.open();
+            compressedReader.open();
+            assertEquals(expectedReader.getColumnNames(), compressedReader.getColumnNames());
+            assertEquals(20000, compressedReader.getTotalRows());
+            for (Row row = expectedReader.readRow(); row != null; row = expectedReader.readRow()) {
+                assertEquals(row.get("COLUMN1"), compressedReader.readRow().get("COLUMN1"));
+            }
+            Assert.assertNull(compressedReader.readRow());
+
+            for (int row : new int[] {12345, 1024, 0}) {
+                assertTrue(expectedReader.seekToRow(row));
+                assertTrue(compressedReader.seekToRow(row));
+                assertEquals(expectedReader.readRow().get("COLUMN1"), compressedReader.readRow().get("COLUMN1"));
+                assertEquals(expectedReader.readRow().get("COLUMN1"), compressedReader.readRow().get("COLUMN1"));
+            }
+            assertTrue(compressedReader.seekToRow(30000));
+            assertEquals(20000, compressedReader.getCurrentRowNumber());
+            Assert.assertNull(compressedReader.readRow());
+        } finally {
+            expectedReader.close();
+            compressedReader.close();
+            compressed.delete();
+        }
+    }
+
+    @Test
+    public void testReadStandardInput() throws Exception {
+        InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream("ID,NAME\n1,one\n2,two\n".getBytes(StandardCharsets.UTF_8)));
+        try {
+            CSVFileReader reader = new CSVFileReader(new File(Config.DAO_NAME_STANDARD_STREAM),
+                    getController().getConfig(), false, false);
+            // the header read when checking the connection is kept
+            reader.checkConnection();
+            reader.open();
+            assertEquals(Arrays.asList("ID", "NAME"), reader.getColumnNames());
+            assertEquals(DataReader.UNKNOWN_TOTAL_ROWS, reader.getTotalRows());
+            assertEquals("one", reader.readRow().get("NAME"));
+            assertEquals("two", reader.readRow().get("NAME"));
+            assertNull(reader.readRow());
+            reader.close();
+            try {
+                reader.open();
+                Assert.fail("standard input must not be read again");
+            } catch (DataAccessObjectInitializationException e) {
+                // expected
+            }
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+    @Test
+    public void testRollingCompressedWrite() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        File out = new File(getTestDataDir(), "csvtestRollingTemp.csv");
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_WRITE_COMPRESSION, "gzip");
+        config.setValue(Config.DAO_WRITE_MAX_ROWS_PER_FILE, 7000);
+        config.setValue(Config.DAO_WRITE_PARALLEL_FILES, 2);
+        CSVFileReader reader = new CSVFileReader(f, config, false, false);
+        CSVRollingFileWriter writer = new CSVRollingFileWriter(out.getAbsolutePath(), config, AppUtil.COMMA);
+        List<File> written = new ArrayList<File>();
+        try {
+            reader.open();
+            writer.open();
+            writer.setColumnNames(reader.getColumnNames());
+            for (RowBatch batch = reader.readRowBatch(999); !batch.isEmpty(); batch = reader.readRowBatch(999)) {
+                writer.writeRowBatch(batch);
+            }
+            writer.finish();
+            writer.close();
+
+            File manifest = new File(getTestDataDir(), "csvtestRollingTemp.manifest.csv");
+            written.add(manifest);
+            assertEquals(Arrays.asList("FILE,ROWS", "csvtestRollingTemp-00001.csv.gz,7000",
+                    "csvtestRollingTemp-00002.csv.gz,7000", "csvtestRollingTemp-00003.csv.gz,6000"),
+                    Files.readAllLines(manifest.toPath()));
+
+            reader.open();
+            for (int part = 1; part <= 3; part++) {
+                File partFile = new File(getTestDataDir(), "csvtestRollingTemp-0000" + part + ".csv.gz");
+                written.add(partFile);
+                CSVFileReader partReader = new CSVFileReader(partFile, config, true, false);
+                try {
+                    partReader.open();
+                    for (Row row = partReader.readRow(); row != null; row = partReader.readRow()) {
+                        assertEquals(reader.readRow().get("COLUMN1"), row.get("COLUMN1"));
+                    }
+                } finally {
+                    partReader.close();
+                }
+            }
+            Assert.assertNull(reader.readRow());
+        } finally {
+            config.setValue(Config.DAO_WRITE_COMPRESSION, "none");
+            config.setValue(Config.DAO_WRITE_MAX_ROWS_PER_FILE, 0);
+            config.setValue(Config.DAO_WRITE_PARALLEL_FILES, 0);
+            reader.close();
+            writer.close();
+            for (File file : written) {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedWriteAddsSuffix() throws Exception {
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_WRITE_COMPRESSION, "gzip");
+        File out = new File(getTestDataDir(), "csvtestCompressedNameTemp.csv");
+        File compressed = new File(getTestDataDir(), "csvtestCompressedNameTemp.csv.gz");
+        CSVRollingFileWriter writer = new CSVRollingFileWriter(out.getAbsolutePath(), config, AppUtil.COMMA);
+        try {
+            writer.open();
+            writer.setColumnNames(writeHeader);
+            writer.writeRowList(Arrays.asList(row1, row2));
+            writer.finish();
+            writer.close();
+
+            assertTrue(compressed.exists());
+            Assert.assertFalse(out.exists());
+            CSVFileReader reader = new CSVFileReader(compressed, config, true, false);
+            try {
+                reader.open();
+                assertEquals("row1col1", reader.readRow().get("COL1"));
+                assertEquals("row2col1", reader.readRow().get("COL1"));
+                assertNull(reader.readRow());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            config.setValue(Config.DAO_WRITE_COMPRESSION, "none");
+            writer.close();
+            compressed.delete();
+        }
+    }
+
+    @Test
+    public void testRollingWriteOfRowsChangedAfterWrite() throws Exception {
+        File out = new File(getTestDataDir(), "csvtestRollingChangedTemp.csv");
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_WRITE_MAX_ROWS_PER_FILE, 1000);
+        CSVRollingFileWriter writer = new CSVRollingFileWriter(out.getAbsolutePath(), config, AppUtil.COMMA);
+        List<File> written = new ArrayList<File>();
+        try {
+            writer.open();
+            writer.setColumnNames(writeHeader);
+            for (int i = 0; i < 2000; i += 2) {
+                List<Row> rows = Arrays.asList(new Row(row1), new Row(row2));
+                writer.writeRowList(rows);
+                // like the status added to the rows of an extract once they are written
+                for (Row row : rows) {
+                    row.put("COL1", "changed");
+                    row.put("ERROR", "added");
+                }
+            }
+            writer.finish();
+            writer.close();
+
+            written.add(new File(getTestDataDir(), "csvtestRollingChangedTemp.manifest.csv"));
+            for (int part = 1; part <= 2; part++) {
+                File partFile = new File(getTestDataDir(), "csvtestRollingChangedTemp-0000" + part + ".csv");
+                written.add(partFile);
+                CSVFileReader partReader = new CSVFileReader(partFile, config, true, false);
+                try {
+                    partReader.open();
+                    assertEquals(writeHeader, partReader.getColumnNames());
+                    for (int i = 0; i < 1000; i++) {
+                        assertEquals(i % 2 == 0 ? "row1col1" : "row2col1", partReader.readRow().get("COL1"));
+                    }
+                    assertNull(partReader.readRow());
+                } finally {
+                    partReader.close();
+                }
+            }
+        } finally {
+            config.setValue(Config.DAO_WRITE_MAX_ROWS_PER_FILE, 0);
+            writer.close();
+            for (File file : written) {
+                file.delete();
+            }
+        }
+    }
+
     /**
      * Helper to compare the static variables to the csv we wrote
      *
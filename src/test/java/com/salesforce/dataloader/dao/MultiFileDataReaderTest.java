@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class MultiFileDataReaderTest extends ConfigTestBase {
+
+    private static final int FILES = 4;
+
+    @Test
+    public void testReadGlob() throws Exception {
+        File dir = writeFiles();
+        DataReader reader = getReader(dir.getAbsolutePath() + File.separator + "part-*.csv");
+        try {
+            reader.open();
+            assertEquals(Arrays.asList("ID", "NAME", Config.SOURCE_FILE_COLUMN_NAME, Config.SOURCE_FILE_ROW_COLUMN_NAME),
+                    reader.getColumnNames());
+            // file i has 10 + i rows
+            assertEquals(46, reader.getTotalRows());
+
+            int rows = 0;
+            int file = 0;
+            int fileRow = 0;
+            for (RowBatch batch = reader.readRowBatch(7); !batch.isEmpty(); batch = reader.readRowBatch(7)) {
+                for (Row row : batch.toRowList()) {
+                    if (fileRow == 10 + file) {
+                        file++;
+                        fileRow = 0;
+                    }
+                    fileRow++;
+                    rows++;
+                    assertEquals(file + "-" + fileRow, row.get("ID"));
+                    assertEquals("part-" + file + ".csv", row.get(Config.SOURCE_FILE_COLUMN_NAME));
+                    assertEquals(fileRow, row.get(Config.SOURCE_FILE_ROW_COLUMN_NAME));
+                }
+            }
+            assertEquals(46, rows);
+            assertEquals(46, reader.getCurrentRowNumber());
+
+            // the first row of the second file is row 10
+            reader.seekToRow(12);
+            assertEquals("1-3", reader.readRow().get("ID"));
+            assertEquals(13, reader.getCurrentRowNumber());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadDirectory() throws Exception {
+        File dir = writeFiles();
+        writeFile(new File(dir, ".hidden"), "ID,NAME", 1);
+        DataReader reader = getReader(dir.getAbsolutePath());
+        try {
+            assertEquals(46, reader.getTotalRows());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testColumnsMismatch() throws Exception {
+        File dir = writeFiles();
+        writeFile(new File(dir, "part-9.csv"), "ID,OTHER", 1);
+        DataReader reader = getReader(dir.getAbsolutePath() + File.separator + "part-*.csv");
+        try {
+            reader.open();
+            fail("files with other columns must not be read");
+        } catch (DataAccessObjectInitializationException e) {
+            // expected
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSeekPastLastRow() throws Exception {
+        File dir = writeFiles();
+        DataReader reader = getReader(dir.getAbsolutePath() + File.separator + "part-*.csv");
+        try {
+            reader.open();
+            assertEquals(true, reader.seekToRow(100));
+            assertNull(reader.readRow());
+            assertEquals(46, reader.getCurrentRowNumber());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSingleFile() throws Exception {
+        File dir = writeFiles();
+        assertNull(MultiFileDataReader.findFiles(new File(dir, "part-0.csv").getAbsolutePath()));
+        // an existing file is read as is, even if its name looks like a pattern
+        File file = new File(dir, "Report [1].csv");
+        writeFile(file, "ID,NAME", 1);
+        assertNull(MultiFileDataReader.findFiles(file.getAbsolutePath()));
+    }
+
+    private DataReader getReader(String name) throws Exception {
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_NAME, name);
+        config.setValue(Config.DAO_READ_PARALLEL_FILES, 2);
+        return (DataReader)new DataAccessObjectFactory().getDaoInstance(DataAccessObjectFactory.CSV_READ_TYPE, config);
+    }
+
+    private static File writeFiles() throws Exception {
+        File dir = Files.createTempDirectory("multiFile").toFile();
+        dir.deleteOnExit();
+        for (int i = 0; i < FILES; i++) {
+            writeFile(new File(dir, "part-" + i + ".csv"), "ID,NAME", 10 + i);
+        }
+        return dir;
+    }
+
+    private static void writeFile(File file, String header, int rows) throws Exception {
+        StringBuilder content = new StringBuilder(header).append('\n');
+        String prefix = file.getName().replaceAll("\\D", "");
+        for (int i = 1; i <= rows; i++) {
+            content.append(prefix).append('-').append(i).append(",name").append(i).append('\n');
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.dao.csv.CSVFileReader;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchingDataReaderTest extends ConfigTestBase {
+
+    @Test
+    public void testReadsSameRowsAsReader() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        CSVFileReader expectedReader = new CSVFileReader(f, getController().getConfig(), false, false);
+        PrefetchingDataReader reader = new PrefetchingDataReader(
+                new CSVFileReader(f, getController().getConfig(), false, false), 200, 2);
+        try {
+            expectedReader.open();
+            reader.open();
+            assertEquals(20000, reader.getTotalRows());
+            assertEquals(0, reader.getCurrentRowNumber());
+            int rows = 0;
+            while (true) {
+                // mix batch sizes that differ from the read ahead batch size with single rows
+                RowBatch batch = reader.readRowBatch(rows % 3 == 0 ? 150 : 300);
+                Row row = reader.readRow();
+                if (batch.isEmpty()) {
+                    assertNull(row);
+                    break;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    assertEquals(expectedReader.readRow().get("COLUMN1"), batch.getRow(i).get("COLUMN1"));
+                }
+                rows += batch.size();
+                if (row != null) {
+                    assertEquals(expectedReader.readRow().get("COLUMN1"), row.get("COLUMN1"));
+                    rows++;
+                }
+                assertEquals(rows, reader.getCurrentRowNumber());
+            }
+            assertEquals(20000, rows);
+            assertTrue(reader.readRowBatch(200).isEmpty());
+        } finally {
+            expectedReader.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSeekDiscardsRowsReadAhead() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        CSVFileReader expectedReader = new CSVFileReader(f, getController().getConfig(), false, false);
+        PrefetchingDataReader reader = new PrefetchingDataReader(
+                new CSVFileReader(f, getController().getConfig(), false, false), 100, 4);
+        try {
+            expectedReader.open();
+            reader.open();
+            assertEquals(100, reader.readRowBatch(100).size());
+            assertTrue(reader.seekToRow(5000));
+            assertEquals(5000, reader.getCurrentRowNumber());
+            for (int i = 0; i < 5000; i++) {
+                expectedReader.readRow();
+            }
+            assertEquals(expectedReader.readRow().get("COLUMN1"), reader.readRow().get("COLUMN1"));
+            assertEquals(5001, reader.getCurrentRowNumber());
+        } finally {
+            expectedReader.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRepositionDoesNotInterruptRead() throws Exception {
+        File f = new File(getTestDataDir(), "20kRows.csv");
+        final CSVFileReader csvReader = new CSVFileReader(f, getController().getConfig(), false, false);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        // a read that an interrupt would break, like one from a file channel
+        DataReader slowReader = (DataReader)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DataReader.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("readRowBatch")) {
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            interrupted.set(true);
+                        }
+                    }
+                    try {
+                        return method.invoke(csvReader, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        CSVFileReader expectedReader = new CSVFileReader(f, getController().getConfig(), false, false);
+        PrefetchingDataReader reader = new PrefetchingDataReader(slowReader, 100, 1);
+        try {
+            expectedReader.open();
+            reader.open();
+            reader.readAhead();
+            Thread.sleep(10);
+            // repositions the reader while the background thread is reading
+            assertEquals(20000, reader.getTotalRows());
+            assertEquals(0, reader.getCurrentRowNumber());
+            assertEquals(expectedReader.readRow().get("COLUMN1"), reader.readRow().get("COLUMN1"));
+            assertFalse(interrupted.get());
+        } finally {
+            expectedReader.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadErrorFollowsRowsReadBeforeIt() throws Exception {
+        File f = File.createTempFile("prefetch", ".csv");
+        StringBuilder content = new StringBuilder("a,b\n");
+        for (int i = 0; i < 25; i++) {
+            content.append(i).append(",x\n");
+        }
+        content.append("1,2,3\n");
+        Files.write(f.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        PrefetchingDataReader reader = new PrefetchingDataReader(
+                new CSVFileReader(f, getController().getConfig(), false, false), 10, 2);
+        try {
+            reader.open();
+            assertEquals(10, reader.readRowBatch(10).size());
+            assertEquals(10, reader.readRowBatch(10).size());
+            try {
+                reader.readRowBatch(10);
+                Assert.fail("The row with too many values should fail the read");
+            } catch (DataAccessObjectException expected) {
+                // expected
+            }
+        } finally {
+            reader.close();
+            f.delete();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sforce.async.CSVReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CSVByteTokenizerTest {
+
+    private static final char[] COMMA = {','};
+
+    @Test
+    public void testMatchesCSVReader() throws IOException {
+        assertSameRecords("", COMMA);
+        assertSameRecords("\n\r\n\"\"\n", COMMA);
+        assertSameRecords("\uFEFFa,b,c\r\n1,2,3", COMMA);
+        assertSameRecords("a,,c,\n,\"\",\"\"\"\"\n", COMMA);
+        assertSameRecords("\"x\r\ny\",\"p\rq\",\"m\nn\"\r\r\nnext, spaced ,value\n", COMMA);
+        assertSameRecords("\"with, comma\",\"with \"\"quotes\"\"\"\n", COMMA);
+        assertSameRecords("caf\u00E9\t\u65E5\u672C|\uD83D\uDE00\n", new char[] {'\t', '|'});
+    }
+
+    @Test
+    public void testMatchesCSVReaderAcrossBuffers() throws IOException {
+        StringBuilder content = new StringBuilder("id,name,description\n");
+        for (int i = 0; i < 5000; i++) {
+            content.append(i).append(",\"name ").append(i).append("\",");
+            content.append(i % 3 == 0 ? "\"multi\r\nline \"\"value\"\" \u00E9\u00E8\"" : "plain \u65E5\u672C");
+            content.append("\r\n");
+        }
+        assertSameRecords(content.toString(), COMMA);
+    }
+
+    @Test
+    public void testSingleByteCharset() throws IOException {
+        Charset charset = Charset.forName("ISO-8859-1");
+        byte[] bytes = "na\u00EFve,\"r\u00E9sum\u00E9\"\n".getBytes(charset);
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(new ByteArrayInputStream(bytes), charset, COMMA, true);
+        List<String> record = tokenizer.nextRecord();
+        assertEquals("na\u00EFve", record.get(0));
+        assertEquals("r\u00E9sum\u00E9", record.get(1));
+        assertEquals(null, tokenizer.nextRecord());
+    }
+
+    @Test
+    public void testMalformedRecords() throws IOException {
+        assertParseError("a,b\"c\n");
+        assertParseError("\"a\"b,c\n");
+        assertParseError("\"a\" ,c\n");
+        assertParseError("a,\"unterminated\n");
+    }
+
+    @Test
+    public void testSupportedSeparators() {
+        assertTrue(CSVByteTokenizer.supports(new char[] {',', '\t', ';'}));
+        assertFalse(CSVByteTokenizer.supports(new char[] {',', '\u00A6'}));
+        assertFalse(CSVByteTokenizer.supports(new char[] {'"'}));
+    }
+
+    private static void assertSameRecords(String content, char[] delimiters) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        CSVReader csvReader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(bytes),
+                StandardCharsets.UTF_8), delimiters.clone());
+        csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
+        csvReader.setMaxCharsInFile(Integer.MAX_VALUE);
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8,
+                delimiters, true);
+        List<String> expected = csvReader.nextRecord();
+        if (expected != null && !expected.isEmpty() && expected.get(0) != null
+                && expected.get(0).startsWith("\uFEFF")) {
+            // CSVReader keeps the byte order mark, CSVFileReader strips it before
+            expected.set(0, expected.get(0).substring(1));
+        }
+        for (; expected != null; expected = csvReader.nextRecord()) {
+            List<String> actual = tokenizer.nextRecord();
+            assertEquals(expected, actual == null ? null : new ArrayList<String>(actual));
+        }
+        assertEquals(null, tokenizer.nextRecord());
+    }
+
+    private static void assertParseError(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try {
+            CSVByteTokenizer tokenizer = new CSVByteTokenizer(new ByteArrayInputStream(bytes),
+                    StandardCharsets.UTF_8, COMMA, true);
+            while (tokenizer.nextRecord() != null) {
+                // read to the error
+            }
+            fail("Expected a parse error for " + content);
+        } catch (IOException expected) {
+            // expected
+        }
+        try {
+            CSVReader csvReader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(bytes),
+                    StandardCharsets.UTF_8), COMMA.clone());
+            while (csvReader.nextRecord() != null) {
+                // read to the error
+            }
+            fail("CSVReader accepts " + content);
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
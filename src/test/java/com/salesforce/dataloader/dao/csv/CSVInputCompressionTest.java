@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CSVInputCompressionTest {
+
+    private byte[] content;
+    private File plainFile;
+    private File compressedFile;
+
+    @Before
+    public void createContent() throws IOException {
+        StringBuilder csv = new StringBuilder("id,description\n");
+        for (int i = 0; i < 25000; i++) {
+            csv.append(i).append(i % 2 == 0 ? ",\"multi\r\nline\"\n" : ",plain\n");
+        }
+        content = csv.toString().getBytes(StandardCharsets.UTF_8);
+        plainFile = File.createTempFile("compression", ".csv");
+        Files.write(plainFile.toPath(), content);
+    }
+
+    @After
+    public void deleteFiles() {
+        plainFile.delete();
+        if (compressedFile != null) {
+            compressedFile.delete();
+        }
+    }
+
+    @Test
+    public void testMultiMemberGzip() throws IOException {
+        compressedFile = File.createTempFile("compression", ".csv.gz");
+        try (OutputStream out = new FileOutputStream(compressedFile)) {
+            int half = content.length / 2;
+            writeGzipMember(out, Arrays.copyOfRange(content, 0, half));
+            writeGzipMember(out, Arrays.copyOfRange(content, half, content.length));
+        }
+        assertEquals(CSVInputCompression.GZIP, CSVInputCompression.detect(compressedFile));
+        assertFalse(BlockGzipInputStream.isBlockGzip(compressedFile));
+        assertDecompressesToContent(4);
+    }
+
+    @Test
+    public void testBlockGzipIsInflatedInParallel() throws IOException {
+        compressedFile = File.createTempFile("compression", ".bgz");
+        try (OutputStream out = new FileOutputStream(compressedFile)) {
+            for (int start = 0; start < content.length; start += 60000) {
+                writeBlockGzipMember(out, Arrays.copyOfRange(content, start, Math.min(content.length, start + 60000)));
+            }
+            // end of file marker
+            writeBlockGzipMember(out, new byte[0]);
+        }
+        assertEquals(CSVInputCompression.GZIP, CSVInputCompression.detect(compressedFile));
+        assertTrue(BlockGzipInputStream.isBlockGzip(compressedFile));
+        try (InputStream in = CSVInputCompression.GZIP.open(compressedFile, 4)) {
+            assertTrue(in instanceof BlockGzipInputStream);
+        }
+        assertDecompressesToContent(4);
+        assertDecompressesToContent(1);
+    }
+
+    @Test
+    public void testZstd() throws IOException {
+        compressedFile = File.createTempFile("compression", ".csv.zst");
+        try (OutputStream out = new ZstdOutputStream(new FileOutputStream(compressedFile))) {
+            out.write(content);
+        }
+        assertEquals(CSVInputCompression.ZSTD, CSVInputCompression.detect(compressedFile));
+        assertDecompressesToContent(1);
+    }
+
+    @Test
+    public void testDetectIgnoresExtensionOfLongerFiles() throws IOException {
+        assertEquals(CSVInputCompression.NONE, CSVInputCompression.detect(plainFile));
+        compressedFile = File.createTempFile("compression", ".csv.gz");
+        Files.write(compressedFile.toPath(), content);
+        assertEquals(CSVInputCompression.NONE, CSVInputCompression.detect(compressedFile));
+    }
+
+    private void assertDecompressesToContent(int parallelism) throws IOException {
+        try (InputStream in = CSVInputCompression.detect(compressedFile).open(compressedFile, parallelism)) {
+            assertArrayEquals(content, IOUtils.toByteArray(in));
+        }
+        CSVRecordIndex expected = CSVRecordIndex.scan(plainFile);
+        CSVRecordIndex index;
+        try (InputStream in = CSVInputCompression.detect(compressedFile).open(compressedFile, 1)) {
+            index = CSVRecordIndex.scan(compressedFile, in);
+        }
+        assertEquals(expected.getTotalRows(), index.getTotalRows());
+        assertEquals(expected.getCheckpointCount(), index.getCheckpointCount());
+        int row = expected.getTotalRows() - 3;
+        try (InputStream in = CSVInputCompression.detect(compressedFile).open(compressedFile, 1)) {
+            assertEquals(expected.getRowOffset(plainFile, row), index.getRowOffset(in, row));
+        }
+    }
+
+    private static void writeGzipMember(OutputStream out, byte[] data) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+            gzip.write(data);
+        }
+        member.writeTo(out);
+    }
+
+    private static void writeBlockGzipMember(OutputStream out, byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        byte[] deflated = new byte[data.length + 1024];
+        int deflatedLength;
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            deflatedLength = deflater.deflate(deflated);
+            assertTrue(deflater.finished());
+        } finally {
+            deflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer member = ByteBuffer.allocate(18 + deflatedLength + 8).order(ByteOrder.LITTLE_ENDIAN);
+        member.put((byte) 0x1F).put((byte) 0x8B).put((byte) 8).put((byte) 4).putInt(0).put((byte) 0).put((byte) 0xFF);
+        member.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2);
+        member.putShort((short) (member.capacity() - 1));
+        member.put(deflated, 0, deflatedLength);
+        member.putInt((int) crc.getValue()).putInt(data.length);
+        out.write(member.array());
+    }
+}
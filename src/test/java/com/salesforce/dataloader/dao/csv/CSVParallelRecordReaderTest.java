@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sforce.async.CSVReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CSVParallelRecordReaderTest {
+
+    private static final char[] DELIMITERS = {','};
+    private File csvFile;
+
+    @Before
+    public void createFile() throws IOException {
+        csvFile = File.createTempFile("parallelRead", ".csv");
+        StringBuilder content = new StringBuilder("\uFEFFid,name,description\r\n");
+        for (int i = 0; i < 500; i++) {
+            content.append(i).append(",name ").append(i).append(',');
+            switch (i % 5) {
+            case 0:
+                content.append("\"multi\r\nline, with \"\"quotes\"\"\"");
+                break;
+            case 1:
+                content.append("\"\"");
+                break;
+            case 2:
+                content.append("caf\u00e9 \u65e5\u672c");
+                break;
+            case 3:
+                content.append("\"a\nb\rc\"\n\n");
+                break;
+            default:
+                content.append("plain");
+            }
+            content.append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        content.append("last,row,without line break");
+        Files.write(csvFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void deleteFile() {
+        csvFile.delete();
+    }
+
+    @Test
+    public void testRecordsMatchSequentialReader() throws Exception {
+        List<List<String>> expected = readSequentially();
+        for (int chunkSize : new int[] {1, 7, 64, 1000, CSVParallelRecordReader.DEFAULT_CHUNK_SIZE}) {
+            try (CSVParallelRecordReader reader = new CSVParallelRecordReader(csvFile, StandardCharsets.UTF_8,
+                    DELIMITERS, 4, chunkSize)) {
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals("record " + i + " with chunk size " + chunkSize, expected.get(i), reader.nextRecord());
+                }
+                assertNull(reader.nextRecord());
+            }
+        }
+    }
+
+    private List<List<String>> readSequentially() throws IOException {
+        List<List<String>> records = new ArrayList<List<String>>();
+        try (FileInputStream in = new FileInputStream(csvFile)) {
+            // skip the BOM, the sequential CSV reader leaves that to BOMInputStream
+            in.skip(3);
+            CSVReader csvReader = new CSVReader(in, StandardCharsets.UTF_8.name(), DELIMITERS.clone());
+            csvReader.setMaxRowsInFile(Integer.MAX_VALUE);
+            for (List<String> record = csvReader.nextRecord(); record != null; record = csvReader.nextRecord()) {
+                records.add(record);
+            }
+        }
+        assertEquals(502, records.size());
+        return records;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CSVRecordIndexTest {
+
+    private File csvFile;
+
+    @Before
+    public void createFile() throws IOException {
+        csvFile = File.createTempFile("recordIndex", ".csv");
+        StringBuilder content = new StringBuilder("id,description\r\n\r\n");
+        for (int i = 0; i < 3000; i++) {
+            content.append(i).append(',');
+            if (i % 3 == 0) {
+                content.append("\"quoted\r\nline break, \"\"and quotes\"\"\"");
+            } else if (i % 3 == 1) {
+                content.append("\"\"");
+            } else {
+                content.append("plain\n\"\"");
+            }
+            content.append("\n");
+        }
+        content.append("3000,no line break");
+        Files.write(csvFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void deleteFiles() {
+        CSVRecordIndex.getIndexFile(csvFile).delete();
+        csvFile.delete();
+    }
+
+    @Test
+    public void testScanCountsRecordsAndCheckpoints() throws Exception {
+        CSVRecordIndex index = CSVRecordIndex.scan(csvFile);
+        assertEquals(3001, index.getTotalRows());
+        assertEquals(3, index.getCheckpointCount());
+        String content = new String(Files.readAllBytes(csvFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.startsWith("0,", (int) index.getCheckpoint(0)));
+        assertTrue(content.startsWith(CSVRecordIndex.CHECKPOINT_INTERVAL + ",", (int) index.getCheckpoint(1)));
+        assertTrue(content.startsWith(2 * CSVRecordIndex.CHECKPOINT_INTERVAL + ",", (int) index.getCheckpoint(2)));
+    }
+
+    @Test
+    public void testSavedIndexIsOnlyUsedForUnchangedFile() throws Exception {
+        assertNull(CSVRecordIndex.load(csvFile));
+        CSVRecordIndex.scan(csvFile).save(csvFile);
+        CSVRecordIndex loaded = CSVRecordIndex.load(csvFile);
+        assertNotNull(loaded);
+        assertEquals(3001, loaded.getTotalRows());
+        assertEquals(3, loaded.getCheckpointCount());
+
+        Files.write(csvFile.toPath(), "id\n1\n".getBytes(StandardCharsets.UTF_8));
+        assertNull(CSVRecordIndex.load(csvFile));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CSVRecordWriterTest {
+
+    private static final String EOL = System.lineSeparator();
+
+    @Test
+    public void testQuotesOnlyWhenNeeded() throws IOException {
+        assertEquals("plain,,with space ,\"a,b\",\"say \"\"hi\"\"\",\"x\ny\"" + EOL,
+                write(StandardCharsets.UTF_8, ',', false, 64,
+                        Arrays.asList("plain", null, "with space ", "a,b", "say \"hi\"", "x\ny")));
+        assertEquals("a,b\t\"c\td\"" + EOL, write(StandardCharsets.UTF_8, '\t', false, 64, Arrays.asList("a,b", "c\td")));
+    }
+
+    @Test
+    public void testEscapesFormulaValues() throws IOException {
+        assertEquals("'=1+1,\"'=A1,\"\"B\"\"\",a=b" + EOL,
+                write(StandardCharsets.UTF_8, ',', true, 64, Arrays.asList("=1+1", "=A1,\"B\"", "a=b")));
+        assertEquals("=1+1" + EOL, write(StandardCharsets.UTF_8, ',', false, 64, Arrays.asList("=1+1")));
+    }
+
+    @Test
+    public void testRecordsSpanningBuffersReadBack() throws IOException {
+        List<List<String>> records = new ArrayList<List<String>>();
+        for (int i = 0; i < 500; i++) {
+            records.add(Arrays.asList(String.valueOf(i), "caf\u00E9 \uD83D\uDE00 \u65E5\u672C",
+                    i % 2 == 0 ? "multi\nline \"quoted\"" : "plain, with comma"));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // line breaks in quotes are read as LF, a tiny buffer splits values and surrogate pairs across encodings
+        try (CSVRecordWriter writer = new CSVRecordWriter(Channels.newChannel(out), StandardCharsets.UTF_8, ',',
+                false, 7)) {
+            for (List<String> record : records) {
+                for (String value : record) {
+                    writer.writeValue(value);
+                }
+                writer.endRecord();
+            }
+        }
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(new ByteArrayInputStream(out.toByteArray()),
+                StandardCharsets.UTF_8, new char[] {','}, false);
+        for (List<String> record : records) {
+            assertEquals(record, new ArrayList<String>(tokenizer.nextRecord()));
+        }
+        assertEquals(null, tokenizer.nextRecord());
+    }
+
+    @Test
+    public void testReplacesUnmappableCharacters() throws IOException {
+        assertEquals("caf\u00E9 ?" + EOL,
+                write(Charset.forName("ISO-8859-1"), ',', false, 64, Arrays.asList("caf\u00E9 \u65E5")));
+    }
+
+    private static String write(Charset charset, char delimiter, boolean escapeFormulaValue, int bufferSize,
+            List<String> values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CSVRecordWriter writer = new CSVRecordWriter(Channels.newChannel(out), charset, delimiter,
+                escapeFormulaValue, bufferSize)) {
+            for (String value : values) {
+                writer.writeValue(value);
+            }
+            writer.endRecord();
+        }
+        return new String(out.toByteArray(), charset);
+    }
+}
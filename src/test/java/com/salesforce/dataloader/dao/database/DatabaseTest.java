@@ -26,7 +26,10 @@
 package com.salesforce.dataloader.dao.database;
 
 import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.LastRun;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.dao.DataReader;
 import com.salesforce.dataloader.dao.database.DatabaseTestUtil.DateType;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.model.Row;
@@ -37,15 +40,22 @@ import org.apache.logging.log4j.LogManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -98,6 +108,387 @@ public class DatabaseTest extends ConfigTestBase {
         verifyDbInsertOrUpdate(getController(), false, true);
     }
 
+    @Test
+    public void testDatabaseSeekToRow() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            List<Row> allRows = reader.readRowList(NUM_ROWS);
+            assertEquals(NUM_ROWS, allRows.size());
+
+            assertTrue(reader.seekToRow(4));
+            assertEquals(4, reader.getCurrentRowNumber());
+            Row row = reader.readRow();
+            assertEquals(allRows.get(4).get(DatabaseTestUtil.EXT_ID_COL), row.get(DatabaseTestUtil.EXT_ID_COL));
+            assertEquals(5, reader.getCurrentRowNumber());
+            assertEquals(NUM_ROWS - 5, reader.readRowList(NUM_ROWS).size());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseTotalRows() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+        getController().getConfig().setValue(Config.DAO_SKIP_TOTAL_COUNT, false);
+
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            Row first = reader.readRow();
+            // counted by the database, the rows being read stay where they are
+            assertEquals(NUM_ROWS, reader.getTotalRows());
+            assertEquals(1, reader.getCurrentRowNumber());
+            assertEquals(NUM_ROWS - 1, reader.readRowList(NUM_ROWS).size());
+            assertNotNull(first);
+        } finally {
+            reader.close();
+        }
+
+        // the configured count query is used instead of counting the rows of the query
+        reader = new DatabaseReader(getController().getConfig(), "queryAccountCounted");
+        try {
+            reader.open();
+            assertEquals(NUM_ROWS - 1, reader.getTotalRows());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseWriteRowByRowAfterFailedBatch() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        // the failed batch is rolled back to a savepoint, keeping the rows written before
+        sqlConfig.setCommitRows(NUM_ROWS * 2);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        try {
+            writer.open();
+            List<Row> rows = new ArrayList<Row>();
+            for (int i = 0; i < NUM_ROWS; i++) {
+                rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DateType.CALENDAR));
+            }
+            assertTrue(writer.writeRowList(rows.subList(0, 2)));
+            // too long for the column
+            rows.get(5).put(DatabaseTestUtil.NAME_COL, String.format("%0101d", 5));
+            assertFalse(writer.writeRowList(rows.subList(2, NUM_ROWS)));
+            assertEquals(Collections.singleton(3), writer.getRowErrors().keySet());
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            assertEquals(NUM_ROWS - 1, reader.readRowList(NUM_ROWS).size());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseBulkImport() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setBulkImport(true);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        try {
+            writer.open();
+            List<Row> rows = new ArrayList<Row>();
+            for (int i = 0; i < NUM_ROWS; i++) {
+                rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DateType.CALENDAR));
+            }
+            rows.get(1).put(DatabaseTestUtil.NAME_COL, "name, with \"quotes\"");
+            rows.get(2).put(DatabaseTestUtil.PHONE_COL, null);
+            assertTrue(writer.writeRowList(rows.subList(0, NUM_ROWS / 2)));
+            // the batch that fails to import is written through the prepared statement
+            rows.get(7).put(DatabaseTestUtil.NAME_COL, String.format("%0101d", 7));
+            assertFalse(writer.writeRowList(rows.subList(NUM_ROWS / 2, NUM_ROWS)));
+            assertEquals(Collections.singleton(7 - NUM_ROWS / 2), writer.getRowErrors().keySet());
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            List<Row> readRows = reader.readRowList(NUM_ROWS);
+            assertEquals(NUM_ROWS - 1, readRows.size());
+            assertEquals("name, with \"quotes\"", readRows.get(1).get(DatabaseTestUtil.NAME_COL));
+            assertNull(readRows.get(2).get(DatabaseTestUtil.PHONE_COL));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseBulkImportDisabledAfterImportFails() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        // CSVREAD needs admin rights, the rows can still be inserted
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dbConfig.getDataSource());
+        jdbcTemplate.execute("CREATE USER IF NOT EXISTS BULKIMPORTTEST PASSWORD 'bulkimporttest'");
+        jdbcTemplate.execute("GRANT SELECT, INSERT ON DATALOADER TO BULKIMPORTTEST");
+
+        dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        dbConfig.getDataSource().setUsername("BULKIMPORTTEST");
+        dbConfig.getDataSource().setPassword("bulkimporttest");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setBulkImport(true);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        List<Row> rows = getInsertAccountRows(2 * NUM_ROWS);
+        try {
+            writer.open();
+            assertTrue(writer.isBulkImport());
+            // written as a batch of the statement once the import fails
+            assertTrue(writer.writeRowList(rows.subList(0, NUM_ROWS)));
+            assertTrue(writer.getRowErrors().isEmpty());
+            assertFalse(writer.isBulkImport());
+            assertTrue(writer.writeRowList(rows.subList(NUM_ROWS, 2 * NUM_ROWS)));
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+        assertEquals(2 * NUM_ROWS, countAccountsDb());
+    }
+
+    @Test
+    public void testDatabasePipelinedWrite() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setPipelineBatches(true);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        List<Row> rows = getInsertAccountRows(3 * NUM_ROWS);
+        // too long for the column
+        rows.get(NUM_ROWS + 3).put(DatabaseTestUtil.NAME_COL, String.format("%0101d", 3));
+        try {
+            writer.open();
+            List<Row> batch = new ArrayList<Row>();
+            for (int i = 0; i < rows.size(); i += NUM_ROWS) {
+                if (i > 0) {
+                    // the batch written before is done once finished, only its row too long for the column failed
+                    boolean failedBatch = i == 2 * NUM_ROWS;
+                    assertEquals(!failedBatch, writer.finishBatch());
+                    assertEquals(failedBatch ? Collections.singleton(3) : Collections.<Integer>emptySet(),
+                            writer.getRowErrors().keySet());
+                }
+                // the writer keeps its own copy of the list of a batch being executed
+                batch.clear();
+                batch.addAll(rows.subList(i, i + NUM_ROWS));
+                // the rows are executed on a background thread, their errors are not known yet
+                assertTrue(writer.writeRowList(batch));
+                assertTrue(writer.getRowErrors().isEmpty());
+            }
+            assertTrue(writer.finishBatch());
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+        // the failed batch was written row by row
+        assertEquals(3 * NUM_ROWS - 1, countAccountsDb());
+    }
+
+    @Test
+    public void testDatabaseCommitRows() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setCommitRows(NUM_ROWS + NUM_ROWS / 2);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        List<Row> rows = getInsertAccountRows(3 * NUM_ROWS);
+        try {
+            writer.open();
+            assertTrue(writer.writeRowList(rows.subList(0, NUM_ROWS)));
+            assertEquals(0, countAccountsDb());
+            assertTrue(writer.writeRowList(rows.subList(NUM_ROWS, 2 * NUM_ROWS)));
+            assertEquals(2 * NUM_ROWS, countAccountsDb());
+            assertTrue(writer.writeRowList(rows.subList(2 * NUM_ROWS, 3 * NUM_ROWS)));
+            assertEquals(2 * NUM_ROWS, countAccountsDb());
+            // the rest is committed when the writer is finished
+            writer.finish();
+            assertEquals(3 * NUM_ROWS, countAccountsDb());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseCommitBytes() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setCommitBytes(Long.MAX_VALUE);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        List<Row> rows = getInsertAccountRows(2 * NUM_ROWS);
+        try {
+            writer.open();
+            assertTrue(writer.writeRowList(rows.subList(0, NUM_ROWS)));
+            assertEquals(0, countAccountsDb());
+            writer.finish();
+            assertEquals(NUM_ROWS, countAccountsDb());
+        } finally {
+            writer.close();
+        }
+
+        // any row is past the size
+        sqlConfig.setCommitBytes(1);
+        writer = new DatabaseWriter(getController().getConfig(), "insertAccount", dbConfig.getDataSource(),
+                sqlConfig);
+        try {
+            writer.open();
+            assertTrue(writer.writeRowList(rows.subList(NUM_ROWS, 2 * NUM_ROWS)));
+            assertEquals(2 * NUM_ROWS, countAccountsDb());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseCommitIntervalMillis() throws Exception {
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setCommitIntervalMillis(60 * 60 * 1000L);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        List<Row> rows = getInsertAccountRows(2 * NUM_ROWS);
+        try {
+            writer.open();
+            assertTrue(writer.writeRowList(rows.subList(0, NUM_ROWS)));
+            assertEquals(0, countAccountsDb());
+            writer.finish();
+            assertEquals(NUM_ROWS, countAccountsDb());
+        } finally {
+            writer.close();
+        }
+
+        sqlConfig.setCommitIntervalMillis(1);
+        writer = new DatabaseWriter(getController().getConfig(), "insertAccount", dbConfig.getDataSource(),
+                sqlConfig);
+        try {
+            writer.open();
+            Thread.sleep(10);
+            assertTrue(writer.writeRowList(rows.subList(NUM_ROWS, 2 * NUM_ROWS)));
+            assertEquals(2 * NUM_ROWS, countAccountsDb());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseRewriteBatchedStatements() throws Exception {
+        assertEquals("rewriteBatchedStatements",
+                DatabaseDialect.forUrl("jdbc:mysql://localhost/db").getBatchRewriteProperty());
+        assertEquals("reWriteBatchedInserts",
+                DatabaseDialect.forUrl("jdbc:postgresql://localhost/db").getBatchRewriteProperty());
+        assertNull(DatabaseDialect.forUrl("jdbc:h2:./target/h2").getBatchRewriteProperty());
+
+        // a driver without the property writes the batches as they are
+        DatabaseConfig dbConfig = DatabaseTestUtil.getDatabaseConfig(getController(), "insertAccount");
+        SqlConfig sqlConfig = dbConfig.getSqlConfig();
+        sqlConfig.setRewriteBatchedStatements(true);
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount",
+                dbConfig.getDataSource(), sqlConfig);
+        try {
+            writer.open();
+            assertTrue(writer.writeRowList(getInsertAccountRows(NUM_ROWS)));
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+        assertEquals(NUM_ROWS, countAccountsDb());
+    }
+
+    @Test
+    public void testDatabaseWriteLeavesRowsUnchanged() throws Exception {
+        DatabaseWriter writer = new DatabaseWriter(getController().getConfig(), "insertAccount");
+        try {
+            writer.open();
+            Row row = DatabaseTestUtil.getInsertOrUpdateAccountRow(true, 0, DateType.STRING);
+            Map<String, Object> expected = new HashMap<String, Object>(row);
+            assertTrue(writer.writeRow(row));
+            writer.finish();
+            // parameter values are converted while binding, not written back into the row
+            assertEquals(expected, new HashMap<String, Object>(row));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseStreamResults() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountStreamed");
+        try {
+            reader.open();
+            // more rows per read than per fetch
+            assertEquals(NUM_ROWS, reader.readRowList(NUM_ROWS).size());
+            assertEquals(NUM_ROWS, reader.getCurrentRowNumber());
+            assertEquals(0, reader.readRowList(NUM_ROWS).size());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testDatabasePartitionedRead() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+        getController().getConfig().setValue(Config.DAO_NAME, "queryAccountPartitioned");
+
+        DataReader reader = DatabaseReader.getReader(getController().getConfig());
+        try {
+            reader.open();
+            List<Row> allRows = reader.readRowList(NUM_ROWS + 1);
+            assertEquals(NUM_ROWS, allRows.size());
+            // one partition after the other
+            assertEquals("1-000000", allRows.get(0).get(DatabaseTestUtil.EXT_ID_COL));
+            assertEquals("1-000009", allRows.get(NUM_ROWS - 1).get(DatabaseTestUtil.EXT_ID_COL));
+            // the rows read from each partition, all of them read to their end, are kept for the next run
+            int partitionRows = 0;
+            for (String rows : getController().getConfig().getStrings(LastRun.LAST_LOAD_PARTITION_ROWS)) {
+                partitionRows += Integer.parseInt(rows);
+            }
+            assertEquals(NUM_ROWS, partitionRows);
+
+            // resumes in the middle of the second partition
+            assertTrue(reader.seekToRow(5));
+            assertEquals(5, reader.getCurrentRowNumber());
+            assertEquals(allRows.get(5).get(DatabaseTestUtil.EXT_ID_COL),
+                    reader.readRow().get(DatabaseTestUtil.EXT_ID_COL));
+            assertEquals(NUM_ROWS - 6, reader.readRowList(NUM_ROWS).size());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseReadColumnsToRead() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            Row first = reader.readRow();
+            // the columns are resolved again for the new selection
+            reader.setColumnsToRead(Arrays.asList(DatabaseTestUtil.REVENUE_COL, DatabaseTestUtil.EXT_ID_COL));
+            Row second = reader.readRow();
+            assertEquals(2, second.size());
+            assertTrue(second.get(DatabaseTestUtil.REVENUE_COL) instanceof BigDecimal);
+            assertNotNull(second.get(DatabaseTestUtil.EXT_ID_COL));
+            assertFalse(second.get(DatabaseTestUtil.EXT_ID_COL).equals(first.get(DatabaseTestUtil.EXT_ID_COL)));
+            assertEquals(NUM_ROWS - 2, reader.readRowBatch(NUM_ROWS).size());
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void testDatabaseDateMappingDate() throws Exception {
         doTestDatabaseDateMapping(DatabaseTestUtil.DateType.DATE, true);
@@ -173,6 +564,27 @@ public class DatabaseTest extends ConfigTestBase {
         }
     }
 
+    private static List<Row> getInsertAccountRows(int numRows) {
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = 0; i < numRows; i++) {
+            rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DateType.CALENDAR));
+        }
+        return rows;
+    }
+
+    /**
+     * @return the number of accounts committed, read through a connection of its own
+     */
+    private int countAccountsDb() throws Exception {
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            return reader.readRowList(100 * NUM_ROWS).size();
+        } finally {
+            reader.close();
+        }
+    }
+
     private static void verifyCol(String colName, Row row, Row expectedRow) {
         Object actualValue = row.get(colName);
         Object expectedValue = expectedRow.get(colName);
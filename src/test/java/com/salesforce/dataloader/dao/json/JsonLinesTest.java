@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.json;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.exception.DataAccessRowException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JsonLinesTest {
+
+    private static final int ROWS = 5000;
+
+    @Test
+    public void testWriteNestedColumns() throws Exception {
+        File f = writeFile();
+        List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        assertEquals(ROWS, lines.size());
+        assertEquals("{\"Id\":\"id1\",\"Name\":\"na\\\"me\\n1\",\"Account\":{\"Name\":\"acc1\",\"Owner\":{\"Email\":\"e1\"}},"
+                + "\"Amount\":1.25,\"Closed\":false}", lines.get(1));
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        doTestRead(0);
+    }
+
+    @Test
+    public void testParallelRead() throws Exception {
+        doTestRead(3);
+    }
+
+    private void doTestRead(int parallelism) throws Exception {
+        File f = writeFile();
+        Files.write(f.toPath(), "\n  \n{\"Id\":\"last\"}\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        // small chunks so that rows are read from many of them
+        JsonLinesFileReader reader = new JsonLinesFileReader(f, parallelism, 1000);
+        try {
+            reader.open();
+            assertEquals(Arrays.asList("Id", "Name", "Account.Name", "Account.Owner.Email", "Amount", "Closed"),
+                    reader.getColumnNames());
+            assertEquals(ROWS + 1, reader.getTotalRows());
+
+            Row first = reader.readRow();
+            assertEquals("e0", first.get("Account.Owner.Email"));
+            assertNull(first.get("Name"));
+            assertEquals("0.25", first.get("Amount"));
+            assertEquals("true", first.get("Closed"));
+
+            int rowNumber = 1;
+            for (RowBatch batch = reader.readRowBatch(333); !batch.isEmpty(); batch = reader.readRowBatch(333)) {
+                int idSlot = batch.getSchema().indexOf("Id");
+                for (int i = 0; i < batch.size(); i++, rowNumber++) {
+                    assertEquals(rowNumber == ROWS ? "last" : "id" + rowNumber, batch.getValue(i, idSlot));
+                }
+            }
+            assertEquals(ROWS + 1, rowNumber);
+
+            reader.setColumnsToRead(Arrays.asList("name"));
+            assertEquals(true, reader.seekToRow(4097));
+            Row row = reader.readRow();
+            assertEquals("na\"me\n4097", row.get("Name"));
+            assertNull(row.get("Id"));
+            assertEquals(4098, reader.getCurrentRowNumber());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testMalformedRow() throws Exception {
+        File f = File.createTempFile("jsonLines", ".jsonl");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "{\"Id\":\"1\"}\n{bad\n{\"Id\":\"3\"}\n".getBytes(StandardCharsets.UTF_8));
+        JsonLinesFileReader reader = new JsonLinesFileReader(f, 0, JsonLinesFileReader.DEFAULT_CHUNK_SIZE);
+        try {
+            assertEquals("1", reader.readRow().get("Id"));
+            try {
+                reader.readRow();
+                fail("the malformed row was read");
+            } catch (DataAccessRowException e) {
+                // expected
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSeekToEnd() throws Exception {
+        // no row starts at the offset past the last row
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 2 * JsonLinesFileReader.INDEX_INTERVAL; i++) {
+            lines.append("{\"Id\":\"").append(i).append("\"}\n");
+        }
+        File f = File.createTempFile("jsonLines", ".jsonl");
+        f.deleteOnExit();
+        Files.write(f.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+        JsonLinesFileReader reader = new JsonLinesFileReader(f, 0, 1000);
+        try {
+            reader.open();
+            assertEquals(2 * JsonLinesFileReader.INDEX_INTERVAL, reader.getTotalRows());
+            assertEquals(true, reader.seekToRow(2 * JsonLinesFileReader.INDEX_INTERVAL));
+            assertNull(reader.readRow());
+            assertEquals(2 * JsonLinesFileReader.INDEX_INTERVAL, reader.getCurrentRowNumber());
+
+            assertEquals(true, reader.seekToRow(JsonLinesFileReader.INDEX_INTERVAL));
+            assertEquals(String.valueOf(JsonLinesFileReader.INDEX_INTERVAL), reader.readRow().get("Id"));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testColumnAfterSchemaSample() throws Exception {
+        File f = writeLines(lateColumnLines(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS));
+        JsonLinesFileReader reader = new JsonLinesFileReader(f, 2, 1024);
+        try {
+            reader.open();
+            assertEquals(Arrays.asList("Id"), reader.getColumnNames());
+            RowBatch batch = reader.readRowBatch(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS + 10);
+            assertEquals(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS + 3, batch.size());
+            assertEquals(Arrays.asList("Id", "Late", "Account.Name"), batch.getSchema().getColumnNames());
+            assertEquals(Arrays.asList("Id", "Late", "Account.Name"), reader.getColumnNames());
+            assertNull(batch.getValue(0, 1));
+            assertEquals("value", batch.getValue(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS, 1));
+            assertEquals("[1,2]", batch.getValue(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS + 1, 1));
+            assertEquals("acc", batch.getValue(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS + 2, 2));
+
+            reader.seekToRow(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS);
+            assertEquals("value", reader.readRow().get("late"));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testColumnAfterSchemaSampleNotRead() throws Exception {
+        File f = writeLines(lateColumnLines(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS));
+        JsonLinesFileReader reader = new JsonLinesFileReader(f, 0, JsonLinesFileReader.DEFAULT_CHUNK_SIZE);
+        try {
+            reader.open();
+            reader.setColumnsToRead(Arrays.asList("Id", "Account.Name"));
+            List<Row> rows = reader.readRowList(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS + 10);
+            assertEquals(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS + 3, rows.size());
+            assertEquals(Arrays.asList("Id", "Account.Name"), rows.get(rows.size() - 1).getSchema().getColumnNames());
+            assertEquals("acc", rows.get(rows.size() - 1).get("Account.Name"));
+            assertFalse(rows.get(JsonLinesFileReader.SCHEMA_SAMPLE_ROWS).containsKey("Late"));
+            assertEquals(Arrays.asList("Id", "Account.Name"), reader.getColumnNames());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSchemaSampleStopsAtParseError() throws Exception {
+        File f = writeLines("{\"Id\":\"1\"}\n{\"Id\":\n{\"Id\":\"3\",\"Name\":\"x\"}\n");
+        JsonLinesFileReader reader = new JsonLinesFileReader(f, 0, JsonLinesFileReader.DEFAULT_CHUNK_SIZE);
+        try {
+            reader.open();
+            assertEquals(Arrays.asList("Id"), reader.getColumnNames());
+            assertEquals("1", reader.readRow().get("Id"));
+            try {
+                reader.readRow();
+                fail("the line that is not a JSON object was read");
+            } catch (DataAccessRowException e) {
+                // expected
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String lateColumnLines(int rows) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            lines.append("{\"Id\":\"").append(i).append("\"}\n");
+        }
+        lines.append("{\"Id\":\"late\",\"Late\":\"value\"}\n");
+        lines.append("{\"Id\":\"array\",\"Late\":[1,2]}\n");
+        lines.append("{\"Id\":\"nested\",\"Account\":{\"Name\":\"acc\"}}\n");
+        return lines.toString();
+    }
+
+    private static File writeLines(String lines) throws Exception {
+        File f = File.createTempFile("jsonLines", ".jsonl");
+        f.deleteOnExit();
+        Files.write(f.toPath(), lines.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    private static File writeFile() throws Exception {
+        File f = File.createTempFile("jsonLines", ".jsonl");
+        f.deleteOnExit();
+        JsonLinesFileWriter writer = new JsonLinesFileWriter(f.getAbsolutePath());
+        try {
+            writer.open();
+            writer.setColumnNames(Arrays.asList("Id", "Name", "Account.Name", "Account.Owner.Email", "Amount", "Closed"));
+            for (int i = 0; i < ROWS; i++) {
+                Row row = new Row();
+                row.put("Id", "id" + i);
+                row.put("Name", i % 3 == 0 ? null : "na\"me\n" + i);
+                row.put("Account.Name", "acc" + i);
+                row.put("Account.Owner.Email", "e" + i);
+                row.put("Amount", new BigDecimal(i + ".25"));
+                row.put("Closed", i % 2 == 0);
+                writer.writeRow(row);
+            }
+        } finally {
+            writer.close();
+        }
+        return f;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParquetColumnTypeTest {
+
+    @Test
+    public void testForFieldType() {
+        assertEquals(ParquetColumnType.STRING, ParquetColumnType.forFieldType(null));
+        assertEquals(ParquetColumnType.STRING, ParquetColumnType.forFieldType(FieldType.picklist));
+        assertEquals(ParquetColumnType.BOOLEAN, ParquetColumnType.forFieldType(FieldType._boolean));
+        assertEquals(ParquetColumnType.DOUBLE, ParquetColumnType.forFieldType(FieldType._double));
+        assertEquals(ParquetColumnType.DECIMAL, ParquetColumnType.forFieldType(FieldType.currency));
+        assertEquals(ParquetColumnType.DECIMAL, ParquetColumnType.forFieldType(FieldType.percent));
+        assertEquals(ParquetColumnType.TIMESTAMP, ParquetColumnType.forFieldType(FieldType.datetime));
+    }
+
+    @Test
+    public void testConvertValues() {
+        assertEquals(Boolean.TRUE, ParquetColumnType.BOOLEAN.convert("true", 0, 0));
+        assertEquals(12, ParquetColumnType.INT.convert("12.0", 0, 0));
+        assertEquals(12L, ParquetColumnType.LONG.convert(12, 0, 0));
+        assertEquals(1.5, ParquetColumnType.DOUBLE.convert("1.5", 0, 0));
+        assertEquals((int)LocalDate.of(2023, 1, 31).toEpochDay(), ParquetColumnType.DATE.convert("2023-01-31", 0, 0));
+
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+        calendar.setTimeInMillis(1675159200000L);
+        assertEquals(1675159200000L, ParquetColumnType.TIMESTAMP.convert(calendar, 0, 0));
+        assertEquals(1675159200000L, ParquetColumnType.TIMESTAMP.convert("2023-01-31T10:00:00.000Z", 0, 0));
+        assertEquals(1675159200000L, ParquetColumnType.TIMESTAMP.convert("2023-01-31T10:00:00.000+0000", 0, 0));
+    }
+
+    @Test
+    public void testConvertDecimal() {
+        assertEquals(12345L, ParquetColumnType.DECIMAL.convert("123.45", 18, 2));
+        assertEquals(12350L, ParquetColumnType.DECIMAL.convert("123.5", 18, 2));
+        assertEquals(12346L, ParquetColumnType.DECIMAL.convert(123.456, 18, 2));
+        assertEquals(-150L, ParquetColumnType.DECIMAL.convert("-1.5", 5, 2));
+    }
+
+    @Test
+    public void testPrecisionAndScaleOfField() {
+        Field field = new Field();
+        field.setType(FieldType.currency);
+        field.setPrecision(10);
+        field.setScale(2);
+        assertEquals(10, ParquetColumnType.precisionOf(field));
+        assertEquals(2, ParquetColumnType.scaleOf(field));
+
+        // precisions an INT64 cannot hold are capped
+        field.setPrecision(0);
+        assertEquals(ParquetColumnType.MAX_DECIMAL_PRECISION, ParquetColumnType.precisionOf(field));
+        field.setPrecision(38);
+        assertEquals(ParquetColumnType.MAX_DECIMAL_PRECISION, ParquetColumnType.precisionOf(field));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testConvertDecimalOutOfRange() {
+        ParquetColumnType.DECIMAL.convert("1234.5", 5, 2);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testConvertIntOutOfRange() {
+        ParquetColumnType.INT.convert("3000000000", 0, 0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testConvertInvalidNumber() {
+        ParquetColumnType.LONG.convert("abc", 0, 0);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dao.parquet;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ParquetDaoTest extends ConfigTestBase {
+
+    private static final int ROWS = 1000;
+
+    @Test
+    public void testWriteAndReadTypedColumns() throws Exception {
+        File f = File.createTempFile("parquetDao", ".parquet");
+        f.deleteOnExit();
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_NAME, f.getAbsolutePath());
+        config.setValue(Config.DAO_PARQUET_ROW_GROUP_SIZE, 4096);
+
+        ParquetDataWriter writer = new ParquetDataWriter(config);
+        Map<String, Field> fields = new HashMap<String, Field>();
+        fields.put("AMOUNT", field(FieldType.currency, 18, 2));
+        fields.put("CLOSED", field(FieldType._boolean, 0, 0));
+        fields.put("CLOSEDATE", field(FieldType.date, 0, 0));
+        fields.put("CREATEDDATE", field(FieldType.datetime, 0, 0));
+        writer.setColumnFields(fields);
+        writer.open();
+        writer.setColumnNames(Arrays.asList("NAME", "AMOUNT", "CLOSED", "CLOSEDATE", "CREATEDDATE"));
+        for (int i = 0; i < ROWS; i++) {
+            Row row = new Row();
+            row.put("NAME", i % 10 == 0 ? "" : "name" + (i % 7));
+            row.put("AMOUNT", String.valueOf(i) + ".5");
+            row.put("CLOSED", i % 2 == 0 ? "true" : "false");
+            row.put("CLOSEDATE", "2023-01-31");
+            row.put("CREATEDDATE", "2023-01-31T10:00:00.000Z");
+            writer.writeRow(row);
+        }
+        writer.finish();
+        writer.close();
+
+        ParquetDataReader reader = new ParquetDataReader(config);
+        try {
+            reader.open();
+            assertEquals(ROWS, reader.getTotalRows());
+            assertEquals(Arrays.asList("NAME", "AMOUNT", "CLOSED", "CLOSEDATE", "CREATEDDATE"), reader.getColumnNames());
+
+            Row first = reader.readRow();
+            assertNull(first.get("NAME"));
+            // currency is a decimal with the scale of the field
+            assertEquals(new BigDecimal("0.50"), first.get("AMOUNT"));
+            assertEquals(Boolean.TRUE, first.get("CLOSED"));
+            assertEquals(Date.valueOf("2023-01-31"), first.get("CLOSEDATE"));
+            assertEquals(1675159200000L, ((Timestamp)first.get("CREATEDDATE")).getTime());
+
+            // rows are handed out in file order across row groups
+            int rowNumber = 1;
+            for (RowBatch batch = reader.readRowBatch(100); !batch.isEmpty(); batch = reader.readRowBatch(100)) {
+                for (int i = 0; i < batch.size(); i++, rowNumber++) {
+                    assertEquals(new BigDecimal(rowNumber + ".50"), batch.getValue(i, 1));
+                }
+            }
+            assertEquals(ROWS, rowNumber);
+            assertEquals(ROWS, reader.getCurrentRowNumber());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReadColumnsAndSeek() throws Exception {
+        File f = File.createTempFile("parquetDao", ".parquet");
+        f.deleteOnExit();
+        Config config = getController().getConfig();
+        config.setValue(Config.DAO_NAME, f.getAbsolutePath());
+        config.setValue(Config.DAO_PARQUET_ROW_GROUP_SIZE, 1024);
+
+        ParquetDataWriter writer = new ParquetDataWriter(config);
+        writer.open();
+        writer.setColumnNames(Arrays.asList("ID", "NAME"));
+        for (int i = 0; i < ROWS; i++) {
+            Row row = new Row();
+            row.put("ID", "id" + i);
+            row.put("NAME", "name" + i);
+            writer.writeRow(row);
+        }
+        writer.finish();
+
+        ParquetDataReader reader = new ParquetDataReader(config);
+        try {
+            reader.setColumnsToRead(Arrays.asList("name"));
+            assertEquals(true, reader.seekToRow(700));
+            List<Row> rows = reader.readRowList(10);
+            assertEquals(10, rows.size());
+            assertEquals("name700", rows.get(0).get("NAME"));
+            assertNull(rows.get(0).get("ID"));
+            assertEquals(710, reader.getCurrentRowNumber());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Field field(FieldType type, int precision, int scale) {
+        Field field = new Field();
+        field.setType(type);
+        field.setPrecision(precision);
+        field.setScale(scale);
+        return field;
+    }
+}
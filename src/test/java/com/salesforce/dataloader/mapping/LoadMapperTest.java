@@ -28,6 +28,7 @@ package com.salesforce.dataloader.mapping;
 import com.salesforce.dataloader.ConfigTestBase;
 import com.salesforce.dataloader.exception.MappingInitializationException;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.model.RowBatch;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -36,6 +37,7 @@ import org.junit.Test;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
 
@@ -282,5 +284,13 @@ public class LoadMapperTest extends ConfigTestBase {
         assertEquals("Destination[" + DEST_CONSTANT_NAME
                 + "] should contain constant", CONSTANT_VALUE,
                 destValueMap.get(DEST_CONSTANT_NAME));
+
+        // mapping the row as a batch gives the same columns and values
+        RowBatch destBatch = mapper.mapData(RowBatch.fromRows(Collections.singletonList(this.sourceRow)));
+        assertEquals(1, destBatch.size());
+        assertEquals(destValueMap.size(), destBatch.getSchema().getColumnCount());
+        for (String destName : destValueMap.keySet()) {
+            assertEquals(destValueMap.get(destName), destBatch.getRow(0).get(destName));
+        }
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowTest {
+
+    private final RowSchema schema = new RowSchema(Arrays.asList("Id", "Name", "NAME", "Phone"));
+
+    @Test
+    public void testSchemaIgnoresCaseAndDuplicates() {
+        assertEquals(3, schema.getColumnCount());
+        assertEquals(Arrays.asList("Id", "Name", "Phone"), schema.getColumnNames());
+        assertEquals(1, schema.indexOf("name"));
+        assertEquals(2, schema.indexOf("PHONE"));
+        assertEquals(-1, schema.indexOf("Fax"));
+        assertEquals(-1, schema.indexOf(null));
+    }
+
+    @Test
+    public void testSelectKeepsSchemaOrder() {
+        assertEquals(Arrays.asList("Id", "Phone"), schema.select(Arrays.asList("phone", "Fax", "ID")).getColumnNames());
+        assertEquals(0, schema.select(Arrays.asList("Fax")).getColumnCount());
+        assertEquals(schema, schema.select(null));
+    }
+
+    @Test
+    public void testSchemaRowBehavesLikeCaseInsensitiveMap() {
+        Row row = new Row(schema);
+        assertTrue(row.isEmpty());
+        assertNull(row.put("id", "001"));
+        assertNull(row.put("Phone", null));
+        assertEquals("001", row.put("ID", "002"));
+        assertEquals(2, row.size());
+        assertEquals("002", row.get("Id"));
+        assertTrue(row.containsKey("phone"));
+        assertNull(row.get("phone"));
+        assertFalse(row.containsKey("Name"));
+        assertFalse(row.hasColumnsOutsideSchema());
+
+        row.put("STATUS", "Item Created");
+        assertTrue(row.hasColumnsOutsideSchema());
+        assertEquals(3, row.size());
+        assertEquals("Item Created", row.get("status"));
+        assertEquals(Arrays.asList("Id", "Phone", "STATUS"), Arrays.asList(row.keySet().toArray()));
+
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            entry.setValue(entry.getKey() + "!");
+        }
+        assertEquals("Phone!", row.get("PHONE"));
+        assertEquals("STATUS!", row.get("Status"));
+
+        Iterator<String> keys = row.keySet().iterator();
+        keys.next();
+        keys.remove();
+        assertFalse(row.containsKey("Id"));
+        assertEquals("Phone!", row.remove("phone"));
+        assertEquals(1, row.size());
+        row.clear();
+        assertTrue(row.isEmpty());
+    }
+
+    @Test
+    public void testCopy() {
+        Row row = new Row(schema);
+        row.put("Id", "001");
+        row.put("STATUS", "Item Created");
+        Row copy = row.copy();
+        row.put("Id", "002");
+        row.put("Name", "Acme");
+        row.put("Status", "Item Updated");
+        assertEquals(schema, copy.getSchema());
+        assertEquals("001", copy.get("ID"));
+        assertFalse(copy.containsKey("Name"));
+        assertEquals("Item Created", copy.get("status"));
+        assertEquals(2, copy.size());
+
+        Row other = new Row();
+        other.put("Fax", "555");
+        Row otherCopy = other.copy();
+        other.put("fax", "556");
+        assertEquals("555", otherCopy.get("FAX"));
+    }
+
+    @Test
+    public void testRowBatchGrowsAndConvertsToRows() {
+        RowBatch batch = new RowBatch(schema, 1);
+        assertTrue(batch.isEmpty());
+        for (int i = 0; i < 20; i++) {
+            int row = batch.addRow();
+            batch.setValue(row, 0, "id" + i);
+            batch.setValue(row, 2, i);
+        }
+        assertEquals(20, batch.size());
+        assertEquals("id19", batch.getValue(19, 0));
+        assertNull(batch.getValue(19, 1));
+
+        Row row = batch.getRow(7);
+        assertEquals(schema, row.getSchema());
+        assertEquals("id7", row.get("ID"));
+        assertEquals(7, row.get("phone"));
+        assertTrue(row.containsKey("Name"));
+        assertEquals(20, batch.toRowList().size());
+    }
+
+    @Test
+    public void testRowBatchFromRows() {
+        Row first = new Row(schema);
+        first.put("Id", "001");
+        Row second = new Row(schema);
+        second.put("Name", "Acme");
+        RowBatch batch = RowBatch.fromRows(Arrays.asList(first, second));
+        assertEquals(schema, batch.getSchema());
+        assertEquals("001", batch.getValue(0, 0));
+        assertEquals("Acme", batch.getValue(1, 1));
+
+        Row other = new Row();
+        other.put("Fax", "555");
+        batch = RowBatch.fromRows(Arrays.asList(first, other));
+        assertEquals(Arrays.asList("Id", "Fax"), batch.getSchema().getColumnNames());
+        assertNull(batch.getValue(0, 1));
+        assertEquals("555", batch.getValue(1, 1));
+    }
+}
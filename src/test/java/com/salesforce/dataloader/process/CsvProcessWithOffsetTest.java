@@ -29,7 +29,9 @@ package com.salesforce.dataloader.process;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -120,6 +122,53 @@ public class CsvProcessWithOffsetTest extends ProcessTestBase {
         runOffsetValueTest("-5", NUM_DATA_ROWS);
     }
 
+    /**
+     * Verify that the status files of an index-only status output identify each row by its number in the input file,
+     * counting the rows skipped by the offset.
+     */
+    @Test
+    public void testIndexOnlyStatusOutput() throws Exception {
+        runIndexOnlyStatusTest(0);
+    }
+
+    @Test
+    public void testIndexOnlyStatusOutputWithOffset() throws Exception {
+        runIndexOnlyStatusTest(3);
+    }
+
+    private void runIndexOnlyStatusTest(int offset) throws Exception {
+        final Map<String, String> argMap = getRowOffsetTestConfig(offset, NUM_DATA_ROWS);
+        argMap.put(Config.STATUS_OUTPUT_INDEX_ONLY, Boolean.TRUE.toString());
+        final Controller ctl = runUpsertProcess(argMap, 0, NUM_DATA_ROWS - offset);
+
+        final CSVFileReader successReader = openConfiguredPath(ctl.getConfig(), Config.OUTPUT_SUCCESS);
+        try {
+            assertEquals(Arrays.asList(Config.ID_COLUMN_NAME, Config.SOURCE_ROW_COLUMN_NAME,
+                    Config.STATUS_COLUMN_NAME), successReader.getColumnNames());
+            final Set<String> sourceRows = new HashSet<String>();
+            for (Row row = successReader.readRow(); row != null; row = successReader.readRow()) {
+                assertEquals(3, row.size());
+                sourceRows.add(String.valueOf(row.get(Config.SOURCE_ROW_COLUMN_NAME)));
+            }
+            final Set<String> expectedRows = new HashSet<String>();
+            for (int i = offset + 1; i <= NUM_DATA_ROWS; i++) {
+                expectedRows.add(String.valueOf(i));
+            }
+            assertEquals(expectedRows, sourceRows);
+        } finally {
+            successReader.close();
+        }
+
+        final CSVFileReader errorReader = openConfiguredPath(ctl.getConfig(), Config.OUTPUT_ERROR);
+        try {
+            assertEquals(Arrays.asList(Config.SOURCE_ROW_COLUMN_NAME, Config.ERROR_COLUMN_NAME),
+                    errorReader.getColumnNames());
+            assertEquals(0, errorReader.getTotalRows());
+        } finally {
+            errorReader.close();
+        }
+    }
+
     private void runOffsetValueTest(Object offset, int numberOfInserts) throws Exception {
 
         int iOffset;
@@ -133,4 +133,19 @@ public class LoadRateCalculatorTest {
                + "There are 1 successes and 0 errors.",
                message);
    }
+
+   @Test
+   public void testRateCalculatorUnknownTotal() {
+      LoadRateCalculator rateCalculator = new LoadRateCalculator();
+       rateCalculator.start(-1);
+       try {
+           Thread.sleep(1000);
+       } catch (InterruptedException e) {
+           Thread.currentThread().interrupt();
+       }
+       String message = rateCalculator.calculateSubTask(2, 1);
+       assertEquals("incorrect rate calculation: ",
+               "Processed 2 records in 1 seconds. There are 1 successes and 1 errors. \nRate: 7,200 records per hour. ",
+               message);
+   }
 }